@@ -0,0 +1,441 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+import services.CleaningPipeline;
+import services.CleaningRules;
+import services.CleaningStep;
+import services.EmailCleaningService;
+import services.EmailCleaningServiceImpl;
+import services.EmailDataset;
+import services.EmailExporter;
+import services.EmailIntelligenceServiceImpl;
+import services.ExportOptions;
+import services.ExportStats;
+import services.ImportProgressListener;
+import services.ImportStats;
+import services.IntelligenceOptions;
+import services.ProgressTracker;
+import services.StreamingEmailImporter;
+import services.dedup.ScalableBloomFilter;
+import services.dns.DomainValidator;
+import services.dns.PersistentVerdictStore;
+import services.intelligence.collectors.GravatarCache;
+import services.intelligence.models.EmailIntelligenceProfile;
+
+/**
+ * Headless entry point running the cleaning pipeline, and optionally the intelligence
+ * analysis, over a file or stdin. Nothing here touches JavaFX, so it starts quickly
+ * on servers without a display:
+ *
+ * <pre>
+ * java -cp AllinOneChecker.jar application.CliMain -i list.txt -o clean.txt
+ * cat list.txt | java -cp AllinOneChecker.jar application.CliMain -s remove_duplicates,trim_and_normalize
+ * </pre>
+ *
+ * Plain text output is streamed line by line. Domain checks, CSV, split output and
+ * analysis need the whole list and collect it in an {@link EmailDataset} first.
+ * Throughput statistics are printed to stderr.
+ */
+public class CliMain {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    // Same chain as the "Clean List" button
+    private static final List<CleaningStep> DEFAULT_STEPS = Arrays.asList(
+        CleaningStep.REMOVE_DUPLICATES,
+        CleaningStep.REMOVE_EMPTY_LINES,
+        CleaningStep.TRIM_AND_NORMALIZE,
+        CleaningStep.REMOVE_CANONICAL_DUPLICATES,
+        CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+        CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT
+    );
+
+    private static final CleaningPipeline COLLECT_PIPELINE = CleaningPipeline.of(CleaningStep.REMOVE_EMPTY_LINES);
+
+    private static final int OUTPUT_BUFFER_BYTES = 1 << 20;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: application.CliMain [options]",
+        "  -i, --input FILE       Read emails from FILE (default: stdin)",
+        "  -o, --output FILE      Write results to FILE (default: stdout)",
+        "  -s, --steps LIST       Comma-separated cleaning steps (default: the Clean List chain)",
+        "      --list-steps       Print the available steps and exit",
+        "      --check-domains    Also remove emails whose domain does not resolve",
+        "      --seen-filter FILE",
+        "                         Emails seen in earlier runs, for remove_previously_seen; updated after the run",
+        "      --csv              Write every row with its status and removal reason (needs --output)",
+        "      --gzip             Gzip-compress the output, adding .gz to the file name",
+        "      --split-rows N     Start a new output file every N rows (needs --output)",
+        "      --analyze FILE     Analyze the cleaned emails and write the HTML report to FILE",
+        "      --progress         Print progress to stderr",
+        "  -h, --help             Print this help");
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the command with the given streams
+     *
+     * @return Process exit code
+     */
+    static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options.help) {
+            out.println(USAGE);
+            return EXIT_OK;
+        }
+        if (options.listSteps) {
+            for (CleaningStep step : CleaningStep.values()) {
+                out.println(step.name().toLowerCase(Locale.ROOT) + "  (" + step.getDisplayName() + ")");
+            }
+            return EXIT_OK;
+        }
+
+        try {
+            long start = System.nanoTime();
+            ScalableBloomFilter seenFilter = options.seenFilter != null
+                ? ScalableBloomFilter.openOrCreate(options.seenFilter, ScalableBloomFilter.DEFAULT_FALSE_POSITIVE_RATE,
+                    ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY)
+                : null;
+            CleaningPipeline pipeline = options.pipeline(seenFilter);
+            Summary summary = options.needsDataset()
+                ? runCollected(options, pipeline, in, out, err)
+                : runStreaming(options, pipeline, in, out, err);
+            if (seenFilter != null) {
+                // Saved only after a complete run, so a failed run does not mark its emails as seen
+                seenFilter.writeTo(options.seenFilter);
+            }
+            summary.print(err, System.nanoTime() - start);
+            if (seenFilter != null) {
+                err.println(String.format(Locale.ROOT, "Seen filter: %,d emails, estimated false-positive rate %.4f%%",
+                    seenFilter.getCount(), seenFilter.getEstimatedFalsePositiveRate() * 100));
+            }
+            return EXIT_OK;
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            err.println("Error: " + cause.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Reads, cleans and writes each line as it comes
+     */
+    private static Summary runStreaming(Options options, CleaningPipeline pipeline, InputStream in,
+                                        PrintStream out, PrintStream err) throws IOException {
+        StreamingEmailImporter importer = new StreamingEmailImporter();
+        try (ReadableByteChannel input = openInput(options, in);
+             ProgressTracker progress = newTracker(options, inputSize(options), err);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(openOutput(options, out),
+                 StandardCharsets.UTF_8), OUTPUT_BUFFER_BYTES)) {
+            ImportStats stats = importer.importChannel(input, inputSize(options), pipeline,
+                email -> {
+                    try {
+                        writer.write(email);
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                (bytesRead, totalBytes, records) -> progress.update(bytesRead, records));
+
+            Map<String, Integer> removed = new LinkedHashMap<>();
+            stats.getRemovedCounts().forEach((step, count) ->
+                removed.merge(step.getDisplayName(), count, Integer::sum));
+            return new Summary(stats.getBytesRead(), stats.getLinesRead(), stats.getAcceptedCount(), removed);
+        }
+    }
+
+    /**
+     * Collects the list, cleans it as a dataset, then writes and analyzes it
+     */
+    private static Summary runCollected(Options options, CleaningPipeline pipeline, InputStream in,
+                                        PrintStream out, PrintStream err) throws IOException {
+        EmailCleaningService service = options.checkDomains
+            ? new EmailCleaningServiceImpl(ForkJoinPool.commonPool(),
+                new DomainValidator(DomainValidator.systemResolver(), PersistentVerdictStore.openDefault()))
+            : new EmailCleaningServiceImpl(ForkJoinPool.commonPool());
+
+        EmailDataset.Builder builder = EmailDataset.builder();
+        ImportStats imported;
+        try (ReadableByteChannel input = openInput(options, in)) {
+            imported = new StreamingEmailImporter().importChannel(input, inputSize(options), COLLECT_PIPELINE,
+                builder::add, ImportProgressListener.NONE);
+        }
+        EmailDataset dataset = builder.build();
+        try (ProgressTracker progress = newTracker(options, dataset.size(), err)) {
+            dataset = service.clean(dataset, pipeline, progress);
+        }
+        if (options.checkDomains) {
+            dataset = service.removeNonExistentDomains(dataset);
+        }
+
+        if (options.output != null) {
+            ExportStats stats = service.export(dataset, options.output.toFile(), options.exportOptions(),
+                ProgressTracker.NONE);
+            if (stats.getFiles().size() > 1) {
+                err.println("Wrote " + stats.getFiles().size() + " files");
+            }
+        } else {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(openOutput(options, out),
+                    StandardCharsets.UTF_8), OUTPUT_BUFFER_BYTES)) {
+                for (String email : dataset.activeView()) {
+                    writer.write(email);
+                    writer.write('\n');
+                }
+            }
+        }
+
+        if (options.report != null) {
+            try (GravatarCache gravatarCache = GravatarCache.openDefault()) {
+                EmailIntelligenceServiceImpl intelligence = new EmailIntelligenceServiceImpl(
+                    IntelligenceOptions.defaults().withGravatarCache(gravatarCache));
+                try {
+                    List<EmailIntelligenceProfile> profiles = intelligence.analyzeEmails(dataset.activeView()).join();
+                    Files.write(options.report,
+                        intelligence.generateHTMLReport(profiles).getBytes(StandardCharsets.UTF_8));
+                    err.println("Analyzed " + profiles.size() + " emails, report written to " + options.report);
+                    long refused = intelligence.getRefusedGravatarLookups();
+                    if (refused > 0) {
+                        err.printf("Warning: %,d Gravatar lookups were refused (rate limit or open circuit); "
+                            + "those emails were scored without Gravatar data%n", refused);
+                    }
+                } finally {
+                    intelligence.shutdown();
+                }
+            }
+        }
+
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        if (imported.getLinesRead() > dataset.size()) {
+            removed.put(CleaningStep.REMOVE_EMPTY_LINES.getDisplayName(),
+                (int) (imported.getLinesRead() - dataset.size()));
+        }
+        dataset.getRemovedCounts().forEach((reason, count) -> removed.merge(reason, count, Integer::sum));
+        return new Summary(imported.getBytesRead(), imported.getLinesRead(), dataset.getActiveCount(), removed);
+    }
+
+    private static ReadableByteChannel openInput(Options options, InputStream in) throws IOException {
+        return options.input != null
+            ? FileChannel.open(options.input, StandardOpenOption.READ)
+            : Channels.newChannel(in);
+    }
+
+    private static long inputSize(Options options) throws IOException {
+        return options.input != null ? Files.size(options.input) : -1;
+    }
+
+    /**
+     * Output stream for text results; stdout is not closed with it
+     */
+    private static OutputStream openOutput(Options options, PrintStream out) throws IOException {
+        // Named like the collected export, so --gzip gives the same file in both modes
+        OutputStream stream = options.output != null
+            ? Files.newOutputStream(EmailExporter.outputPath(options.output, options.exportOptions()))
+            : new BufferedOutputStream(out, OUTPUT_BUFFER_BYTES) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        return options.gzip ? new GZIPOutputStream(stream, 64 * 1024) : stream;
+    }
+
+    private static ProgressTracker newTracker(Options options, long total, PrintStream err) {
+        if (!options.progress) {
+            return ProgressTracker.NONE;
+        }
+        return new ProgressTracker(total, snapshot -> err.println(snapshot.format()))
+            .start(Duration.ofSeconds(1));
+    }
+
+    /**
+     * Parsed command line
+     */
+    static final class Options {
+        Path input;
+        Path output;
+        Path report;
+        Path seenFilter;
+        List<CleaningStep> steps = DEFAULT_STEPS;
+        boolean checkDomains;
+        boolean csv;
+        boolean gzip;
+        long splitRows;
+        boolean progress;
+        boolean listSteps;
+        boolean help;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-i":
+                    case "--input":
+                        options.input = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "-o":
+                    case "--output":
+                        options.output = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "-s":
+                    case "--steps":
+                        options.steps = parseSteps(value(args, ++i, arg));
+                        break;
+                    case "--analyze":
+                        options.report = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "--seen-filter":
+                        options.seenFilter = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "--split-rows":
+                        options.splitRows = parsePositive(value(args, ++i, arg), arg);
+                        break;
+                    case "--check-domains":
+                        options.checkDomains = true;
+                        break;
+                    case "--csv":
+                        options.csv = true;
+                        break;
+                    case "--gzip":
+                        options.gzip = true;
+                        break;
+                    case "--progress":
+                        options.progress = true;
+                        break;
+                    case "--list-steps":
+                        options.listSteps = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        options.help = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if ((options.csv || options.splitRows > 0) && options.output == null) {
+                throw new IllegalArgumentException("--csv and --split-rows need --output");
+            }
+            if (options.steps.contains(CleaningStep.REMOVE_PREVIOUSLY_SEEN) && options.seenFilter == null) {
+                throw new IllegalArgumentException("remove_previously_seen needs --seen-filter");
+            }
+            return options;
+        }
+
+        static List<CleaningStep> parseSteps(String list) {
+            try {
+                return CleaningStep.parseList(list);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage() + " (see --list-steps)");
+            }
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            return args[index];
+        }
+
+        private static long parsePositive(String value, String option) {
+            try {
+                long parsed = Long.parseLong(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(option + " needs a positive number");
+        }
+
+        boolean needsDataset() {
+            return checkDomains || csv || splitRows > 0 || report != null;
+        }
+
+        /**
+         * @param seenFilter Filter for {@link CleaningStep#REMOVE_PREVIOUSLY_SEEN}, or null
+         */
+        CleaningPipeline pipeline(ScalableBloomFilter seenFilter) {
+            return CleaningPipeline.of(steps).withRules(CleaningRules.defaults().withSeenFilter(seenFilter));
+        }
+
+        ExportOptions exportOptions() {
+            ExportOptions options = ExportOptions.defaults();
+            if (csv) {
+                options = options.withFormat(ExportOptions.Format.CSV);
+            }
+            if (gzip) {
+                options = options.withCompression(ExportOptions.Compression.GZIP);
+            }
+            return options.withMaxRowsPerFile(splitRows);
+        }
+    }
+
+    /**
+     * Counts printed at the end of a run
+     */
+    private static final class Summary {
+        final long bytes;
+        final long lines;
+        final long kept;
+        final Map<String, Integer> removed;
+
+        Summary(long bytes, long lines, long kept, Map<String, Integer> removed) {
+            this.bytes = bytes;
+            this.lines = lines;
+            this.kept = kept;
+            this.removed = removed;
+        }
+
+        void print(PrintStream err, long elapsedNanos) {
+            double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+            err.println(String.format(Locale.ROOT, "Read %,d lines (%.1f MB) in %.2f s: %,.0f lines/s, %.1f MB/s",
+                lines, bytes / 1e6, seconds, lines / seconds, bytes / 1e6 / seconds));
+            err.println(String.format(Locale.ROOT, "Kept %,d, removed %,d", kept, lines - kept));
+            removed.forEach((reason, count) -> {
+                if (count > 0) {
+                    err.println(String.format(Locale.ROOT, "  %s: %,d", reason, count));
+                }
+            });
+        }
+    }
+}
@@ -6,6 +6,9 @@ import javafx.stage.Stage;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
+import services.intelligence.collectors.GravatarCache;
+
+import java.io.IOException;
 
 public class Main extends Application {
     @Override
@@ -25,6 +28,16 @@ public class Main extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Pages share one Gravatar cache; closing it may compact its log
+        try {
+            GravatarCache.closeShared();
+        } catch (IOException e) {
+            System.err.println("Could not close the Gravatar cache: " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
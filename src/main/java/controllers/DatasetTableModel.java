@@ -0,0 +1,88 @@
+package controllers;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.collections.ObservableListBase;
+import services.EmailDataset;
+
+/**
+ * Table items backed by the active rows of an {@link EmailDataset}.
+ *
+ * <p>The table only asks for the rows it displays; they are decoded a page at a time
+ * and a few pages are cached, so memory stays the same whether the dataset holds a
+ * thousand rows or fifty million. Replacing the dataset fires a single change whose
+ * removed rows are a lazy view of the previous dataset, so showing the result of a
+ * filter costs the same at any size.
+ */
+public class DatasetTableModel extends ObservableListBase<String> {
+
+    static final int PAGE_SIZE = 256;
+    private static final int CACHED_PAGES = 8;
+
+    private EmailDataset dataset = EmailDataset.empty();
+    private List<String> rows = dataset.activeView();
+
+    private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    public EmailDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Shows the active rows of another dataset. Must be called on the FX thread.
+     */
+    public void setDataset(EmailDataset next) {
+        List<String> previous = rows;
+        dataset = next;
+        rows = next.activeView();
+        pages.clear();
+
+        if (previous.isEmpty() && rows.isEmpty()) {
+            return;
+        }
+        beginChange();
+        if (!previous.isEmpty()) {
+            nextRemove(0, previous);
+        }
+        if (!rows.isEmpty()) {
+            nextAdd(0, rows.size());
+        }
+        endChange();
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= rows.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + rows.size());
+        }
+        int pageStart = index - index % PAGE_SIZE;
+        String[] page = pages.get(pageStart);
+        if (page == null) {
+            page = new String[Math.min(PAGE_SIZE, rows.size() - pageStart)];
+            for (int i = 0; i < page.length; i++) {
+                page[i] = rows.get(pageStart + i);
+            }
+            pages.put(pageStart, page);
+        }
+        return page[index - pageStart];
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Number of pages currently decoded
+     */
+    int getCachedPageCount() {
+        return pages.size();
+    }
+}
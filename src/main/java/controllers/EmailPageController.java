@@ -2,11 +2,10 @@ package controllers;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -20,18 +19,41 @@ import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import services.EmailCleaningService;
 import services.EmailCleaningServiceImpl;
-import services.CleaningResult;
+import services.dns.DomainValidator;
+import services.dns.PersistentVerdictStore;
+import services.CleaningPipeline;
+import services.CleaningStep;
+import services.EmailDataset;
+import services.ExportOptions;
+import services.ProgressTracker;
 
 public class EmailPageController {
     
+    // Steps run by "Clean List", fused into a single pass
+    private static final CleaningPipeline CLEAN_LIST_PIPELINE = CleaningPipeline.of(
+        CleaningStep.REMOVE_DUPLICATES,
+        CleaningStep.REMOVE_EMPTY_LINES,
+        CleaningStep.TRIM_AND_NORMALIZE,
+        CleaningStep.REMOVE_CANONICAL_DUPLICATES,
+        CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+        CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT
+    );
+    
+    private static final CleaningPipeline ROLE_ADMIN_BOT_PIPELINE = CleaningPipeline.of(
+        CleaningStep.REMOVE_ROLE_BASED,
+        CleaningStep.REMOVE_ADMIN_OR_BOT
+    );
+    
     // Service instance
-    private EmailCleaningService emailService = new EmailCleaningServiceImpl();
+    // Domain verdicts are kept on disk so repeated launches skip known domains
+    private EmailCleaningService emailService = new EmailCleaningServiceImpl(ForkJoinPool.commonPool(),
+        new DomainValidator(DomainValidator.systemResolver(), PersistentVerdictStore.openDefault()));
     
     // Store the imported file
     private File importedFile;
     
-    // Current email list being worked on
-    private ObservableList<String> currentEmails = FXCollections.observableArrayList();
+    // Current email list being worked on; the table only decodes the rows it displays
+    private final DatasetTableModel tableModel = new DatasetTableModel();
     
     // FXML Components
     @FXML
@@ -117,7 +139,9 @@ public class EmailPageController {
         emailColumn.setCellValueFactory(data -> 
             new javafx.beans.property.SimpleStringProperty(data.getValue())
         );
-        emailTableView.setItems(currentEmails);
+        // A fixed row height lets the table place rows without measuring them
+        emailTableView.setFixedCellSize(24);
+        emailTableView.setItems(tableModel);
     }
     
     private void setupButtonActions() {
@@ -145,13 +169,19 @@ public class EmailPageController {
         importedFile = fileChooser.showOpenDialog(importButton.getScene().getWindow());
         
         if (importedFile != null) {
-            Task<ObservableList<String>> importTask = new Task<ObservableList<String>>() {
+            File file = importedFile;
+            Task<EmailDataset> importTask = new TrackedTask<EmailDataset>() {
                 @Override
-                protected ObservableList<String> call() throws Exception {
+                protected EmailDataset call() throws Exception {
                     updateMessage("Importing...");
                     updateProgress(0, 100);
                     
-                    ObservableList<String> imported = emailService.importData(importedFile);
+                    // Stream the file into a dataset; progress is measured in bytes
+                    EmailDataset imported;
+                    try (ProgressTracker progress = track("Importing...", file.length())) {
+                        imported = emailService.importDataset(file,
+                            (bytesRead, totalBytes, records) -> progress.update(bytesRead, records));
+                    }
                     
                     updateProgress(100, 100);
                     updateMessage("Import Complete");
@@ -160,7 +190,7 @@ public class EmailPageController {
             };
             
             importTask.setOnSucceeded(e -> {
-                currentEmails.setAll(importTask.getValue());
+                showDataset(importTask.getValue());
                 resetAllStatistics();
                 updateTotalCount();    
                 resetProgressBar();
@@ -179,82 +209,40 @@ public class EmailPageController {
 
     
     private void handleRemoveAll() {
-        emailService.removeDataImported();
-        currentEmails.clear();
+        showDataset(EmailDataset.empty());
         importedFile = null;
         resetAllStatistics();
         resetProgressBar();
     }
     
     private void handleCleanList() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> cleanTask = new Task<CleaningResult>() {
+        Task<EmailDataset> cleanTask = new TrackedTask<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                List<String> emails = currentEmails;
-                int totalSteps = 5;
-                int currentStep = 0;
-                int totalRemoved = 0;
-                
-                int beforeCount = emails.size();
-                
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing duplicates...");
-                emails = emailService.removeDuplicates(emails);
-                totalRemoved += (beforeCount - emails.size());
-                beforeCount = emails.size();
-                Thread.sleep(300);
-                
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing empty lines...");
-                emails = emailService.removeEmptyLines(emails);
-                totalRemoved += (beforeCount - emails.size());
-                beforeCount = emails.size();
-                Thread.sleep(300);
-                
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Trimming and normalizing...");
-                emails = emailService.trimAndNormalize(emails);
-                totalRemoved += (beforeCount - emails.size());
-                beforeCount = emails.size();
-                Thread.sleep(300);
-                
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing emails without @...");
-                emails = emailService.removeEmailsWithoutAt(emails);
-                totalRemoved += (beforeCount - emails.size());
-                beforeCount = emails.size();
-                Thread.sleep(300);
-                
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing emails with multiple @...");
-                emails = emailService.removeEmailsWithMultipleAt(emails);
-                totalRemoved += (beforeCount - emails.size());
-                Thread.sleep(300);
+            protected EmailDataset call() throws Exception {
+                EmailDataset result;
+                try (ProgressTracker progress = track("Cleaning list...", source.getActiveCount())) {
+                    result = emailService.clean(source, CLEAN_LIST_PIPELINE, progress);
+                }
                 
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
+                updateProgress(1, 1);
                 updateMessage("Cleaning complete!");
                 
-                return new CleaningResult(emails, totalRemoved);
+                return result;
             }
         };
         
         cleanTask.setOnSucceeded(e -> {
-            CleaningResult result = cleanTask.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(cleanTask.getValue());
             
             // Update statistics
-            updateStatistic(ResultatEmailUncleaned, result.getRemovedCount());
+            updateStatistic(ResultatEmailUncleaned, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -273,36 +261,33 @@ public class EmailPageController {
     }
     
     private void handleRemoveInvalidCharacters() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> task = new Task<CleaningResult>() {
+        Task<EmailDataset> task = new TrackedTask<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                updateProgress(0, 1);
-                updateMessage("Removing invalid characters...");
-                
-                int beforeCount = currentEmails.size();
-                List<String> emails = emailService.removeInvalidCharacters(currentEmails);
-                int removed = beforeCount - emails.size();
-                Thread.sleep(300);
+            protected EmailDataset call() throws Exception {
+                EmailDataset emails;
+                try (ProgressTracker progress = track("Removing invalid characters...", source.getActiveCount())) {
+                    emails = emailService.clean(source, CleaningPipeline.of(CleaningStep.REMOVE_INVALID_CHARACTERS), progress);
+                }
                 
                 updateProgress(1, 1);
                 updateMessage("Complete!");
                 
-                return new CleaningResult(emails, removed);
+                return emails;
             }
         };
         
         task.setOnSucceeded(e -> {
-            CleaningResult result = task.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(task.getValue());
             
             // Update statistics
-            updateStatistic(ResultatEmailWithInvalidCharacters, result.getRemovedCount());
+            updateStatistic(ResultatEmailWithInvalidCharacters, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -321,50 +306,34 @@ public class EmailPageController {
     }
     
     private void handleRemoveRoleBasedAdminBotEmails() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> filterTask = new Task<CleaningResult>() {
+        Task<EmailDataset> filterTask = new TrackedTask<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                List<String> emails = currentEmails;
-                int totalSteps = 2;
-                int currentStep = 0;
-                int totalRemoved = 0;
-                
-                int beforeCount = emails.size();
-                
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing role-based emails...");
-                emails = emailService.removeRoleBasedEmails(emails);
-                totalRemoved += (beforeCount - emails.size());
-                beforeCount = emails.size();
-                Thread.sleep(400);
-                
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
-                updateMessage("Removing admin/bot emails...");
-                emails = emailService.removeAdminOrBotEmails(emails);
-                totalRemoved += (beforeCount - emails.size());
-                Thread.sleep(400);
+            protected EmailDataset call() throws Exception {
+                EmailDataset emails;
+                try (ProgressTracker progress = track("Removing role-based, admin and bot emails...",
+                        source.getActiveCount())) {
+                    emails = emailService.clean(source, ROLE_ADMIN_BOT_PIPELINE, progress);
+                }
                 
-                currentStep++;
-                updateProgress(currentStep, totalSteps);
+                updateProgress(1, 1);
                 updateMessage("Filtering complete!");
                 
-                return new CleaningResult(emails, totalRemoved);
+                return emails;
             }
         };
         
         filterTask.setOnSucceeded(e -> {
-            CleaningResult result = filterTask.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(filterTask.getValue());
             
             // Update statistics
-            updateStatistic(ResultatRoleBasedEmails, result.getRemovedCount());
+            updateStatistic(ResultatRoleBasedEmails, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -383,36 +352,33 @@ public class EmailPageController {
     }
     
     private void handleRemoveDisposableEmails() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> task = new Task<CleaningResult>() {
+        Task<EmailDataset> task = new TrackedTask<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                updateProgress(0, 1);
-                updateMessage("Removing disposable emails...");
-                
-                int beforeCount = currentEmails.size();
-                List<String> emails = emailService.removeDisposableEmails(currentEmails);
-                int removed = beforeCount - emails.size();
-                Thread.sleep(400);
+            protected EmailDataset call() throws Exception {
+                EmailDataset emails;
+                try (ProgressTracker progress = track("Removing disposable emails...", source.getActiveCount())) {
+                    emails = emailService.clean(source, CleaningPipeline.of(CleaningStep.REMOVE_DISPOSABLE), progress);
+                }
                 
                 updateProgress(1, 1);
                 updateMessage("Complete!");
                 
-                return new CleaningResult(emails, removed);
+                return emails;
             }
         };
         
         task.setOnSucceeded(e -> {
-            CleaningResult result = task.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(task.getValue());
             
             // Update statistics
-            updateStatistic(ResultatDisposableEmails, result.getRemovedCount());
+            updateStatistic(ResultatDisposableEmails, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -431,36 +397,33 @@ public class EmailPageController {
     }
     
     private void handleRemoveInvalidTLDs() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> task = new Task<CleaningResult>() {
+        Task<EmailDataset> task = new TrackedTask<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                updateProgress(0, 1);
-                updateMessage("Removing invalid TLDs...");
-                
-                int beforeCount = currentEmails.size();
-                List<String> emails = emailService.removeInvalidOrFakeTLDs(currentEmails);
-                int removed = beforeCount - emails.size();
-                Thread.sleep(500);
+            protected EmailDataset call() throws Exception {
+                EmailDataset emails;
+                try (ProgressTracker progress = track("Removing invalid TLDs...", source.getActiveCount())) {
+                    emails = emailService.clean(source, CleaningPipeline.of(CleaningStep.REMOVE_INVALID_OR_FAKE_TLDS), progress);
+                }
                 
                 updateProgress(1, 1);
                 updateMessage("Complete!");
                 
-                return new CleaningResult(emails, removed);
+                return emails;
             }
         };
         
         task.setOnSucceeded(e -> {
-            CleaningResult result = task.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(task.getValue());
             
             // Update statistics
-            updateStatistic(ResultatEmailsWithInvalidTLDs, result.getRemovedCount());
+            updateStatistic(ResultatEmailsWithInvalidTLDs, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -479,35 +442,33 @@ public class EmailPageController {
     }
     
     private void handleRemoveNonExistantDomains() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         disableButtons(true);
         
-        Task<CleaningResult> task = new Task<CleaningResult>() {
+        Task<EmailDataset> task = new Task<EmailDataset>() {
             @Override
-            protected CleaningResult call() throws Exception {
-                updateProgress(0, 1);
+            protected EmailDataset call() throws Exception {
+                updateProgress(-1, 1);
                 updateMessage("Checking domain existence...");
                 
-                int beforeCount = currentEmails.size();
-                List<String> emails = emailService.removeNonExistentDomains(currentEmails);
-                int removed = beforeCount - emails.size();
+                EmailDataset emails = emailService.removeNonExistentDomains(source);
                 
                 updateProgress(1, 1);
                 updateMessage("Complete!");
                 
-                return new CleaningResult(emails, removed);
+                return emails;
             }
         };
         
         task.setOnSucceeded(e -> {
-            CleaningResult result = task.getValue();
-            currentEmails.setAll(result.getCleanedEmails());
+            int removed = showDataset(task.getValue());
             
             // Update statistics
-            updateStatistic(ResultatEmailsWithInvalidDomains, result.getRemovedCount());
+            updateStatistic(ResultatEmailsWithInvalidDomains, removed);
             updateTotalCount();
             
             disableButtons(false);
@@ -526,34 +487,31 @@ public class EmailPageController {
     }
     
     private void handleExport() {
-        if (currentEmails.isEmpty()) {
+        if (tableModel.getDataset().getActiveCount() == 0) {
             return;
         }
+        EmailDataset source = tableModel.getDataset();
         
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Export Email List");
-        fileChooser.getExtensionFilters().add(
-            new FileChooser.ExtensionFilter("Text Files", "*.txt")
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+            new FileChooser.ExtensionFilter("CSV with removal reasons", "*.csv"),
+            new FileChooser.ExtensionFilter("Gzip-compressed files", "*.gz")
         );
         fileChooser.setInitialFileName("cleaned_emails.txt");
         
         File file = fileChooser.showSaveDialog(exportButton.getScene().getWindow());
         
         if (file != null) {
-            Task<Void> exportTask = new Task<Void>() {
+            ExportOptions options = exportOptionsFor(file.getName());
+            Task<Void> exportTask = new TrackedTask<Void>() {
                 @Override
                 protected Void call() throws Exception {
                     updateMessage("Exporting...");
-                    updateProgress(0, currentEmails.size());
                     
-                    try (java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(file))) {
-                        int count = 0;
-                        for (String email : currentEmails) {
-                            writer.write(email);
-                            writer.newLine();
-                            count++;
-                            updateProgress(count, currentEmails.size());
-                        }
+                    try (ProgressTracker progress = track("Exporting...", source.size())) {
+                        emailService.export(source, file, options, progress);
                     }
                     
                     updateMessage("Export complete!");
@@ -577,12 +535,61 @@ public class EmailPageController {
     }
     
     private void handlePassToChecking() {
-        System.out.println("Passing " + currentEmails.size() + " emails to checking...");
+        System.out.println("Passing " + tableModel.getDataset().getActiveCount() + " emails to checking...");
         // TODO: Implement navigation to checking page
     }
     
     // ================== HELPER METHODS ==================
     
+    /**
+     * Export layout chosen by file name: ".csv" writes every row with its removal
+     * reason, a trailing ".gz" compresses
+     */
+    private static ExportOptions exportOptionsFor(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        ExportOptions options = ExportOptions.defaults();
+        if (name.endsWith(".gz")) {
+            options = options.withCompression(ExportOptions.Compression.GZIP);
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".csv")) {
+            options = options.withFormat(ExportOptions.Format.CSV);
+        }
+        return options;
+    }
+    
+    /**
+     * Task whose progress bar and message follow a {@link ProgressTracker}, so the
+     * FX thread receives about ten updates per second however fast records go by
+     */
+    private abstract static class TrackedTask<V> extends Task<V> {
+        
+        /**
+         * Starts a tracker reporting to this task; close it when the work is done
+         * 
+         * @param label Message shown before the records count, rate and ETA
+         * @param total Work units for completion, or -1 if unknown
+         */
+        protected ProgressTracker track(String label, long total) {
+            return new ProgressTracker(total, snapshot -> {
+                double fraction = snapshot.getFraction();
+                updateProgress(fraction < 0 ? -1 : fraction, 1);
+                updateMessage(label + " " + snapshot.format());
+            }).start();
+        }
+    }
+    
+    /**
+     * Makes the dataset current and shows a view of its active rows
+     * 
+     * @return Number of emails the new dataset has fewer than the previous one
+     */
+    private int showDataset(EmailDataset next) {
+        int removed = tableModel.getDataset().getActiveCount() - next.getActiveCount();
+        tableModel.setDataset(next);
+        return removed;
+    }
+    
     private void disableButtons(boolean disable) {
         importButton.setDisable(disable);
         removeAllButton.setDisable(disable);
@@ -617,7 +624,7 @@ public class EmailPageController {
      */
     private void updateTotalCount() {
         Platform.runLater(() -> {
-            ResultatTotal.setText(String.valueOf(currentEmails.size()));
+            ResultatTotal.setText(String.valueOf(tableModel.getDataset().getActiveCount()));
         });
     }
     
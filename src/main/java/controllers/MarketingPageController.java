@@ -1,12 +1,16 @@
 package controllers;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -17,8 +21,15 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
+import services.CleaningPipeline;
+import services.CleaningStep;
+import services.EmailDataset;
 import services.EmailIntelligenceService;
 import services.EmailIntelligenceServiceImpl;
+import services.ImportProgressListener;
+import services.IntelligenceOptions;
+import services.StreamingEmailImporter;
+import services.intelligence.collectors.GravatarCache;
 import services.intelligence.models.EmailIntelligenceProfile;
 
 public class MarketingPageController {
@@ -41,7 +52,27 @@ public class MarketingPageController {
 	private EmailIntelligenceService intelligenceService;
 	
 	// Store imported emails
-	private List<String> importedEmails = new ArrayList<>();
+	private EmailDataset importedEmails = EmailDataset.empty();
+	
+	private static final CleaningPipeline IMPORT_PIPELINE = CleaningPipeline.of(CleaningStep.REMOVE_EMPTY_LINES);
+	
+	private final StreamingEmailImporter importer = new StreamingEmailImporter();
+	
+	// Lookups in flight at once, which is also how many profiles are requested at a time
+	private static final int ANALYSIS_IN_FLIGHT = 256;
+	
+	private static final long PROGRESS_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long REPORT_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(2);
+	
+	// Profiles shown in a partial report, so a refresh costs the same however far the analysis is
+	private static final int PARTIAL_REPORT_PROFILES = 200;
+	
+	// Renders reports off the FX thread and off the thread delivering profiles
+	private static final Executor REPORT_RENDERER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "report-renderer");
+		thread.setDaemon(true);
+		return thread;
+	});
 	
 	@FXML
 	public void initialize() throws IOException {
@@ -51,7 +82,8 @@ public class MarketingPageController {
 		LeftBar.getChildren().add(leftbar);
 		
 		// Initialize intelligence service
-		intelligenceService = new EmailIntelligenceServiceImpl();
+		intelligenceService = new EmailIntelligenceServiceImpl(
+			IntelligenceOptions.defaults().withGravatarCache(GravatarCache.shared()));
 		
 		// Set up button actions
 		importButton.setOnAction(event -> handleImportEmails());
@@ -75,35 +107,42 @@ public class MarketingPageController {
 		File file = fileChooser.showOpenDialog(importButton.getScene().getWindow());
 		
 		if (file != null) {
-			try {
-				importedEmails.clear();
-				try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-					String line;
-					while ((line = reader.readLine()) != null) {
-						line = line.trim();
-						if (!line.isEmpty()) {
-							importedEmails.add(line);
-						}
-					}
+			importButton.setDisable(true);
+			analyzeButton.setDisable(true);
+			
+			// Stream the file off the FX thread so large lists don't freeze the UI
+			CompletableFuture.supplyAsync(() -> {
+				EmailDataset.Builder emails = EmailDataset.builder();
+				try {
+					importer.importFile(file.toPath(), IMPORT_PIPELINE, emails::add,
+						ImportProgressListener.NONE);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return emails.build();
+			}).whenComplete((emails, ex) -> Platform.runLater(() -> {
+				importButton.setDisable(false);
+				if (ex != null) {
+					showErrorMessage("Failed to import emails: " + ex.getCause().getMessage());
+					analyzeButton.setDisable(true);
+					return;
 				}
 				
-				if (importedEmails.isEmpty()) {
+				importedEmails = emails;
+				if (importedEmails.getActiveCount() == 0) {
 					showErrorMessage("No emails found in the file. Please select a file with email addresses.");
 					analyzeButton.setDisable(true);
 				} else {
-					showImportSuccessMessage(importedEmails.size());
+					showImportSuccessMessage(importedEmails.getActiveCount());
 					analyzeButton.setDisable(false);
 				}
-			} catch (IOException e) {
-				showErrorMessage("Failed to import emails: " + e.getMessage());
-				analyzeButton.setDisable(true);
-			}
+			}));
 		}
 	}
 	
 	@FXML
 	public void handleAnalyzeEmails() {
-		if (importedEmails.isEmpty()) {
+		if (importedEmails.getActiveCount() == 0) {
 			showErrorMessage("No emails to analyze. Please import an email list first.");
 			return;
 		}
@@ -113,28 +152,93 @@ public class MarketingPageController {
 		analyzeButton.setDisable(true);
 		importButton.setDisable(true);
 		
-		// Perform analysis asynchronously
-		intelligenceService.analyzeEmails(importedEmails)
-			.thenAccept(profiles -> {
-				Platform.runLater(() -> {
-					String htmlReport = intelligenceService.generateHTMLReport(profiles);
-					reportWebView.getEngine().loadContent(htmlReport);
-					analysisProgress.setVisible(false);
-					analyzeButton.setDisable(false);
-					importButton.setDisable(false);
-				});
-			})
-			.exceptionally(ex -> {
-				Platform.runLater(() -> {
-					showErrorMessage("Analysis failed: " + ex.getMessage());
-					analysisProgress.setVisible(false);
-					analyzeButton.setDisable(false);
-					importButton.setDisable(false);
-				});
-				return null;
+		// Profiles arrive as they complete. Now and then the latest ones are rendered off
+		// the delivery thread, so results show up long before the whole list is done
+		// without holding back the next profiles
+		int total = importedEmails.getActiveCount();
+		analysisProgress.setProgress(0);
+		intelligenceService.analyzeEmailsStreaming(importedEmails.activeView(), ANALYSIS_IN_FLIGHT)
+			.subscribe(new Flow.Subscriber<EmailIntelligenceProfile>() {
+				// Kept for the final report, which lists every profile
+				private final List<EmailIntelligenceProfile> profiles = new ArrayList<>(total);
+				private final AtomicBoolean renderPending = new AtomicBoolean();
+				private Flow.Subscription subscription;
+				private long lastProgress = System.nanoTime();
+				private long lastReport = System.nanoTime();
+				
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					this.subscription = subscription;
+					subscription.request(ANALYSIS_IN_FLIGHT);
+				}
+				
+				@Override
+				public void onNext(EmailIntelligenceProfile profile) {
+					profiles.add(profile);
+					if (profiles.size() % ANALYSIS_IN_FLIGHT == 0) {
+						subscription.request(ANALYSIS_IN_FLIGHT);
+					}
+					
+					long now = System.nanoTime();
+					double fraction = (double) profiles.size() / total;
+					// At most one partial report is rendered at a time; refreshes due meanwhile are skipped
+					if (now - lastReport >= REPORT_REFRESH_NANOS && renderPending.compareAndSet(false, true)) {
+						lastReport = now;
+						lastProgress = now;
+						List<EmailIntelligenceProfile> latest = new ArrayList<>(
+							profiles.subList(Math.max(0, profiles.size() - PARTIAL_REPORT_PROFILES), profiles.size()));
+						showPartialReport(latest, fraction, renderPending);
+					} else if (now - lastProgress >= PROGRESS_REFRESH_NANOS) {
+						lastProgress = now;
+						Platform.runLater(() -> analysisProgress.setProgress(fraction));
+					}
+				}
+				
+				@Override
+				public void onError(Throwable ex) {
+					Platform.runLater(() -> {
+						showErrorMessage("Analysis failed: " + ex.getMessage());
+						finishAnalysis();
+					});
+				}
+				
+				@Override
+				public void onComplete() {
+					CompletableFuture.supplyAsync(() -> intelligenceService.generateHTMLReport(profiles), REPORT_RENDERER)
+						.whenComplete((htmlReport, ex) -> Platform.runLater(() -> {
+							if (ex != null) {
+								showErrorMessage("Could not render the report: " + ex.getMessage());
+							} else {
+								reportWebView.getEngine().loadContent(htmlReport);
+							}
+							finishAnalysis();
+						}));
+				}
 			});
 	}
 	
+	/**
+	 * Renders the latest profiles on the report thread and shows them on the FX thread
+	 *
+	 * @param pending Cleared once the report is shown, allowing the next refresh
+	 */
+	private void showPartialReport(List<EmailIntelligenceProfile> latest, double fraction, AtomicBoolean pending) {
+		CompletableFuture.supplyAsync(() -> intelligenceService.generateHTMLReport(latest), REPORT_RENDERER)
+			.whenComplete((htmlReport, ex) -> Platform.runLater(() -> {
+				analysisProgress.setProgress(fraction);
+				if (htmlReport != null) {
+					reportWebView.getEngine().loadContent(htmlReport);
+				}
+				pending.set(false);
+			}));
+	}
+	
+	private void finishAnalysis() {
+		analysisProgress.setVisible(false);
+		analyzeButton.setDisable(false);
+		importButton.setDisable(false);
+	}
+	
 	private void showImportSuccessMessage(int emailCount) {
 		String html = "<!DOCTYPE html>" +
 					  "<html><head><style>" +
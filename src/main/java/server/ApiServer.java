@@ -0,0 +1,480 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import services.CleaningPipeline;
+import services.CleaningStep;
+import services.EmailCleaningService;
+import services.EmailCleaningServiceImpl;
+import services.EmailDataset;
+import services.EmailIntelligenceService;
+import services.EmailIntelligenceServiceImpl;
+import services.IntelligenceOptions;
+import services.intelligence.collectors.GravatarCache;
+import services.intelligence.models.EmailIntelligenceProfile;
+import services.intelligence.resilience.ResilienceOptions;
+import services.intelligence.resilience.ResilientCaller;
+
+/**
+ * Local HTTP API over the cleaning and intelligence services, built on the JDK
+ * {@link HttpServer}:
+ *
+ * <pre>
+ * POST /clean?steps=remove_duplicates,trim_and_normalize&amp;checkDomains=true
+ * POST /analyze
+ * GET  /analyze?email=jane@example.com
+ * GET  /metrics
+ * GET  /health
+ * </pre>
+ *
+ * Request bodies are NDJSON with one email per line, as a JSON string, an object with
+ * an {@code email} field, or the bare address. {@code /clean} answers one line per
+ * input row with its status and removal reason. {@code /analyze} answers one profile
+ * per email; the emails of concurrent requests are merged into shared batches by a
+ * {@link MicroBatcher}, so duplicates across requests are looked up once. If the
+ * analysis fails after the first profiles were sent, the body ends with an
+ * {@code {"error":...}} line in place of the missing profiles.
+ *
+ * <p>At most {@link ServerOptions#getMaxConcurrentRequests()} requests are handled at
+ * once and at most {@link ServerOptions#getMaxPendingEmails()} emails wait for analysis;
+ * beyond that the server answers 503 with a {@code Retry-After} header rather than
+ * queueing. Latency percentiles per endpoint are served by {@code /metrics}, along
+ * with any sources added through {@link #addMetrics}.
+ */
+public class ApiServer implements AutoCloseable {
+
+    // Same chain as the "Clean List" button
+    private static final List<CleaningStep> DEFAULT_STEPS = Arrays.asList(
+        CleaningStep.REMOVE_DUPLICATES,
+        CleaningStep.REMOVE_EMPTY_LINES,
+        CleaningStep.TRIM_AND_NORMALIZE,
+        CleaningStep.REMOVE_CANONICAL_DUPLICATES,
+        CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+        CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT
+    );
+
+    // How long an analyze request waits for room in the batcher before getting a 503
+    private static final Duration ADMISSION_WAIT = Duration.ofSeconds(2);
+
+    // Spare handler threads, so that busy and metrics responses are not stuck behind work
+    private static final int SPARE_THREADS = 4;
+
+    private static final int OUTPUT_BUFFER_CHARS = 64 * 1024;
+
+    private final EmailCleaningService cleaningService;
+    private final EmailIntelligenceService intelligenceService;
+    private final ServerOptions options;
+    private final Semaphore requestSlots;
+    private final Map<String, Map<String, HttpHandler>> routes = new HashMap<>();
+    private final Map<String, EndpointMetrics> metrics = new LinkedHashMap<>();
+    private final Map<String, Supplier<?>> extraMetrics = new ConcurrentHashMap<>();
+    private final MicroBatcher<String, EmailIntelligenceProfile> analyzeBatcher;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ApiServer(EmailCleaningService cleaningService, EmailIntelligenceService intelligenceService,
+                     ServerOptions options) {
+        this.cleaningService = cleaningService;
+        this.intelligenceService = intelligenceService;
+        this.options = options;
+        this.requestSlots = new Semaphore(options.getMaxConcurrentRequests());
+        this.analyzeBatcher = new MicroBatcher<>("analyze-batcher", intelligenceService::analyzeEmails,
+            options.getMaxBatchSize(), options.getMaxBatchDelay(), options.getMaxPendingEmails());
+    }
+
+    public static void main(String[] args) {
+        ServerOptions options = ServerOptions.defaults();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--host".equals(args[i]) && i + 1 < args.length) {
+                    options = options.withHost(args[++i]);
+                } else if ("--port".equals(args[i]) && i + 1 < args.length) {
+                    options = options.withPort(Integer.parseInt(args[++i]));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: server.ApiServer [--host HOST] [--port PORT]");
+            System.exit(2);
+        }
+
+        GravatarCache gravatarCache = GravatarCache.openDefault();
+        ResilientCaller gravatarResilience = new ResilientCaller(ResilienceOptions.defaults());
+        EmailIntelligenceServiceImpl intelligence = new EmailIntelligenceServiceImpl(IntelligenceOptions.defaults()
+            .withGravatarCache(gravatarCache)
+            .withGravatarResilience(gravatarResilience));
+        ApiServer apiServer = new ApiServer(new EmailCleaningServiceImpl(), intelligence, options)
+            .addMetrics("gravatar", gravatarResilience::getStats);
+        try {
+            apiServer.start();
+        } catch (IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            apiServer.close();
+            intelligence.shutdown();
+            try {
+                gravatarCache.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the Gravatar cache: " + e.getMessage());
+            }
+        }));
+        System.err.println("Listening on http://" + options.getHost() + ":" + apiServer.getPort());
+    }
+
+    /**
+     * Adds a value computed on every {@code /metrics} request, such as the counters of
+     * an external dependency
+     */
+    public ApiServer addMetrics(String name, Supplier<?> values) {
+        extraMetrics.put(name, values);
+        return this;
+    }
+
+    public synchronized ApiServer start() throws IOException {
+        if (server != null) {
+            return this;
+        }
+        server = HttpServer.create(new InetSocketAddress(options.getHost(), options.getPort()), 0);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(options.getMaxConcurrentRequests() + SPARE_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "api-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+
+        route("/clean", "POST", this::handleClean, true);
+        route("/analyze", "POST", this::handleAnalyze, true);
+        route("/analyze", "GET", this::handleAnalyzeOne, true);
+        route("/metrics", "GET", this::handleMetrics, false);
+        route("/health", "GET", exchange -> sendJson(exchange, 200, Map.of("status", "ok")), false);
+        server.start();
+        return this;
+    }
+
+    /**
+     * Port the server listens on, useful when it was started on port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+        analyzeBatcher.close();
+    }
+
+    /**
+     * Registers a handler for one method of a path. Limited handlers count against the
+     * concurrent request limit and have their latency recorded.
+     */
+    private void route(String path, String method, HttpHandler handler, boolean limited) {
+        EndpointMetrics endpoint = limited ? metrics.computeIfAbsent(method + " " + path, key -> new EndpointMetrics())
+            : null;
+        Map<String, HttpHandler> byMethod = routes.computeIfAbsent(path, key -> {
+            Map<String, HttpHandler> handlers = new HashMap<>();
+            server.createContext(path, exchange -> dispatch(exchange, path, handlers));
+            return handlers;
+        });
+        byMethod.put(method, exchange -> {
+            if (endpoint == null) {
+                handler.handle(exchange);
+                return;
+            }
+            if (!requestSlots.tryAcquire()) {
+                endpoint.rejected.incrementAndGet();
+                sendBusy(exchange);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+            } catch (RejectedExecutionException e) {
+                endpoint.rejected.incrementAndGet();
+                sendBusy(exchange);
+                return;
+            } finally {
+                requestSlots.release();
+            }
+            endpoint.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private void dispatch(HttpExchange exchange, String path, Map<String, HttpHandler> handlers) {
+        try {
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            HttpHandler handler = handlers.get(exchange.getRequestMethod());
+            if (handler == null) {
+                exchange.getResponseHeaders().set("Allow", String.join(", ", handlers.keySet()));
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException e) {
+            // The client went away; nothing left to answer
+        } catch (RuntimeException e) {
+            System.err.println("Request to " + path + " failed: " + e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleClean(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+        String steps = query.get("steps");
+        List<CleaningStep> stepList = steps == null ? DEFAULT_STEPS : CleaningStep.parseList(steps);
+        if (stepList.contains(CleaningStep.REMOVE_PREVIOUSLY_SEEN)) {
+            // The filter only makes sense when it is kept between runs, which requests do not do
+            throw new IllegalArgumentException("remove_previously_seen is not available over the API");
+        }
+        CleaningPipeline pipeline = CleaningPipeline.of(stepList);
+
+        EmailDataset.Builder builder = EmailDataset.builder();
+        BufferedReader reader = bodyReader(exchange);
+        String email;
+        while ((email = Ndjson.readEmail(reader)) != null) {
+            builder.add(email);
+        }
+        EmailDataset cleaned = cleaningService.clean(builder.build(), pipeline);
+        if (Boolean.parseBoolean(query.get("checkDomains"))) {
+            cleaned = cleaningService.removeNonExistentDomains(cleaned);
+        }
+
+        try (Writer out = startNdjson(exchange)) {
+            Map<String, String> reasons = new HashMap<>();
+            for (int i = 0; i < cleaned.size(); i++) {
+                out.write("{\"email\":");
+                out.write(Ndjson.GSON.toJson(cleaned.getEmail(i)));
+                if (cleaned.getStatus(i) == EmailDataset.Status.ACTIVE) {
+                    out.write(",\"status\":\"active\"}\n");
+                } else {
+                    out.write(",\"status\":\"removed\",\"reason\":");
+                    out.write(reasons.computeIfAbsent(cleaned.getReason(i), Ndjson.GSON::toJson));
+                    out.write("}\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits the body in batch-sized chunks as it is read and writes the profiles of
+     * each chunk, in order, as soon as they are ready. Once profiles were sent a failure
+     * can no longer change the status, so it ends the body with an {@code {"error":...}}
+     * line instead, telling the client that profiles are missing.
+     */
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        BufferedReader reader = bodyReader(exchange);
+        Deque<CompletableFuture<List<EmailIntelligenceProfile>>> inFlight = new ArrayDeque<>();
+        Writer out = null;
+        try {
+            try {
+                List<String> chunk = new ArrayList<>(options.getMaxBatchSize());
+                boolean more = true;
+                while (more) {
+                    String email = Ndjson.readEmail(reader);
+                    more = email != null;
+                    if (more) {
+                        chunk.add(email);
+                    }
+                    if (!chunk.isEmpty() && (!more || chunk.size() == options.getMaxBatchSize())) {
+                        inFlight.add(analyzeBatcher.submit(chunk, ADMISSION_WAIT));
+                        chunk = new ArrayList<>(options.getMaxBatchSize());
+                    }
+                    while (!inFlight.isEmpty() && (inFlight.peek().isDone() || !more)) {
+                        List<EmailIntelligenceProfile> profiles = inFlight.poll().join();
+                        if (out == null) {
+                            out = startNdjson(exchange);
+                        }
+                        for (EmailIntelligenceProfile profile : profiles) {
+                            out.write(Ndjson.GSON.toJson(profile));
+                            out.write('\n');
+                        }
+                    }
+                }
+                if (out == null) {
+                    out = startNdjson(exchange);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for the batcher");
+            } catch (CompletionException e) {
+                throw analysisFailure(e.getCause());
+            }
+        } catch (RuntimeException e) {
+            if (out != null) {
+                out.write(Ndjson.GSON.toJson(Map.of("error", errorMessage(e))));
+                out.write('\n');
+            }
+            throw e;
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * The message a failed request answers with, as chosen by the dispatcher
+     */
+    private static String errorMessage(RuntimeException e) {
+        if (e instanceof RejectedExecutionException) {
+            return "Server busy, retry later";
+        }
+        return e instanceof IllegalArgumentException ? e.getMessage() : "Internal error";
+    }
+
+    private void handleAnalyzeOne(HttpExchange exchange) throws IOException {
+        String email = parseQuery(exchange).get("email");
+        if (email == null || email.isEmpty()) {
+            throw new IllegalArgumentException("Missing email parameter");
+        }
+        try {
+            sendJson(exchange, 200, intelligenceService.analyzeEmail(email).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while analyzing");
+        } catch (ExecutionException e) {
+            throw analysisFailure(e.getCause());
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        metrics.forEach((endpoint, values) -> body.put(endpoint, values.toMap()));
+        body.put("pendingEmails", analyzeBatcher.getPendingCount());
+        body.put("activeRequests", options.getMaxConcurrentRequests() - requestSlots.availablePermits());
+        extraMetrics.forEach((name, values) -> body.put(name, values.get()));
+        sendJson(exchange, 200, body);
+    }
+
+    private static RuntimeException analysisFailure(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return (RejectedExecutionException) cause;
+        }
+        return new IllegalStateException("Analysis failed: " + cause, cause);
+    }
+
+    private static BufferedReader bodyReader(HttpExchange exchange) {
+        return new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a 200 header for a streamed body of unknown length
+     */
+    private static Writer startNdjson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", Ndjson.CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+            OUTPUT_BUFFER_CHARS);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Ndjson.GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendBusy(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, "Server busy, retry later");
+    }
+
+    /**
+     * Answers with an error, unless a response was already started
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            sendJson(exchange, status, Map.of("error", message));
+        } catch (IOException e) {
+            // The client went away; nothing left to answer
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+     * Request counters of one endpoint
+     */
+    private static final class EndpointMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong rejected = new AtomicLong();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", latency.getCount());
+            values.put("rejected", rejected.get());
+            values.put("meanMs", latency.getMeanMicros() / 1000.0);
+            values.put("p50Ms", latency.getPercentileMicros(0.50) / 1000.0);
+            values.put("p90Ms", latency.getPercentileMicros(0.90) / 1000.0);
+            values.put("p99Ms", latency.getPercentileMicros(0.99) / 1000.0);
+            values.put("maxMs", latency.getMaxMicros() / 1000.0);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges items submitted by concurrent callers into batches for one shared handler call.
+ *
+ * <p>A single daemon thread takes the first waiting item, then keeps collecting until
+ * the batch is full or {@code maxDelay} has passed, and hands the batch to the handler.
+ * Each caller gets back only the results for its own items, in order. The number of
+ * items submitted and not yet answered is capped: once the cap is reached,
+ * {@link #submit} waits for room and gives up with a {@link RejectedExecutionException},
+ * which pushes the back-pressure out to the callers instead of queueing without bound.
+ *
+ * @param <I> Item type
+ * @param <O> Result type, one per item
+ */
+public final class MicroBatcher<I, O> implements AutoCloseable {
+
+    private final Function<List<I>, CompletableFuture<List<O>>> handler;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Semaphore capacity;
+    private final int maxPending;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    /**
+     * @param name Name of the batching thread
+     * @param handler Computes the results of a batch, in item order
+     * @param maxBatchSize Largest batch handed to the handler
+     * @param maxDelay How long the first item of a batch waits for others
+     * @param maxPending Items submitted and not yet answered, across all callers
+     */
+    public MicroBatcher(String name, Function<List<I>, CompletableFuture<List<O>>> handler,
+                        int maxBatchSize, Duration maxDelay, int maxPending) {
+        this.handler = handler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxPending = maxPending;
+        this.capacity = new Semaphore(maxPending);
+        this.flusher = new Thread(this::flushLoop, name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues items for the next batches, waiting up to {@code timeout} for room
+     *
+     * @return Results for the given items, in order
+     * @throws RejectedExecutionException if there was no room in time or the batcher is closed
+     */
+    public CompletableFuture<List<O>> submit(List<I> items, Duration timeout) throws InterruptedException {
+        if (items.size() > maxPending) {
+            throw new RejectedExecutionException("Batch of " + items.size() + " exceeds the limit of " + maxPending);
+        }
+        if (closed) {
+            throw new RejectedExecutionException("Batcher is closed");
+        }
+        if (!capacity.tryAcquire(items.size(), timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new RejectedExecutionException("Too many pending items");
+        }
+
+        List<CompletableFuture<O>> futures = new ArrayList<>(items.size());
+        for (I item : items) {
+            Pending<I, O> pending = new Pending<>(item);
+            futures.add(pending.result);
+            queue.add(pending);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> {
+                List<O> results = new ArrayList<>(futures.size());
+                for (CompletableFuture<O> future : futures) {
+                    results.add(future.join());
+                }
+                return results;
+            });
+    }
+
+    /**
+     * Items submitted and not yet answered
+     */
+    public int getPendingCount() {
+        return maxPending - capacity.availablePermits();
+    }
+
+    /**
+     * Stops batching; items still queued fail with a {@link RejectedExecutionException}
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flusher.interrupt();
+        List<Pending<I, O>> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, new RejectedExecutionException("Batcher is closed"));
+    }
+
+    private void flushLoop() {
+        List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long left = deadline - System.nanoTime();
+                    Pending<I, O> next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        } catch (InterruptedException e) {
+            fail(batch, new RejectedExecutionException("Batcher is closed"));
+        }
+    }
+
+    private void dispatch(List<Pending<I, O>> batch) {
+        List<I> items = new ArrayList<>(batch.size());
+        for (Pending<I, O> pending : batch) {
+            items.add(pending.item);
+        }
+
+        CompletableFuture<List<O>> results;
+        try {
+            results = handler.apply(items);
+        } catch (RuntimeException e) {
+            results = CompletableFuture.failedFuture(e);
+        }
+        results.whenComplete((values, error) -> {
+            if (error == null && values.size() != batch.size()) {
+                error = new IllegalStateException("Expected " + batch.size() + " results, got " + values.size());
+            }
+            if (error != null) {
+                fail(batch, error);
+                return;
+            }
+            capacity.release(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(values.get(i));
+            }
+        });
+    }
+
+    private void fail(List<Pending<I, O>> batch, Throwable error) {
+        capacity.release(batch.size());
+        for (Pending<I, O> pending : batch) {
+            pending.result.completeExceptionally(error);
+        }
+    }
+
+    private static final class Pending<I, O> {
+        final I item;
+        final CompletableFuture<O> result = new CompletableFuture<>();
+
+        Pending(I item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+/**
+ * Reading and writing newline-delimited JSON, one value per line
+ */
+final class Ndjson {
+
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    static final Gson GSON = new GsonBuilder()
+        .disableHtmlEscaping()
+        .registerTypeAdapter(LocalDateTime.class,
+            (JsonSerializer<LocalDateTime>) (value, type, context) -> new JsonPrimitive(value.toString()))
+        .create();
+
+    private Ndjson() {
+    }
+
+    /**
+     * Reads the next email from the body, skipping blank lines. A line may be a JSON
+     * string, an object with an {@code email} field, or the bare address.
+     *
+     * @return The email, or null at the end of the body
+     * @throws IllegalArgumentException if a line is not valid JSON or has no email
+     */
+    static String readEmail(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String value = line.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (value.charAt(0) != '"' && value.charAt(0) != '{') {
+                return value;
+            }
+            try {
+                JsonElement element = JsonParser.parseString(value);
+                if (element.isJsonObject()) {
+                    element = element.getAsJsonObject().get("email");
+                }
+                if (element == null || !element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString()) {
+                    throw new IllegalArgumentException("No email in line: " + value);
+                }
+                return element.getAsString();
+            } catch (JsonParseException e) {
+                throw new IllegalArgumentException("Invalid JSON line: " + value);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package server;
+
+import java.time.Duration;
+
+/**
+ * Listening address and limits of an {@link ApiServer}.
+ * Options are immutable; the {@code with} methods return modified copies.
+ */
+public final class ServerOptions {
+
+    private static final ServerOptions DEFAULTS = new ServerOptions("127.0.0.1", 8085, 32, 64,
+        Duration.ofMillis(5), 4_096);
+
+    private final String host;
+    private final int port;
+    private final int maxConcurrentRequests;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final int maxPendingEmails;
+
+    private ServerOptions(String host, int port, int maxConcurrentRequests, int maxBatchSize,
+                          Duration maxBatchDelay, int maxPendingEmails) {
+        this.host = host;
+        this.port = port;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+        this.maxPendingEmails = maxPendingEmails;
+    }
+
+    /**
+     * Port 8085 on the loopback interface, 32 concurrent requests, batches of up to
+     * 64 emails collected for at most 5 ms, and 4,096 emails waiting for analysis
+     */
+    public static ServerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public ServerOptions withHost(String value) {
+        return new ServerOptions(value, port, maxConcurrentRequests, maxBatchSize, maxBatchDelay, maxPendingEmails);
+    }
+
+    /**
+     * Port to listen on; 0 picks a free one
+     */
+    public ServerOptions withPort(int value) {
+        return new ServerOptions(host, value, maxConcurrentRequests, maxBatchSize, maxBatchDelay, maxPendingEmails);
+    }
+
+    /**
+     * Requests handled at once; further requests are answered with 503
+     */
+    public ServerOptions withMaxConcurrentRequests(int value) {
+        return new ServerOptions(host, port, value, maxBatchSize, maxBatchDelay, maxPendingEmails);
+    }
+
+    public ServerOptions withMaxBatchSize(int value) {
+        return new ServerOptions(host, port, maxConcurrentRequests, value, maxBatchDelay, maxPendingEmails);
+    }
+
+    /**
+     * How long the first email of a batch waits for others to join it
+     */
+    public ServerOptions withMaxBatchDelay(Duration value) {
+        return new ServerOptions(host, port, maxConcurrentRequests, maxBatchSize, value, maxPendingEmails);
+    }
+
+    /**
+     * Emails submitted for analysis and not yet answered, across all requests
+     */
+    public ServerOptions withMaxPendingEmails(int value) {
+        return new ServerOptions(host, port, maxConcurrentRequests, maxBatchSize, maxBatchDelay, value);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public Duration getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    public int getMaxPendingEmails() {
+        return maxPendingEmails;
+    }
+}
@@ -0,0 +1,446 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import services.dedup.SeenSet;
+
+/**
+ * An ordered set of {@link CleaningStep}s fused into a single pass over the input.
+ * Each email flows through every stage before the next email is read, so the list
+ * is walked once and only the surviving emails are copied.
+ *
+ * <p>Applying the pipeline gives the same result as calling the matching
+ * {@link EmailCleaningService} methods one after another, except that null
+ * entries are always removed by the first stage.
+ *
+ * <pre>
+ * CleaningPipeline pipeline = CleaningPipeline.of(
+ *     CleaningStep.REMOVE_EMPTY_LINES, CleaningStep.TRIM_AND_NORMALIZE, CleaningStep.REMOVE_DUPLICATES);
+ * CleaningResult result = pipeline.run(emails);
+ * </pre>
+ */
+public final class CleaningPipeline {
+
+    // Rows processed between two progress updates in sequential runs
+    private static final int PROGRESS_BATCH = 4_096;
+
+    private final List<CleaningStep> steps;
+    private final CleaningRules rules;
+
+    private CleaningPipeline(List<CleaningStep> steps, CleaningRules rules) {
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.rules = rules;
+    }
+
+    public static CleaningPipeline of(CleaningStep... steps) {
+        return new CleaningPipeline(Arrays.asList(steps), CleaningRules.defaults());
+    }
+
+    public static CleaningPipeline of(List<CleaningStep> steps) {
+        return new CleaningPipeline(steps, CleaningRules.defaults());
+    }
+
+    /**
+     * Returns a copy of this pipeline whose stages consult the given rules
+     */
+    public CleaningPipeline withRules(CleaningRules rules) {
+        return new CleaningPipeline(steps, rules);
+    }
+
+    /**
+     * Returns a new pipeline with the given step appended.
+     */
+    public CleaningPipeline then(CleaningStep step) {
+        List<CleaningStep> extended = new ArrayList<>(steps);
+        extended.add(step);
+        return new CleaningPipeline(extended, rules);
+    }
+
+    public List<CleaningStep> getSteps() {
+        return steps;
+    }
+
+    public CleaningRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Starts a new run. The session carries the state of stateful stages and the
+     * per-stage removal counters, so it must only be used by one thread.
+     */
+    public Session newSession() {
+        return new Session(steps, rules);
+    }
+
+    /**
+     * Runs all emails through the pipeline in one pass.
+     *
+     * @param emails Emails to clean
+     * @return The surviving emails together with per-stage removal counts
+     */
+    public CleaningResult run(Iterable<String> emails) {
+        List<String> cleaned = emails instanceof Collection
+            ? new ArrayList<>(((Collection<String>) emails).size())
+            : new ArrayList<>();
+        Session session = newSession();
+        for (String email : emails) {
+            String result = session.apply(email);
+            if (result != null) {
+                cleaned.add(result);
+            }
+        }
+        return session.toResult(cleaned);
+    }
+
+    /**
+     * Runs the pipeline on a fork/join pool. The list is split into chunks and
+     * consecutive stateless steps are fused and applied chunk by chunk in parallel.
+     * {@link CleaningStep#REMOVE_DUPLICATES} is resolved with a concurrent map of
+     * first-occurrence indexes, so exactly the first occurrence of each email is kept;
+     * lists too large for such a map run that step in order through its off-heap stage.
+     * Survivors are returned in their original order, with the same result as {@link #run}.
+     *
+     * @param emails Emails to clean
+     * @param pool Pool executing the chunks
+     * @param chunkSize Number of emails handled by one task
+     */
+    public CleaningResult runParallel(List<String> emails, ForkJoinPool pool, int chunkSize) {
+        String[] values = emails.toArray(new String[0]);
+        AtomicIntegerArray removed = applyParallel(values, null, ProgressTracker.NONE, pool, chunkSize);
+
+        List<String> cleaned = new ArrayList<>();
+        for (String value : values) {
+            if (value != null) {
+                cleaned.add(value);
+            }
+        }
+
+        int total = 0;
+        Map<CleaningStep, Integer> counts = new EnumMap<>(CleaningStep.class);
+        for (int i = 0; i < steps.size(); i++) {
+            total += removed.get(i);
+            counts.merge(steps.get(i), removed.get(i), Integer::sum);
+        }
+        return new CleaningResult(cleaned, total, counts);
+    }
+
+    /**
+     * Runs the active emails of the dataset through the pipeline in one pass.
+     * Survivors stay active with their cleaned value; removed emails keep their
+     * input value and the display name of the step that removed them as reason.
+     */
+    public EmailDataset run(EmailDataset dataset) {
+        return run(dataset, ProgressTracker.NONE);
+    }
+
+    /**
+     * Same as {@link #run(EmailDataset)}, advancing the tracker by the active rows processed
+     */
+    public EmailDataset run(EmailDataset dataset, ProgressTracker progress) {
+        EmailDataset.Builder builder = EmailDataset.builder();
+        Session session = newSession();
+        int pending = 0;
+        for (int row = 0; row < dataset.size(); row++) {
+            if (dataset.getStatus(row) == EmailDataset.Status.REMOVED) {
+                builder.copyRow(dataset, row);
+                continue;
+            }
+            if (++pending == PROGRESS_BATCH) {
+                progress.advance(pending);
+                pending = 0;
+            }
+            String email = dataset.getEmail(row);
+            String result = session.apply(email);
+            if (result != null) {
+                builder.add(result);
+            } else {
+                builder.addRemoved(email, session.getLastRemovedBy().getDisplayName());
+            }
+        }
+        progress.advance(pending);
+        return builder.build();
+    }
+
+    /**
+     * Same result as {@link #run(EmailDataset)}, computed like {@link #runParallel(List, ForkJoinPool, int)}
+     */
+    public EmailDataset runParallel(EmailDataset dataset, ForkJoinPool pool, int chunkSize) {
+        return runParallel(dataset, pool, chunkSize, ProgressTracker.NONE);
+    }
+
+    /**
+     * Same as {@link #runParallel(EmailDataset, ForkJoinPool, int)}. Rows are counted once
+     * per pass over the list, and the tracker's total is set to rows times passes.
+     */
+    public EmailDataset runParallel(EmailDataset dataset, ForkJoinPool pool, int chunkSize, ProgressTracker progress) {
+        List<String> active = dataset.activeView();
+        String[] values = active.toArray(new String[0]);
+        int[] removedBy = new int[values.length];
+        progress.setTotalWork((long) values.length * countPasses());
+        applyParallel(values, removedBy, progress, pool, chunkSize);
+
+        EmailDataset.Builder builder = EmailDataset.builder();
+        int next = 0;
+        for (int row = 0; row < dataset.size(); row++) {
+            if (dataset.getStatus(row) == EmailDataset.Status.REMOVED) {
+                builder.copyRow(dataset, row);
+                continue;
+            }
+            int i = next++;
+            if (values[i] != null) {
+                builder.add(values[i]);
+            } else {
+                builder.addRemoved(active.get(i), steps.get(removedBy[i]).getDisplayName());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Applies every step to the values in place, setting removed values to null
+     *
+     * @param removedBy Receives the index of the step that removed each value, or null
+     * @return Number of values removed by each step
+     */
+    private AtomicIntegerArray applyParallel(String[] values, int[] removedBy, ProgressTracker progress,
+                                             ForkJoinPool pool, int chunkSize) {
+        AtomicIntegerArray removed = new AtomicIntegerArray(steps.size());
+
+        if (!steps.isEmpty()) {
+            int nulls = 0;
+            for (String value : values) {
+                if (value == null) {
+                    nulls++;
+                }
+            }
+            removed.addAndGet(0, nulls);
+        }
+
+        int from = 0;
+        while (from < steps.size()) {
+            if (!steps.get(from).isStateless()) {
+                if (steps.get(from) == CleaningStep.REMOVE_DUPLICATES && values.length <= SeenSet.DEFAULT_HEAP_LIMIT) {
+                    deduplicateParallel(values, removedBy, from, removed, pool, chunkSize);
+                } else {
+                    applySequential(values, removedBy, from, removed);
+                }
+                progress.advance(values.length);
+                from++;
+                continue;
+            }
+            int to = from;
+            while (to < steps.size() && steps.get(to).isStateless()) {
+                to++;
+            }
+            int segmentStart = from;
+            int segmentEnd = to;
+            pool.invoke(new ChunkTask(0, values.length, chunkSize, (start, end) -> {
+                CleaningStage[] stages = new CleaningStage[segmentEnd - segmentStart];
+                for (int s = 0; s < stages.length; s++) {
+                    stages[s] = steps.get(segmentStart + s).createStage(rules);
+                }
+                int[] chunkRemoved = new int[stages.length];
+                for (int i = start; i < end; i++) {
+                    String value = values[i];
+                    if (value == null) {
+                        continue;
+                    }
+                    for (int s = 0; s < stages.length && value != null; s++) {
+                        value = stages[s].apply(value);
+                        if (value == null) {
+                            chunkRemoved[s]++;
+                            markRemoved(removedBy, i, segmentStart + s);
+                        }
+                    }
+                    values[i] = value;
+                }
+                for (int s = 0; s < chunkRemoved.length; s++) {
+                    removed.addAndGet(segmentStart + s, chunkRemoved[s]);
+                }
+                progress.advance(end - start);
+            }));
+            from = to;
+        }
+        return removed;
+    }
+
+    /**
+     * Passes {@link #applyParallel} makes over the values: one per stateful step
+     * and one per run of consecutive stateless steps
+     */
+    private int countPasses() {
+        int passes = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            if (!steps.get(i).isStateless() || i == 0 || !steps.get(i - 1).isStateless()) {
+                passes++;
+            }
+        }
+        return passes;
+    }
+
+    private static void markRemoved(int[] removedBy, int index, int stepIndex) {
+        if (removedBy != null) {
+            removedBy[index] = stepIndex;
+        }
+    }
+
+    /**
+     * Keeps only the first occurrence of each value: one parallel pass records the
+     * lowest index per value, a second pass clears every other index.
+     */
+    private static void deduplicateParallel(String[] values, int[] removedBy, int stepIndex,
+                                            AtomicIntegerArray removed, ForkJoinPool pool, int chunkSize) {
+        ConcurrentHashMap<String, Integer> firstIndex = new ConcurrentHashMap<>();
+        pool.invoke(new ChunkTask(0, values.length, chunkSize, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                if (values[i] != null) {
+                    firstIndex.merge(values[i], i, Math::min);
+                }
+            }
+        }));
+        pool.invoke(new ChunkTask(0, values.length, chunkSize, (start, end) -> {
+            int chunkRemoved = 0;
+            for (int i = start; i < end; i++) {
+                if (values[i] != null && firstIndex.get(values[i]) != i) {
+                    values[i] = null;
+                    chunkRemoved++;
+                    markRemoved(removedBy, i, stepIndex);
+                }
+            }
+            removed.addAndGet(stepIndex, chunkRemoved);
+        }));
+    }
+
+    /**
+     * Applies a stateful step in input order on the calling thread
+     */
+    private void applySequential(String[] values, int[] removedBy, int stepIndex, AtomicIntegerArray removed) {
+        CleaningStage stage = steps.get(stepIndex).createStage(rules);
+        int stepRemoved = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                values[i] = stage.apply(values[i]);
+                if (values[i] == null) {
+                    stepRemoved++;
+                    markRemoved(removedBy, i, stepIndex);
+                }
+            }
+        }
+        removed.addAndGet(stepIndex, stepRemoved);
+    }
+
+    /**
+     * Work applied to the index range [start, end) of one chunk
+     */
+    private interface ChunkWork {
+        void process(int start, int end);
+    }
+
+    /**
+     * Splits an index range in halves until it fits in one chunk
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+        private final ChunkWork work;
+
+        ChunkTask(int start, int end, int chunkSize, ChunkWork work) {
+            this.start = start;
+            this.end = end;
+            this.chunkSize = Math.max(1, chunkSize);
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= chunkSize) {
+                work.process(start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new ChunkTask(start, mid, chunkSize, work), new ChunkTask(mid, end, chunkSize, work));
+        }
+    }
+
+    /**
+     * A single run of the pipeline. Emails are pushed one at a time, which lets
+     * callers stream input of any size through the stages.
+     */
+    public static final class Session {
+        private final CleaningStep[] steps;
+        private final CleaningStage[] stages;
+        private final int[] removed;
+        private int processed;
+        private int lastRemovedBy = -1;
+
+        private Session(List<CleaningStep> steps, CleaningRules rules) {
+            this.steps = steps.toArray(new CleaningStep[0]);
+            this.stages = new CleaningStage[this.steps.length];
+            for (int i = 0; i < this.steps.length; i++) {
+                stages[i] = this.steps[i].createStage(rules);
+            }
+            this.removed = new int[this.steps.length];
+        }
+
+        /**
+         * Pushes one email through every stage.
+         *
+         * @return The cleaned email, or null if a stage removed it
+         */
+        public String apply(String email) {
+            processed++;
+            String value = email;
+            for (int i = 0; i < stages.length; i++) {
+                value = value == null ? null : stages[i].apply(value);
+                if (value == null) {
+                    removed[i]++;
+                    lastRemovedBy = i;
+                    return null;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * @return The step that removed the most recent email, or null if none was removed yet
+         */
+        public CleaningStep getLastRemovedBy() {
+            return lastRemovedBy < 0 ? null : steps[lastRemovedBy];
+        }
+
+        public int getProcessedCount() {
+            return processed;
+        }
+
+        public int getRemovedCount() {
+            int total = 0;
+            for (int count : removed) {
+                total += count;
+            }
+            return total;
+        }
+
+        public Map<CleaningStep, Integer> getRemovedCounts() {
+            Map<CleaningStep, Integer> counts = new EnumMap<>(CleaningStep.class);
+            for (int i = 0; i < steps.length; i++) {
+                counts.merge(steps[i], removed[i], Integer::sum);
+            }
+            return counts;
+        }
+
+        public CleaningResult toResult(List<String> cleanedEmails) {
+            return new CleaningResult(cleanedEmails, getRemovedCount(), getRemovedCounts());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package services;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Result object to hold both cleaned emails and the count of removed items
@@ -8,17 +10,34 @@ import java.util.List;
 public class CleaningResult {
     private final List<String> cleanedEmails;
     private final int removedCount;
-    
+    private final Map<CleaningStep, Integer> removedCounts;
+
     public CleaningResult(List<String> cleanedEmails, int removedCount) {
+        this(cleanedEmails, removedCount, Collections.emptyMap());
+    }
+
+    public CleaningResult(List<String> cleanedEmails, int removedCount, Map<CleaningStep, Integer> removedCounts) {
         this.cleanedEmails = cleanedEmails;
         this.removedCount = removedCount;
+        this.removedCounts = Collections.unmodifiableMap(removedCounts);
     }
-    
+
     public List<String> getCleanedEmails() {
         return cleanedEmails;
     }
-    
+
     public int getRemovedCount() {
         return removedCount;
     }
+
+    /**
+     * Number of emails removed by each step, for results produced by a {@link CleaningPipeline}
+     */
+    public Map<CleaningStep, Integer> getRemovedCounts() {
+        return removedCounts;
+    }
+
+    public int getRemovedCount(CleaningStep step) {
+        return removedCounts.getOrDefault(step, 0);
+    }
 }
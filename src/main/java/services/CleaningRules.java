@@ -0,0 +1,98 @@
+package services;
+
+import services.dedup.ScalableBloomFilter;
+
+/**
+ * Reference data used by the cleaning stages, such as the disposable domain list,
+ * the registered TLDs, the known role, admin and bot local parts and the provider
+ * canonicalization rules.
+ * Rules are immutable and shared by every stage created for a pipeline run; the only
+ * exception is the seen-email filter, which {@link CleaningStep#REMOVE_PREVIOUSLY_SEEN}
+ * updates as emails pass.
+ */
+public final class CleaningRules {
+
+    private static final CleaningRules DEFAULTS = new CleaningRules(null, null, LocalPartClassifier.defaults(), null, null);
+
+    private final DisposableDomainIndex disposableDomains;
+    private final TldRegistry tldRegistry;
+    private final LocalPartClassifier localPartClassifier;
+    private final ScalableBloomFilter seenFilter;
+    private final EmailCanonicalizer canonicalizer;
+
+    private CleaningRules(DisposableDomainIndex disposableDomains, TldRegistry tldRegistry,
+                          LocalPartClassifier localPartClassifier, ScalableBloomFilter seenFilter,
+                          EmailCanonicalizer canonicalizer) {
+        this.disposableDomains = disposableDomains;
+        this.tldRegistry = tldRegistry;
+        this.localPartClassifier = localPartClassifier;
+        this.seenFilter = seenFilter;
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Rules backed by the shared default data, which is loaded on first use
+     */
+    public static CleaningRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy of these rules using the given disposable domain index
+     */
+    public CleaningRules withDisposableDomains(DisposableDomainIndex index) {
+        return new CleaningRules(index, tldRegistry, localPartClassifier, seenFilter, canonicalizer);
+    }
+
+    /**
+     * Returns a copy of these rules using the given TLD registry
+     */
+    public CleaningRules withTldRegistry(TldRegistry registry) {
+        return new CleaningRules(disposableDomains, registry, localPartClassifier, seenFilter, canonicalizer);
+    }
+
+    /**
+     * Returns a copy of these rules using the given local part classifier
+     */
+    public CleaningRules withLocalPartClassifier(LocalPartClassifier classifier) {
+        return new CleaningRules(disposableDomains, tldRegistry, classifier, seenFilter, canonicalizer);
+    }
+
+    /**
+     * Returns a copy of these rules that remembers emails in the given filter,
+     * typically one loaded from disk so that it spans several imports
+     */
+    public CleaningRules withSeenFilter(ScalableBloomFilter filter) {
+        return new CleaningRules(disposableDomains, tldRegistry, localPartClassifier, filter, canonicalizer);
+    }
+
+    /**
+     * Returns a copy of these rules using the given provider canonicalizer
+     */
+    public CleaningRules withCanonicalizer(EmailCanonicalizer emailCanonicalizer) {
+        return new CleaningRules(disposableDomains, tldRegistry, localPartClassifier, seenFilter, emailCanonicalizer);
+    }
+
+    public DisposableDomainIndex getDisposableDomains() {
+        return disposableDomains != null ? disposableDomains : DisposableDomainIndex.getDefault();
+    }
+
+    public TldRegistry getTldRegistry() {
+        return tldRegistry != null ? tldRegistry : TldRegistry.getDefault();
+    }
+
+    public LocalPartClassifier getLocalPartClassifier() {
+        return localPartClassifier;
+    }
+
+    /**
+     * @return The seen-email filter, or null if each run starts with an empty one
+     */
+    public ScalableBloomFilter getSeenFilter() {
+        return seenFilter;
+    }
+
+    public EmailCanonicalizer getCanonicalizer() {
+        return canonicalizer != null ? canonicalizer : EmailCanonicalizer.getDefault();
+    }
+}
@@ -0,0 +1,18 @@
+package services;
+
+/**
+ * A single filter or transformation applied to one email inside a {@link CleaningPipeline}.
+ * Stages are created per pipeline run, so stateful stages (e.g. duplicate removal)
+ * never share state between runs.
+ */
+@FunctionalInterface
+public interface CleaningStage {
+
+    /**
+     * Applies this stage to one email.
+     *
+     * @param email Email to process (never null)
+     * @return The email to pass to the next stage, or null if the email is removed
+     */
+    String apply(String email);
+}
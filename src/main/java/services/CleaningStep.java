@@ -0,0 +1,284 @@
+package services;
+
+import services.dedup.ScalableBloomFilter;
+import services.dedup.SeenSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The cleaning filters offered by {@link EmailCleaningService}, expressed as
+ * per-email stages so they can be fused into a single {@link CleaningPipeline} pass.
+ */
+public enum CleaningStep {
+
+    /**
+     * Keeps the first occurrence of each email. Large inputs are remembered as hashes
+     * off the heap; see {@link SeenSet}.
+     */
+    REMOVE_DUPLICATES("Duplicates") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            SeenSet seen = new SeenSet();
+            return email -> seen.add(email) ? email : null;
+        }
+
+        @Override
+        public boolean isStateless() {
+            return false;
+        }
+    },
+
+    /**
+     * Probabilistic deduplication against every email seen in earlier runs, kept in the
+     * rules' seen filter ({@link CleaningRules#withSeenFilter}), which the caller loads
+     * and saves. A small, configurable share of new emails is wrongly removed; see
+     * {@link ScalableBloomFilter}. Within one run {@link #REMOVE_DUPLICATES} is exact.
+     *
+     * @throws IllegalStateException from {@link #createStage} if the rules carry no filter
+     */
+    REMOVE_PREVIOUSLY_SEEN("Previously seen") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            ScalableBloomFilter filter = rules.getSeenFilter();
+            if (filter == null) {
+                throw new IllegalStateException("REMOVE_PREVIOUSLY_SEEN needs a seen filter in the cleaning rules");
+            }
+            return email -> filter.add(email) ? email : null;
+        }
+
+        @Override
+        public boolean isStateless() {
+            return false;
+        }
+    },
+
+    /**
+     * Keeps the first email of each mailbox: addresses that differ only by case,
+     * provider aliases, Gmail dots or plus-tags count as duplicates. Survivors keep
+     * their original spelling.
+     */
+    REMOVE_CANONICAL_DUPLICATES("Canonical duplicates") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            EmailCanonicalizer canonicalizer = rules.getCanonicalizer();
+            SeenSet seen = new SeenSet();
+            return email -> seen.add(canonicalizer.canonicalize(email)) ? email : null;
+        }
+
+        @Override
+        public boolean isStateless() {
+            return false;
+        }
+    },
+
+    REMOVE_EMPTY_LINES("Empty lines") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> isBlank(email) ? null : email;
+        }
+    },
+
+    TRIM_AND_NORMALIZE("Normalization") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return CleaningStep::normalize;
+        }
+    },
+
+    REMOVE_EMAILS_WITHOUT_AT("Missing @") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> email.indexOf('@') >= 0 ? email : null;
+        }
+    },
+
+    REMOVE_EMAILS_WITH_MULTIPLE_AT("Multiple @") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> EmailSyntaxValidator.hasSingleAt(email) ? email : null;
+        }
+    },
+
+    REMOVE_INVALID_CHARACTERS("Invalid characters") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> EmailSyntaxValidator.hasValidCharacters(email) ? email : null;
+        }
+    },
+
+    REMOVE_INVALID_DOMAIN_FORMAT("Invalid domain format") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> EmailSyntaxValidator.hasValidDomainFormat(email) ? email : null;
+        }
+    },
+
+    REMOVE_TOO_SHORT_OR_TOO_LONG("Invalid length") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> EmailSyntaxValidator.hasValidLength(email) ? email : null;
+        }
+    },
+
+    REMOVE_ROLE_BASED("Role-based") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            LocalPartClassifier classifier = rules.getLocalPartClassifier();
+            return email -> classifier.classify(email) == LocalPartClassifier.Category.ROLE ? null : email;
+        }
+    },
+
+    REMOVE_ADMIN_OR_BOT("Admin/bot") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            LocalPartClassifier classifier = rules.getLocalPartClassifier();
+            return email -> {
+                LocalPartClassifier.Category category = classifier.classify(email);
+                return category == LocalPartClassifier.Category.ADMIN
+                    || category == LocalPartClassifier.Category.BOT ? null : email;
+            };
+        }
+    },
+
+    /**
+     * Same result as {@link #REMOVE_ROLE_BASED} followed by {@link #REMOVE_ADMIN_OR_BOT},
+     * with a single classification per email.
+     */
+    REMOVE_ROLE_BASED_ADMIN_OR_BOT("Role/admin/bot") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            LocalPartClassifier classifier = rules.getLocalPartClassifier();
+            return email -> classifier.classify(email) == LocalPartClassifier.Category.NONE ? email : null;
+        }
+    },
+
+    REMOVE_DISPOSABLE("Disposable") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            DisposableDomainIndex index = rules.getDisposableDomains();
+            return email -> index.isDisposable(email) ? null : email;
+        }
+    },
+
+    REMOVE_INVALID_OR_FAKE_TLDS("Invalid TLD") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            TldRegistry registry = rules.getTldRegistry();
+            return email -> registry.hasRegisteredTld(email) ? email : null;
+        }
+    },
+
+    /**
+     * Strict single-pass syntax check, see {@link EmailSyntaxValidator#validate(String)}
+     */
+    REMOVE_INVALID_SYNTAX("Invalid syntax") {
+        @Override
+        public CleaningStage createStage(CleaningRules rules) {
+            return email -> EmailSyntaxValidator.isValid(email) ? email : null;
+        }
+    };
+
+    private final String displayName;
+
+    CleaningStep(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Creates a fresh stage instance for one pipeline run.
+     *
+     * @param rules Reference data the stage may consult
+     */
+    public abstract CleaningStage createStage(CleaningRules rules);
+
+    /**
+     * Whether the stage decides on each email independently of the others.
+     * Stateless stages can be applied to chunks of a list in any order.
+     */
+    public boolean isStateless() {
+        return true;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Parses a comma-separated list of step names. Names are the enum constants,
+     * case-insensitive, with '-' or '_' between words.
+     *
+     * @throws IllegalArgumentException if a name is not a step
+     */
+    public static List<CleaningStep> parseList(String list) {
+        List<CleaningStep> steps = new ArrayList<>();
+        for (String name : list.split(",")) {
+            String constant = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            if (constant.isEmpty()) {
+                continue;
+            }
+            try {
+                steps.add(valueOf(constant));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown step: " + name.trim());
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Same result as {@code email.trim().isEmpty()} without allocating the trimmed copy.
+     */
+    private static boolean isBlank(String email) {
+        for (int i = 0; i < email.length(); i++) {
+            if (email.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same result as {@code email.trim().toLowerCase().replaceAll("\\s+", "")}, returning
+     * null for an empty result. Already normalized ASCII input is returned as-is.
+     */
+    private static String normalize(String email) {
+        int start = 0;
+        int end = email.length();
+        while (start < end && email.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && email.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        boolean unchanged = start == 0 && end == email.length();
+        for (int i = start; i < end && unchanged; i++) {
+            char c = email.charAt(i);
+            unchanged = c < 128 && !(c >= 'A' && c <= 'Z') && !isRegexWhitespace(c);
+        }
+        if (unchanged) {
+            return email;
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = email.charAt(i);
+            if (!isRegexWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase();
+    }
+
+    /**
+     * Matches the characters of the regex class {@code \s}: [ \t\n\x0B\f\r].
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,148 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set of disposable email domains, loaded once and queried without allocating.
+ *
+ * <p>Domains are kept in a {@link DomainHashTable} keyed by a hash computed
+ * from the last character backwards. A lookup walks the email's domain from the
+ * end once, probing the table at every label boundary, so {@code x.mailinator.com}
+ * matches a listed {@code mailinator.com} in O(domain length). Matching is
+ * case-insensitive.
+ */
+public final class DisposableDomainIndex {
+
+    private static final String BUNDLED_LIST = "/data/disposable-domains.txt";
+    private static final Path USER_LIST =
+        Paths.get(System.getProperty("user.home"), ".allinonechecker", "disposable-domains.txt");
+
+    private final DomainHashTable domains;
+
+    private DisposableDomainIndex(Collection<String> domains) {
+        this.domains = new DomainHashTable(domains);
+    }
+
+    public static DisposableDomainIndex of(Collection<String> domains) {
+        return new DisposableDomainIndex(domains);
+    }
+
+    /**
+     * Index of the list shipped with the application
+     */
+    public static DisposableDomainIndex loadBundled() {
+        List<String> domains = new ArrayList<>();
+        readBundled(domains);
+        return new DisposableDomainIndex(domains);
+    }
+
+    /**
+     * Index of the bundled list extended with a user-supplied list in the same format
+     * (one domain per line, '#' starts a comment).
+     */
+    public static DisposableDomainIndex loadBundledWith(Path userList) throws IOException {
+        List<String> domains = new ArrayList<>();
+        readBundled(domains);
+        try (Reader reader = Files.newBufferedReader(userList, StandardCharsets.UTF_8)) {
+            readDomains(reader, domains);
+        }
+        return new DisposableDomainIndex(domains);
+    }
+
+    /**
+     * Shared index of the bundled list plus {@code ~/.allinonechecker/disposable-domains.txt}
+     * if that file exists. Loaded on first use.
+     */
+    public static DisposableDomainIndex getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return Whether the domain after the last '@' is listed or a subdomain of a listed domain
+     */
+    public boolean isDisposable(String email) {
+        int atIndex = email.lastIndexOf('@');
+        return atIndex >= 0 && matches(email, atIndex + 1);
+    }
+
+    /**
+     * @return Whether the domain is listed or a subdomain of a listed domain
+     */
+    public boolean containsDomain(String domain) {
+        return matches(domain, 0);
+    }
+
+    public int size() {
+        return domains.size();
+    }
+
+    /**
+     * Checks the suffixes of {@code text} starting at {@code start} and at each '.' after it
+     */
+    private boolean matches(String text, int start) {
+        int end = text.length();
+        int hash = 0;
+        for (int i = end - 1; i >= start; i--) {
+            char c = text.charAt(i);
+            if (c == '.' && domains.contains(text, i + 1, end, hash)) {
+                return true;
+            }
+            hash = DomainHashTable.extend(hash, c);
+        }
+        return end > start && domains.contains(text, start, end, hash);
+    }
+
+    private static void readBundled(Collection<String> into) {
+        InputStream in = DisposableDomainIndex.class.getResourceAsStream(BUNDLED_LIST);
+        if (in == null) {
+            System.err.println("Bundled disposable domain list not found");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            readDomains(reader, into);
+        } catch (IOException e) {
+            System.err.println("Error reading bundled disposable domain list: " + e.getMessage());
+        }
+    }
+
+    private static void readDomains(Reader source, Collection<String> into) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String domain = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (domain.startsWith("@")) {
+                domain = domain.substring(1);
+            }
+            if (!domain.isEmpty()) {
+                into.add(domain);
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+        static final DisposableDomainIndex INSTANCE = loadDefault();
+
+        private static DisposableDomainIndex loadDefault() {
+            if (Files.isReadable(USER_LIST)) {
+                try {
+                    return loadBundledWith(USER_LIST);
+                } catch (IOException e) {
+                    System.err.println("Error reading disposable domain list: " + e.getMessage());
+                }
+            }
+            return loadBundled();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package services;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Case-insensitive set of domain names that can be probed with a character range
+ * of a larger string, so lookups need no substring or lower-case copy.
+ *
+ * <p>Entries live in an open-addressing table at most half full. The hash of a name
+ * is computed from its last character backwards with {@link #extend}, which lets
+ * callers hash every dot-separated suffix of a domain in a single backwards walk.
+ */
+final class DomainHashTable {
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final int mask;
+    private final int size;
+
+    DomainHashTable(Collection<String> names) {
+        int capacity = Integer.highestOneBit(Math.max(4, names.size() * 2 - 1)) << 1;
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        int count = 0;
+        for (String name : names) {
+            String key = name.trim().toLowerCase(Locale.ROOT);
+            if (!key.isEmpty() && insert(key)) {
+                count++;
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Adds the character preceding an already hashed suffix
+     */
+    static int extend(int hash, char c) {
+        return 31 * hash + lower(c);
+    }
+
+    static int hash(String text, int from, int to) {
+        int hash = 0;
+        for (int i = to - 1; i >= from; i--) {
+            hash = extend(hash, text.charAt(i));
+        }
+        return hash;
+    }
+
+    boolean contains(String text, int from, int to) {
+        return contains(text, from, to, hash(text, from, to));
+    }
+
+    /**
+     * @param hash {@link #hash} of the range, computed by the caller
+     */
+    boolean contains(String text, int from, int to, int hash) {
+        int length = to - from;
+        for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            String key = keys[slot];
+            if (hashes[slot] == hash && key.length() == length && key.regionMatches(true, 0, text, from, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean insert(String key) {
+        int hash = hash(key, 0, key.length());
+        int slot = spread(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char lower(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < 128 ? c : Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,193 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the canonical key of an email: the form under which a provider delivers it.
+ * {@code John.Doe+promo@googlemail.com} and {@code johndoe@gmail.com} share the key
+ * {@code johndoe@gmail.com}, so duplicates can be detected while the original
+ * address is kept for output.
+ *
+ * <p>Keys are lower-cased. Provider-specific rules (domain aliases, ignored dots,
+ * sub-address tags) come from a rule table; domains without a rule are only lower-cased.
+ */
+public final class EmailCanonicalizer {
+
+    private static final String BUNDLED_RULES = "/data/provider-rules.txt";
+    private static final Path USER_RULES =
+        Paths.get(System.getProperty("user.home"), ".allinonechecker", "provider-rules.txt");
+
+    private final Map<String, Rule> rules;
+
+    private EmailCanonicalizer(Map<String, Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Canonicalizer with the rules shipped with the application
+     */
+    public static EmailCanonicalizer loadBundled() {
+        Map<String, Rule> rules = new HashMap<>();
+        readBundled(rules);
+        return new EmailCanonicalizer(rules);
+    }
+
+    /**
+     * Canonicalizer with the bundled rules, extended and overridden by the rules in the file
+     */
+    public static EmailCanonicalizer loadBundledWith(Path userRules) throws IOException {
+        Map<String, Rule> rules = new HashMap<>();
+        readBundled(rules);
+        try (Reader reader = Files.newBufferedReader(userRules, StandardCharsets.UTF_8)) {
+            readRules(reader, rules);
+        }
+        return new EmailCanonicalizer(rules);
+    }
+
+    /**
+     * Canonicalizer with rules in the provider-rules format, without the bundled rules
+     */
+    public static EmailCanonicalizer parse(Reader source) throws IOException {
+        Map<String, Rule> rules = new HashMap<>();
+        readRules(source, rules);
+        return new EmailCanonicalizer(rules);
+    }
+
+    /**
+     * Shared canonicalizer with the bundled rules plus {@code ~/.allinonechecker/provider-rules.txt}
+     * if that file exists. Loaded on first use.
+     */
+    public static EmailCanonicalizer getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return The canonical key; the email itself if it is already canonical
+     */
+    public String canonicalize(String email) {
+        int at = email.lastIndexOf('@');
+        if (at < 0) {
+            return lowerCase(email);
+        }
+        String domain = lowerCase(email.substring(at + 1));
+        Rule rule = rules.get(domain);
+        if (rule == null) {
+            return lowerCase(email);
+        }
+
+        StringBuilder local = new StringBuilder(at);
+        for (int i = 0; i < at; i++) {
+            char c = email.charAt(i);
+            if (rule.tagSeparators.indexOf(c) >= 0 && local.length() > 0) {
+                break;
+            }
+            if (c != '.' || !rule.ignoreDots) {
+                local.append(c);
+            }
+        }
+        String key = lowerCase(local.toString()) + '@' + (rule.canonicalDomain != null ? rule.canonicalDomain : domain);
+        return key.equals(email) ? email : key;
+    }
+
+    /**
+     * Whether both emails have the same canonical key
+     */
+    public boolean isSameMailbox(String first, String second) {
+        return canonicalize(first).equals(canonicalize(second));
+    }
+
+    private static String lowerCase(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 128 || (c >= 'A' && c <= 'Z')) {
+                return value.toLowerCase(Locale.ROOT);
+            }
+        }
+        return value;
+    }
+
+    private static void readBundled(Map<String, Rule> into) {
+        InputStream in = EmailCanonicalizer.class.getResourceAsStream(BUNDLED_RULES);
+        if (in == null) {
+            System.err.println("Bundled provider rules not found");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            readRules(reader, into);
+        } catch (IOException e) {
+            System.err.println("Error reading bundled provider rules: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses lines of the form {@code domain [canonical=<domain>] [dots=ignore] [tags=<chars>]}
+     */
+    private static void readRules(Reader source, Map<String, Rule> into) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String content = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (content.isEmpty()) {
+                continue;
+            }
+            String[] parts = content.split("\\s+");
+            String canonicalDomain = null;
+            boolean ignoreDots = false;
+            String tagSeparators = "";
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i];
+                if (part.startsWith("canonical=")) {
+                    canonicalDomain = part.substring("canonical=".length()).toLowerCase(Locale.ROOT);
+                } else if (part.equals("dots=ignore")) {
+                    ignoreDots = true;
+                } else if (part.startsWith("tags=")) {
+                    tagSeparators = part.substring("tags=".length());
+                } else {
+                    throw new IOException("Unknown provider rule option '" + part + "' on line " + lineNumber);
+                }
+            }
+            into.put(parts[0].toLowerCase(Locale.ROOT), new Rule(canonicalDomain, ignoreDots, tagSeparators));
+        }
+    }
+
+    private static final class Rule {
+        final String canonicalDomain;
+        final boolean ignoreDots;
+        final String tagSeparators;
+
+        Rule(String canonicalDomain, boolean ignoreDots, String tagSeparators) {
+            this.canonicalDomain = canonicalDomain;
+            this.ignoreDots = ignoreDots;
+            this.tagSeparators = tagSeparators;
+        }
+    }
+
+    private static final class DefaultHolder {
+        static final EmailCanonicalizer INSTANCE = loadDefault();
+
+        private static EmailCanonicalizer loadDefault() {
+            if (Files.isReadable(USER_RULES)) {
+                try {
+                    return loadBundledWith(USER_RULES);
+                } catch (IOException e) {
+                    System.err.println("Error reading provider rules: " + e.getMessage());
+                }
+            }
+            return loadBundled();
+        }
+    }
+}
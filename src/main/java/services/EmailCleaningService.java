@@ -1,21 +1,91 @@
 package services;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
-import javafx.collections.ObservableList;
+import java.util.function.Consumer;
+import services.dedup.ScalableBloomFilter;
 
 /**
  * Service interface for email list cleaning, validation, and filtering operations.
  * Provides comprehensive email validation and cleaning functionality.
+ * Only plain Java types are used, so the service runs without JavaFX.
  */
 public interface EmailCleaningService {
 
     // ========== Import / Export Operations ==========
 
-    ObservableList<String> importData(File file);
+    /**
+     * Reads a whole file into memory, dropping blank lines and trimming the others.
+     *
+     * @param file File to read (UTF-8, one email per line)
+     * @return The imported emails; empty if the file is missing or unreadable
+     */
+    List<String> importData(File file);
+
+    /**
+     * Reads a file into a dataset, dropping blank lines and trimming the others.
+     *
+     * @param file File to read (UTF-8, one email per line)
+     * @param listener Progress callback reporting bytes and records read
+     * @return Dataset with every imported email active
+     */
+    EmailDataset importDataset(File file, ImportProgressListener listener) throws IOException;
+
+    /**
+     * Streams a file through the pipeline without loading it into memory.
+     * Only a bounded read buffer is held; each surviving line is handed to the sink.
+     * 
+     * @param file File to read (UTF-8, one email per line)
+     * @param pipeline Cleaning steps applied to every line
+     * @param sink Receives each cleaned email in file order
+     * @param listener Progress callback reporting bytes and records read
+     * @return Bytes, lines and per-step removal counts for the import
+     */
+    ImportStats importStreaming(File file, CleaningPipeline pipeline, Consumer<String> sink,
+                                ImportProgressListener listener) throws IOException;
+
+    /**
+     * Writes the dataset to disk on the calling thread, see {@link EmailExporter}
+     *
+     * @param dataset Rows to export
+     * @param file Target file, or the name pattern of the parts when the options split the output
+     * @param options Format, compression and split limits
+     * @param progress Tracker advanced by the rows written
+     * @return Rows, bytes and files written
+     */
+    ExportStats export(EmailDataset dataset, File file, ExportOptions options, ProgressTracker progress)
+        throws IOException;
+
+    // ========== Pipeline Cleaning ==========
+
+    /**
+     * Runs the emails through all steps of the pipeline in a single pass.
+     * 
+     * @param emails List of email addresses to process
+     * @param pipeline Ordered cleaning steps to apply
+     * @return Surviving emails with total and per-step removal counts
+     * 
+     * Example: CleaningPipeline.of(REMOVE_EMPTY_LINES, REMOVE_DUPLICATES) on ["a@b.com", "", "a@b.com"] → ["a@b.com"]
+     */
+    CleaningResult clean(List<String> emails, CleaningPipeline pipeline);
 
-    // ========== Remove Imported Data ==========
-    void removeDataImported();
+    /**
+     * Runs the active rows of the dataset through all steps of the pipeline in a single pass.
+     * The input is left unchanged; removed rows are marked with the step that removed them.
+     *
+     * @param dataset Emails to process
+     * @param pipeline Ordered cleaning steps to apply
+     * @return New dataset with the cleaned emails active and the others removed
+     */
+    EmailDataset clean(EmailDataset dataset, CleaningPipeline pipeline);
+
+    /**
+     * Same as {@link #clean(EmailDataset, CleaningPipeline)}, reporting the rows processed
+     *
+     * @param progress Tracker advanced as rows pass through the pipeline
+     */
+    EmailDataset clean(EmailDataset dataset, CleaningPipeline pipeline, ProgressTracker progress);
 
     // ========== Basic Cleaning Functions ==========
 
@@ -29,6 +99,31 @@ public interface EmailCleaningService {
      */
     List<String> removeDuplicates(List<String> emails);
 
+    /**
+     * Removes addresses that reach the same mailbox as an earlier one, using the
+     * provider rules (case, domain aliases, Gmail dots, plus-tags). The first
+     * occurrence is kept as written.
+     *
+     * @param emails List of email addresses to process
+     * @return List with one address per mailbox
+     *
+     * Example: ["John.Doe@gmail.com", "johndoe+news@googlemail.com"] → ["John.Doe@gmail.com"]
+     */
+    List<String> removeCanonicalDuplicates(List<String> emails);
+
+    /**
+     * Removes emails already recorded in the filter and records the others, so that
+     * addresses seen in earlier imports are dropped without keeping them all in memory.
+     * A share of new emails up to the filter's false-positive rate is removed as well.
+     *
+     * @param emails List of email addresses to process
+     * @param seenFilter Filter of previously seen emails, updated in place
+     * @return List with previously seen emails removed
+     *
+     * Example: filter holding "a@gmail.com"; ["a@gmail.com", "b@gmail.com"] → ["b@gmail.com"]
+     */
+    List<String> removePreviouslySeen(List<String> emails, ScalableBloomFilter seenFilter);
+
     /**
      * Removes empty or blank lines from the email list.
      * 
@@ -122,7 +217,7 @@ public interface EmailCleaningService {
 
     /**
      * Removes emails with invalid or fake top-level domains (TLDs).
-     * Validates TLD length and basic structure.
+     * The TLD must be registered in the IANA root zone list (see {@link TldRegistry}).
      * 
      * @param emails List of email addresses to validate
      * @return List containing only emails with valid TLDs
@@ -133,7 +228,8 @@ public interface EmailCleaningService {
 
     /**
      * Removes emails whose domains don't exist or can't be resolved via DNS.
-     * This is a network operation and may be slow for large lists.
+     * A domain is kept when it has an MX record, or an A or AAAA record when it has no MX.
+     * Each unique domain is looked up once; this is still a network operation.
      * 
      * @param emails List of email addresses to validate
      * @return List containing only emails with resolvable domains
@@ -142,6 +238,14 @@ public interface EmailCleaningService {
      */
     List<String> removeNonExistentDomains(List<String> emails);
 
+    /**
+     * Same check as {@link #removeNonExistentDomains(List)} on the active rows of a dataset
+     *
+     * @param dataset Emails to validate
+     * @return New dataset where rows with unresolvable domains are removed
+     */
+    EmailDataset removeNonExistentDomains(EmailDataset dataset);
+
 	List<String> removeInvalidDomainFormat(List<String> emails);
 
 	List<String> removeTooShortOrTooLongEmails(List<String> emails);
@@ -1,260 +1,247 @@
 package services;
 
 import java.io.*;
-import java.net.InetAddress;
 import java.util.*;
-import java.util.regex.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import services.dedup.HashDeduplicator;
+import services.dedup.ScalableBloomFilter;
+import services.dns.DomainValidator;
 
 public class EmailCleaningServiceImpl implements EmailCleaningService {
 
-    private ObservableList<String> importedEmails = FXCollections.observableArrayList();
-    
-    private static final String EMAIL_PATTERN = "^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
-    private static final Pattern EMAIL_REGEX = Pattern.compile(EMAIL_PATTERN);
+    private static final CleaningPipeline IMPORT_PIPELINE = CleaningPipeline.of(CleaningStep.REMOVE_EMPTY_LINES);
+
+    // Lists at least this large are cleaned in parallel when a pool is configured
+    private static final int PARALLEL_THRESHOLD = 50_000;
+    private static final int PARALLEL_CHUNK_SIZE = 8_192;
+
+    private static final String NON_EXISTENT_DOMAIN = "Non-existent domain";
+
+    private final StreamingEmailImporter importer = new StreamingEmailImporter();
+
+    private final EmailExporter exporter = new EmailExporter();
+
+    private final ForkJoinPool parallelPool;
+
+    private final DomainValidator domainValidator;
+
+    private final CleaningRules rules;
+
+    private final HashDeduplicator deduplicator;
+
+    /**
+     * Creates a service that cleans lists sequentially on the calling thread
+     */
+    public EmailCleaningServiceImpl() {
+        this(null);
+    }
+
+    /**
+     * Creates a service that splits large lists into chunks cleaned on the given pool.
+     * Results are identical to sequential cleaning, including the order of emails.
+     * 
+     * @param parallelPool Pool used for large lists, or null to always clean sequentially
+     */
+    public EmailCleaningServiceImpl(ForkJoinPool parallelPool) {
+        this(parallelPool, new DomainValidator(DomainValidator.systemResolver()));
+    }
+
+    /**
+     * @param parallelPool Pool used for large lists, or null to always clean sequentially
+     * @param domainValidator Validator used by {@link #removeNonExistentDomains}
+     */
+    public EmailCleaningServiceImpl(ForkJoinPool parallelPool, DomainValidator domainValidator) {
+        this(parallelPool, domainValidator, CleaningRules.defaults());
+    }
+
+    /**
+     * @param parallelPool Pool used for large lists, or null to always clean sequentially
+     * @param domainValidator Validator used by {@link #removeNonExistentDomains}
+     * @param rules Reference data used by the single-step cleaning methods
+     */
+    public EmailCleaningServiceImpl(ForkJoinPool parallelPool, DomainValidator domainValidator, CleaningRules rules) {
+        this(parallelPool, domainValidator, rules, new HashDeduplicator(HashDeduplicator.DEFAULT_MEMORY_BUDGET,
+            new File(System.getProperty("java.io.tmpdir")).toPath()));
+    }
+
+    /**
+     * @param parallelPool Pool used for large lists, or null to always clean sequentially
+     * @param domainValidator Validator used by {@link #removeNonExistentDomains}
+     * @param rules Reference data used by the single-step cleaning methods
+     * @param deduplicator Bounded-memory deduplicator used by {@link #removeDuplicates} for large lists
+     */
+    public EmailCleaningServiceImpl(ForkJoinPool parallelPool, DomainValidator domainValidator, CleaningRules rules,
+                                    HashDeduplicator deduplicator) {
+        this.parallelPool = parallelPool;
+        this.domainValidator = domainValidator;
+        this.rules = rules;
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Validator behind {@link #removeNonExistentDomains}, exposing cache and latency metrics
+     */
+    public DomainValidator getDomainValidator() {
+        return domainValidator;
+    }
 
     @Override
-    public ObservableList<String> importData(File file) {
-        importedEmails.clear();
-        
+    public List<String> importData(File file) {
+        List<String> lines = new ArrayList<>();
         if (file == null || !file.exists()) {
-            return importedEmails;
+            return lines;
         }
         
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line != null && !line.trim().isEmpty()) {
-                    importedEmails.add(line.trim());
-                }
-            }
+        try {
+            importer.importFile(file.toPath(), IMPORT_PIPELINE, lines::add,
+                ImportProgressListener.NONE);
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
         }
-        
-        return importedEmails;
+        return lines;
     }
 
     @Override
-    public void removeDataImported() {
-        importedEmails.clear();
+    public EmailDataset importDataset(File file, ImportProgressListener listener) throws IOException {
+        EmailDataset.Builder builder = EmailDataset.builder();
+        importer.importFile(file.toPath(), IMPORT_PIPELINE, builder::add, listener);
+        return builder.build();
+    }
+
+    @Override
+    public ImportStats importStreaming(File file, CleaningPipeline pipeline, Consumer<String> sink,
+                                       ImportProgressListener listener) throws IOException {
+        return importer.importFile(file.toPath(), pipeline, sink, listener);
+    }
+
+    @Override
+    public ExportStats export(EmailDataset dataset, File file, ExportOptions options, ProgressTracker progress)
+            throws IOException {
+        return exporter.export(dataset, file.toPath(), options, progress);
     }
 
     // ================== CLEANING METHODS ==================
 
+    @Override
+    public CleaningResult clean(List<String> emails, CleaningPipeline pipeline) {
+        if (parallelPool != null && emails.size() >= PARALLEL_THRESHOLD) {
+            return pipeline.runParallel(emails, parallelPool, PARALLEL_CHUNK_SIZE);
+        }
+        return pipeline.run(emails);
+    }
+
+    @Override
+    public EmailDataset clean(EmailDataset dataset, CleaningPipeline pipeline) {
+        return clean(dataset, pipeline, ProgressTracker.NONE);
+    }
+
+    @Override
+    public EmailDataset clean(EmailDataset dataset, CleaningPipeline pipeline, ProgressTracker progress) {
+        if (parallelPool != null && dataset.getActiveCount() >= PARALLEL_THRESHOLD) {
+            return pipeline.runParallel(dataset, parallelPool, PARALLEL_CHUNK_SIZE, progress);
+        }
+        return pipeline.run(dataset, progress);
+    }
+
     @Override
     public List<String> removeDuplicates(List<String> emails) {
-        return new ArrayList<>(new LinkedHashSet<>(emails));
+        // Large lists are deduplicated by hash in bounded memory instead of a set of every string
+        if (emails.size() >= PARALLEL_THRESHOLD) {
+            return deduplicator.deduplicate(emails);
+        }
+        return apply(CleaningStep.REMOVE_DUPLICATES, emails);
+    }
+
+    @Override
+    public List<String> removeCanonicalDuplicates(List<String> emails) {
+        return apply(CleaningStep.REMOVE_CANONICAL_DUPLICATES, emails);
+    }
+
+    @Override
+    public List<String> removePreviouslySeen(List<String> emails, ScalableBloomFilter seenFilter) {
+        return clean(emails, CleaningPipeline.of(CleaningStep.REMOVE_PREVIOUSLY_SEEN)
+            .withRules(rules.withSeenFilter(seenFilter))).getCleanedEmails();
     }
 
     @Override
     public List<String> removeEmptyLines(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        for (String email : emails) {
-            if (email != null && !email.trim().isEmpty()) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_EMPTY_LINES, emails);
     }
 
     @Override
     public List<String> removeEmailsWithMultipleAt(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        for (String email : emails) {
-            long atCount = email.chars().filter(ch -> ch == '@').count();
-            if (atCount == 1) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT, emails);
     }
 
     @Override
     public List<String> removeEmailsWithoutAt(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        for (String email : emails) {
-            if (email.contains("@")) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_EMAILS_WITHOUT_AT, emails);
     }
 
     @Override
     public List<String> removeInvalidDomainFormat(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        Pattern pattern = Pattern.compile("^[^@]+@[^@]+\\.[A-Za-z]{2,}$");
-        
-        for (String email : emails) {
-            if (pattern.matcher(email).matches()) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_INVALID_DOMAIN_FORMAT, emails);
     }
 
     @Override
     public List<String> removeInvalidCharacters(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        
-        for (String email : emails) {
-            if (EMAIL_REGEX.matcher(email).matches()) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_INVALID_CHARACTERS, emails);
     }
 
     @Override
     public List<String> removeAdminOrBotEmails(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        String[] adminPrefixes = {"admin@", "noreply@", "no-reply@", "bot@", "do-not-reply@"};
-        
-        for (String email : emails) {
-            String lower = email.toLowerCase();
-            boolean isAdmin = false;
-            
-            for (String prefix : adminPrefixes) {
-                if (lower.startsWith(prefix)) {
-                    isAdmin = true;
-                    break;
-                }
-            }
-            
-            if (!isAdmin) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_ADMIN_OR_BOT, emails);
     }
 
     @Override
     public List<String> removeRoleBasedEmails(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        String[] roles = {
-            "info@", "support@", "sales@", "contact@", "webmaster@", 
-            "help@", "careers@", "jobs@", "marketing@", "service@"
-        };
-        
-        for (String email : emails) {
-            String lower = email.toLowerCase();
-            boolean isRole = false;
-            
-            for (String role : roles) {
-                if (lower.startsWith(role)) {
-                    isRole = true;
-                    break;
-                }
-            }
-            
-            if (!isRole) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_ROLE_BASED, emails);
     }
 
     @Override
     public List<String> removeDisposableEmails(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        String[] disposableDomains = {
-        	    "mailinator.com", "yopmail.com", "10minutemail.com", "guerrillamail.com", "tempmail.com", "throwaway.email",
-        	    "getnada.com", "trashmail.com", "maildrop.cc", "dispostable.com", "fakeinbox.com", "temp-mail.org",
-        	    "mytemp.email", "mailcatch.com", "mintemail.com", "moakt.com", "spambox.xyz", "spamgourmet.com",
-        	    "mailnesia.com", "inboxalias.com", "anonaddy.me", "sharklasers.com", "grr.la", "guerrillamail.net",
-        	    "mail-temporaire.fr", "temporarymail.com", "tempail.com", "tempmailo.com", "tempmailaddress.com", "dropmail.me",
-        	    "mohmal.com", "tmail.ws", "fakemail.net", "trash-mail.com", "owlymail.com", "mailtothis.com",
-        	    "spam4.me", "easytrashmail.com", "spambog.com", "spambog.de", "getairmail.com", "nowmymail.com",
-        	    "nobugmail.com", "binkmail.com", "mailme24.com", "spamdecoy.net", "tempemail.co", "tempmail.de",
-        	    "yopmail.net", "yopmail.fr", "guerrillamail.de", "spamfree24.org"
-        	};
-
-
-        
-        for (String email : emails) {
-            boolean disposable = false;
-            String lower = email.toLowerCase();
-            
-            for (String domain : disposableDomains) {
-                if (lower.endsWith("@" + domain)) {
-                    disposable = true;
-                    break;
-                }
-            }
-            
-            if (!disposable) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_DISPOSABLE, emails);
     }
 
     @Override
     public List<String> removeNonExistentDomains(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        
-        for (String email : emails) {
-            try {
-                int atIndex = email.indexOf("@");
-                if (atIndex > 0 && atIndex < email.length() - 1) {
-                    String domain = email.substring(atIndex + 1);
-                    InetAddress.getByName(domain);
-                    cleaned.add(email);
-                }
-            } catch (Exception e) {
-                // Domain doesn't exist or can't be resolved - skip it
-            }
-        }
-        return cleaned;
+        return domainValidator.filterEmails(emails);
+    }
+
+    @Override
+    public EmailDataset removeNonExistentDomains(EmailDataset dataset) {
+        // The kept emails are an ordered subsequence of the active ones, so rows are matched by walking both
+        Iterator<String> kept = domainValidator.filterEmails(dataset.activeView()).iterator();
+        String[] next = {kept.hasNext() ? kept.next() : null};
+        return dataset.apply(email -> {
+            if (!email.equals(next[0])) {
+                return null;
+            }
+            next[0] = kept.hasNext() ? kept.next() : null;
+            return email;
+        }, NON_EXISTENT_DOMAIN);
     }
 
     @Override
     public List<String> removeTooShortOrTooLongEmails(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        
-        for (String email : emails) {
-            int length = email.length();
-            if (length >= 6 && length <= 254) {
-                cleaned.add(email);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_TOO_SHORT_OR_TOO_LONG, emails);
     }
 
-   
     @Override
     public List<String> removeInvalidOrFakeTLDs(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        Pattern tldPattern = Pattern.compile("\\.[A-Za-z]{2,}$");
-        
-        for (String email : emails) {
-            Matcher matcher = tldPattern.matcher(email);
-            if (matcher.find()) {
-                String tld = matcher.group().substring(1).toLowerCase();
-                
-                // Check if TLD length is reasonable (2-10 characters)
-                if (tld.length() >= 2 && tld.length() <= 10) {
-                    cleaned.add(email);
-                }
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.REMOVE_INVALID_OR_FAKE_TLDS, emails);
     }
 
     @Override
     public List<String> trimAndNormalize(List<String> emails) {
-        List<String> cleaned = new ArrayList<>();
-        
-        for (String email : emails) {
-            String normalized = email.trim().toLowerCase().replaceAll("\\s+", "");
-            if (!normalized.isEmpty()) {
-                cleaned.add(normalized);
-            }
-        }
-        return cleaned;
+        return apply(CleaningStep.TRIM_AND_NORMALIZE, emails);
     }
 
- 
+    /**
+     * Runs a single step over the list
+     */
+    private List<String> apply(CleaningStep step, List<String> emails) {
+        return clean(emails, CleaningPipeline.of(step).withRules(rules)).getCleanedEmails();
+    }
 }
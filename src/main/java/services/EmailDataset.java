@@ -0,0 +1,366 @@
+package services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable working set of an email list, stored column by column.
+ *
+ * <p>Emails are kept as UTF-8 bytes in chunks of {@value #CHUNK_ROWS} rows, each chunk
+ * holding one byte array, an offset array and one byte per row for the status and
+ * removal reason, so a mostly ASCII list takes little more than its file size instead
+ * of one {@code String} object per email. Removed rows stay in the dataset with the
+ * reason they were removed for; {@link #activeView()} exposes the remaining emails
+ * without copying them.
+ *
+ * <p>Cleaning never modifies a dataset, it produces a new one, so a dataset can be
+ * shared between threads and jobs freely.
+ */
+public final class EmailDataset {
+
+    public static final int CHUNK_ROWS = 1 << 14;
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int MAX_REASONS = 255;
+    private static final EmailDataset EMPTY = new Builder().build();
+
+    /**
+     * State of a row
+     */
+    public enum Status {
+        ACTIVE,
+        REMOVED
+    }
+
+    private final Chunk[] chunks;
+    private final int size;
+    private final String[] reasons;
+    private final int[] activeRows;
+
+    private EmailDataset(Chunk[] chunks, int size, String[] reasons, int[] activeRows) {
+        this.chunks = chunks;
+        this.size = size;
+        this.reasons = reasons;
+        this.activeRows = activeRows;
+    }
+
+    public static EmailDataset empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Dataset with every email active, in iteration order. Null entries are skipped.
+     */
+    public static EmailDataset of(Iterable<String> emails) {
+        Builder builder = new Builder();
+        for (String email : emails) {
+            if (email != null) {
+                builder.add(email);
+            }
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Number of rows, active and removed
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getActiveCount() {
+        return activeRows.length;
+    }
+
+    public int getRemovedCount() {
+        return size - activeRows.length;
+    }
+
+    public String getEmail(int row) {
+        Chunk chunk = chunk(row);
+        int index = row & (CHUNK_ROWS - 1);
+        int start = chunk.offsets[index];
+        return new String(chunk.data, start, chunk.offsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Length of the row's email in UTF-8 bytes
+     */
+    int getEmailByteLength(int row) {
+        Chunk chunk = chunk(row);
+        int index = row & (CHUNK_ROWS - 1);
+        return chunk.offsets[index + 1] - chunk.offsets[index];
+    }
+
+    /**
+     * Copies the row's email as UTF-8 bytes without decoding it
+     */
+    void copyEmailBytes(int row, ByteBuffer target) {
+        Chunk chunk = chunk(row);
+        int index = row & (CHUNK_ROWS - 1);
+        int start = chunk.offsets[index];
+        target.put(chunk.data, start, chunk.offsets[index + 1] - start);
+    }
+
+    public Status getStatus(int row) {
+        return chunk(row).reasons[row & (CHUNK_ROWS - 1)] == 0 ? Status.ACTIVE : Status.REMOVED;
+    }
+
+    /**
+     * @return Why the row was removed, or null for an active row
+     */
+    public String getReason(int row) {
+        return reasons[chunk(row).reasons[row & (CHUNK_ROWS - 1)] & 0xFF];
+    }
+
+    /**
+     * Read-only list of the active emails. Each email is decoded when it is read,
+     * so the view costs one int per row and nothing per email.
+     */
+    public List<String> activeView() {
+        return new ActiveView();
+    }
+
+    /**
+     * Decodes the active emails into a new list
+     */
+    public List<String> getActiveEmails() {
+        return new ArrayList<>(activeView());
+    }
+
+    /**
+     * Number of removed rows per reason, in the order reasons first appeared
+     */
+    public Map<String, Integer> getRemovedCounts() {
+        int[] counts = new int[reasons.length];
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.rows; i++) {
+                counts[chunk.reasons[i] & 0xFF]++;
+            }
+        }
+        Map<String, Integer> byReason = new LinkedHashMap<>();
+        for (int i = 1; i < reasons.length; i++) {
+            if (counts[i] > 0) {
+                byReason.put(reasons[i], counts[i]);
+            }
+        }
+        return byReason;
+    }
+
+    /**
+     * Approximate memory used by the columns
+     */
+    public long getMemoryBytes() {
+        long bytes = activeRows.length * 4L;
+        for (Chunk chunk : chunks) {
+            bytes += chunk.data.length + chunk.offsets.length * 4L + chunk.reasons.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Runs the active emails through the stage. Emails it returns stay active, possibly
+     * rewritten; emails it drops are marked removed with the given reason.
+     */
+    public EmailDataset apply(CleaningStage stage, String reason) {
+        Builder builder = new Builder();
+        for (int row = 0; row < size; row++) {
+            if (getStatus(row) == Status.REMOVED) {
+                builder.copyRow(this, row);
+                continue;
+            }
+            String email = getEmail(row);
+            String result = stage.apply(email);
+            if (result == null) {
+                builder.addRemoved(email, reason);
+            } else {
+                builder.add(result);
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return "EmailDataset[" + activeRows.length + " active of " + size + "]";
+    }
+
+    private Chunk chunk(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return chunks[row >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Rows of one chunk; the reason code 0 means the row is active
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final int[] offsets;
+        final byte[] reasons;
+        final int rows;
+
+        Chunk(byte[] data, int[] offsets, byte[] reasons, int rows) {
+            this.data = data;
+            this.offsets = offsets;
+            this.reasons = reasons;
+            this.rows = rows;
+        }
+    }
+
+    private final class ActiveView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getEmail(activeRows[index]);
+        }
+
+        @Override
+        public int size() {
+            return activeRows.length;
+        }
+    }
+
+    /**
+     * Appends rows in order. Not thread-safe; a builder may only be built once.
+     */
+    public static final class Builder {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final Map<String, Integer> reasonCodes = new LinkedHashMap<>();
+        private int[] activeRows = new int[1024];
+        private int activeCount;
+        private int size;
+
+        private byte[] data = new byte[4096];
+        private int dataLength;
+        private int[] offsets = new int[CHUNK_ROWS + 1];
+        private byte[] rowReasons = new byte[CHUNK_ROWS];
+        private int rows;
+
+        private Builder() {
+        }
+
+        /**
+         * Appends an active email
+         */
+        public Builder add(String email) {
+            append(email, 0);
+            return this;
+        }
+
+        /**
+         * Appends a row that was removed for the given reason
+         */
+        public Builder addRemoved(String email, String reason) {
+            append(email, reasonCode(reason));
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public EmailDataset build() {
+            if (rows > 0 || chunks.isEmpty()) {
+                sealChunk();
+            }
+            String[] reasons = new String[reasonCodes.size() + 1];
+            for (Map.Entry<String, Integer> entry : reasonCodes.entrySet()) {
+                reasons[entry.getValue()] = entry.getKey();
+            }
+            return new EmailDataset(chunks.toArray(new Chunk[0]), size, reasons,
+                Arrays.copyOf(activeRows, activeCount));
+        }
+
+        /**
+         * Copies a row with its status and reason without decoding it
+         */
+        void copyRow(EmailDataset source, int row) {
+            Chunk chunk = source.chunk(row);
+            int index = row & (CHUNK_ROWS - 1);
+            int code = chunk.reasons[index] & 0xFF;
+            int start = chunk.offsets[index];
+            int length = chunk.offsets[index + 1] - start;
+            ensureData(length);
+            System.arraycopy(chunk.data, start, data, dataLength, length);
+            dataLength += length;
+            endRow(code == 0 ? 0 : reasonCode(source.reasons[code]));
+        }
+
+        private void append(String email, int reasonCode) {
+            int length = email.length();
+            ensureData(length);
+            int i = 0;
+            while (i < length) {
+                char c = email.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                data[dataLength + i] = (byte) c;
+                i++;
+            }
+            if (i == length) {
+                dataLength += length;
+            } else {
+                byte[] encoded = email.getBytes(StandardCharsets.UTF_8);
+                ensureData(encoded.length);
+                System.arraycopy(encoded, 0, data, dataLength, encoded.length);
+                dataLength += encoded.length;
+            }
+            endRow(reasonCode);
+        }
+
+        private void endRow(int reasonCode) {
+            rowReasons[rows] = (byte) reasonCode;
+            rows++;
+            offsets[rows] = dataLength;
+            if (reasonCode == 0) {
+                if (activeCount == activeRows.length) {
+                    activeRows = Arrays.copyOf(activeRows, activeRows.length * 2);
+                }
+                activeRows[activeCount++] = size;
+            }
+            size++;
+            if (rows == CHUNK_ROWS) {
+                sealChunk();
+            }
+        }
+
+        private int reasonCode(String reason) {
+            String label = reason != null ? reason : "Removed";
+            Integer code = reasonCodes.get(label);
+            if (code == null) {
+                if (reasonCodes.size() == MAX_REASONS) {
+                    throw new IllegalStateException("More than " + MAX_REASONS + " removal reasons");
+                }
+                code = reasonCodes.size() + 1;
+                reasonCodes.put(label, code);
+            }
+            return code;
+        }
+
+        private void ensureData(int extra) {
+            if (dataLength + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(dataLength + extra, data.length * 2));
+            }
+        }
+
+        private void sealChunk() {
+            chunks.add(new Chunk(Arrays.copyOf(data, dataLength), Arrays.copyOf(offsets, rows + 1),
+                Arrays.copyOf(rowReasons, rows), rows));
+            dataLength = 0;
+            rows = 0;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an {@link EmailDataset} to disk as UTF-8 text or CSV, optionally gzip-compressed
+ * and split into several files.
+ *
+ * <p>Emails are copied from the dataset's UTF-8 columns straight into a 1 MiB buffer
+ * that is written to the file channel when full, so nothing is decoded or encoded per
+ * email. Lines end with {@code \n}. When splitting, each file is named after the target
+ * with a part number before the extension ({@code emails-001.txt}, {@code emails-002.txt}).
+ */
+public class EmailExporter {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+    private static final int PROGRESS_BATCH = 4_096;
+
+    private static final byte[] CSV_HEADER = "email,status,reason\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACTIVE = "active".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REMOVED = "removed".getBytes(StandardCharsets.US_ASCII);
+
+    public ExportStats export(EmailDataset dataset, Path target, ExportOptions options) throws IOException {
+        return export(dataset, target, options, ProgressTracker.NONE);
+    }
+
+    /**
+     * @param dataset Rows to write; text output only includes the active ones
+     * @param target File to write, or the name pattern of the parts when splitting
+     * @param options Format, compression and split limits
+     * @param progress Tracker advanced by the rows considered
+     */
+    public ExportStats export(EmailDataset dataset, Path target, ExportOptions options, ProgressTracker progress)
+            throws IOException {
+        Writer writer = new Writer(target, options);
+        try {
+            boolean csv = options.getFormat() == ExportOptions.Format.CSV;
+            Map<String, byte[]> reasonCells = new HashMap<>();
+            ByteBuffer row = ByteBuffer.allocate(1024);
+            int pending = 0;
+
+            writer.openNext();
+            for (int i = 0; i < dataset.size(); i++) {
+                if (++pending == PROGRESS_BATCH) {
+                    progress.advance(pending);
+                    pending = 0;
+                }
+                boolean active = dataset.getStatus(i) == EmailDataset.Status.ACTIVE;
+                if (!csv && !active) {
+                    continue;
+                }
+
+                row = ensureCapacity(row, dataset.getEmailByteLength(i) * 2 + 64);
+                row.clear();
+                if (csv) {
+                    writeCsvRow(dataset, i, active, reasonCells, row);
+                } else {
+                    dataset.copyEmailBytes(i, row);
+                    row.put((byte) '\n');
+                }
+                row.flip();
+                writer.write(row);
+            }
+            progress.advance(pending);
+            return writer.finish();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * File written for an unsplit export to {@code target}: with compression, the
+     * compression extension is appended unless the name already ends with it
+     */
+    public static Path outputPath(Path target, ExportOptions options) {
+        return partPath(target, 1, options.withMaxRowsPerFile(0));
+    }
+
+    /**
+     * Name of the file for a part, numbered from 1
+     */
+    static Path partPath(Path target, int part, ExportOptions options) {
+        String name = target.getFileName().toString();
+        String extension = options.getCompression().getExtension();
+        if (!extension.isEmpty() && name.endsWith(extension)) {
+            name = name.substring(0, name.length() - extension.length());
+        }
+        if (options.isSplit()) {
+            int dot = name.lastIndexOf('.');
+            String suffix = String.format("-%03d", part);
+            name = dot > 0 ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix;
+        }
+        return target.resolveSibling(name + extension);
+    }
+
+    private static void writeCsvRow(EmailDataset dataset, int index, boolean active,
+                                    Map<String, byte[]> reasonCells, ByteBuffer row) {
+        int start = row.position();
+        dataset.copyEmailBytes(index, row);
+        if (needsQuoting(row, start, row.position())) {
+            byte[] raw = new byte[row.position() - start];
+            row.position(start);
+            row.get(raw);
+            row.position(start);
+            quote(raw, row);
+        }
+        row.put((byte) ',').put(active ? ACTIVE : REMOVED).put((byte) ',');
+        if (!active) {
+            row.put(reasonCells.computeIfAbsent(dataset.getReason(index), EmailExporter::csvCell));
+        }
+        row.put((byte) '\n');
+    }
+
+    private static byte[] csvCell(String value) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (!needsQuoting(ByteBuffer.wrap(raw), 0, raw.length)) {
+            return raw;
+        }
+        ByteBuffer quoted = ByteBuffer.allocate(raw.length * 2 + 2);
+        quote(raw, quoted);
+        byte[] cell = new byte[quoted.position()];
+        quoted.flip();
+        quoted.get(cell);
+        return cell;
+    }
+
+    private static boolean needsQuoting(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void quote(byte[] raw, ByteBuffer target) {
+        target.put((byte) '"');
+        for (byte b : raw) {
+            if (b == '"') {
+                target.put((byte) '"');
+            }
+            target.put(b);
+        }
+        target.put((byte) '"');
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+        return buffer.capacity() >= capacity ? buffer : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Output files of one export, switching to the next part when a limit is reached
+     */
+    private static final class Writer {
+        private final Path target;
+        private final ExportOptions options;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final List<Path> files = new ArrayList<>();
+        private WritableByteChannel channel;
+        private long rowsInFile;
+        private long bytesInFile;
+        private long rowsWritten;
+        private long bytesWritten;
+
+        Writer(Path target, ExportOptions options) {
+            this.target = target;
+            this.options = options;
+        }
+
+        void write(ByteBuffer row) throws IOException {
+            int length = row.remaining();
+            boolean rowLimit = options.getMaxRowsPerFile() > 0 && rowsInFile >= options.getMaxRowsPerFile();
+            boolean byteLimit = options.getMaxBytesPerFile() > 0 && rowsInFile > 0
+                && bytesInFile + length > options.getMaxBytesPerFile();
+            if (rowLimit || byteLimit) {
+                openNext();
+            }
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(row);
+            } else {
+                buffer.put(row);
+            }
+            rowsInFile++;
+            bytesInFile += length;
+            rowsWritten++;
+            bytesWritten += length;
+        }
+
+        void openNext() throws IOException {
+            closeCurrent();
+            Path path = partPath(target, files.size() + 1, options);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            channel = options.getCompression() == ExportOptions.Compression.GZIP
+                ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), GZIP_BUFFER_BYTES))
+                : file;
+            files.add(path);
+            rowsInFile = 0;
+            bytesInFile = 0;
+            if (options.getFormat() == ExportOptions.Format.CSV) {
+                buffer.put(CSV_HEADER);
+                bytesInFile += CSV_HEADER.length;
+                bytesWritten += CSV_HEADER.length;
+            }
+        }
+
+        ExportStats finish() throws IOException {
+            closeCurrent();
+            return new ExportStats(rowsWritten, bytesWritten, files);
+        }
+
+        void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        private void closeCurrent() throws IOException {
+            if (channel != null) {
+                flush();
+                close();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
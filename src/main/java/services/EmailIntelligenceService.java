@@ -4,6 +4,7 @@ import services.intelligence.models.EmailIntelligenceProfile;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
 /**
  * Service interface for email intelligence analysis
@@ -11,7 +12,8 @@ import java.util.concurrent.CompletableFuture;
 public interface EmailIntelligenceService {
     
     /**
-     * Analyzes a single email and returns intelligence profile
+     * Analyzes a single email and returns intelligence profile. Cancelling the future
+     * stops the lookups still running for it.
      */
     CompletableFuture<EmailIntelligenceProfile> analyzeEmail(String email);
     
@@ -20,6 +22,17 @@ public interface EmailIntelligenceService {
      */
     CompletableFuture<List<EmailIntelligenceProfile>> analyzeEmails(List<String> emails);
     
+    /**
+     * Analyzes emails as the subscriber asks for them and publishes each profile as
+     * soon as it is ready, in completion order rather than list order. At most
+     * {@code maxInFlight} profiles are being looked up or waiting to be requested;
+     * cancelling the subscription stops the remaining lookups.
+     */
+    default Flow.Publisher<EmailIntelligenceProfile> analyzeEmailsStreaming(Iterable<String> emails,
+                                                                            int maxInFlight) {
+        return new ProfilePublisher(emails, maxInFlight, this::analyzeEmail);
+    }
+    
     /**
      * Generates HTML report from profiles
      */
@@ -3,19 +3,31 @@ package services;
 import services.intelligence.analysis.PersonaAnalyzer;
 import services.intelligence.analysis.SecurityScorer;
 import services.intelligence.collectors.EmailPatternAnalyzer;
+import services.intelligence.collectors.GravatarCache;
 import services.intelligence.collectors.GravatarCollector;
 import services.intelligence.collectors.ServicePresenceChecker;
 import services.intelligence.models.*;
 import services.intelligence.reporting.HTMLReportGenerator;
+import services.intelligence.resilience.ResilienceOptions;
+import services.intelligence.resilience.ResilientCaller;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
- * Implementation of email intelligence service
+ * Implementation of email intelligence service.
+ *
+ * <p>Each email is analyzed as one task on the executor chosen by
+ * {@link IntelligenceOptions}. Gravatar lookups wait for a slot in the collector's
+ * {@link ResilientCaller} without holding a thread, so the number of lookups in flight
+ * is set by its concurrency limit rather than by the thread count. Bulk analysis also
+ * holds back lookups beyond what the caller's rate limit can admit within its throttle
+ * wait, so long lists are queued here rather than refused.
  */
 public class EmailIntelligenceServiceImpl implements EmailIntelligenceService {
     
@@ -26,52 +38,98 @@ public class EmailIntelligenceServiceImpl implements EmailIntelligenceService {
     private final PersonaAnalyzer personaAnalyzer;
     private final SecurityScorer securityScorer;
     private final HTMLReportGenerator reportGenerator;
+    private final EmailCanonicalizer canonicalizer;
+    private final LookupWindow<GravatarData> bulkLookups;
 
     public EmailIntelligenceServiceImpl() {
-        this.executorService = Executors.newFixedThreadPool(4);
-        this.gravatarCollector = new GravatarCollector();
+        this(IntelligenceOptions.defaults());
+    }
+
+    public EmailIntelligenceServiceImpl(IntelligenceOptions options) {
+        this(options, new GravatarCollector(
+            options.getGravatarCache() != null ? options.getGravatarCache() : new GravatarCache(),
+            options.getGravatarResilience() != null ? options.getGravatarResilience()
+                : new ResilientCaller(limitConcurrency(ResilienceOptions.defaults(),
+                    options.getDependencyLimit(IntelligenceOptions.GRAVATAR)))));
+    }
+
+    /**
+     * Caps the adaptive concurrency limit at {@code limit} calls
+     */
+    private static ResilienceOptions limitConcurrency(ResilienceOptions options, int limit) {
+        int max = Math.min(options.getMaxConcurrency(), limit);
+        int min = Math.min(options.getMinConcurrency(), max);
+        return options.withConcurrency(Math.min(options.getInitialConcurrency(), max), min, max);
+    }
+
+    EmailIntelligenceServiceImpl(IntelligenceOptions options, GravatarCollector gravatarCollector) {
+        this.executorService = options.newExecutor();
+        this.gravatarCollector = gravatarCollector;
         this.emailAnalyzer = new EmailPatternAnalyzer();
         this.serviceChecker = new ServicePresenceChecker();
         this.personaAnalyzer = new PersonaAnalyzer();
         this.securityScorer = new SecurityScorer();
         this.reportGenerator = new HTMLReportGenerator();
+        this.canonicalizer = EmailCanonicalizer.getDefault();
+        this.bulkLookups = new LookupWindow<>(bulkWindow(gravatarCollector.getResilience().getOptions()));
+    }
+
+    /**
+     * Lookups that can hold a rate-limit token at once without any of them waiting
+     * past the throttle limit: the k-th call queued on the bucket waits k / rate.
+     */
+    static int bulkWindow(ResilienceOptions options) {
+        double admitted = options.getRequestsPerSecond() * options.getMaxThrottleWait().toNanos() / 1e9;
+        return (int) Math.max(1, Math.min(options.getMaxConcurrency(), Math.floor(admitted)));
     }
 
     @Override
     public CompletableFuture<EmailIntelligenceProfile> analyzeEmail(String email) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Collect data from various sources
-                GravatarData gravatar = collectGravatarData(email);
-                EmailMetrics metrics = emailAnalyzer.analyze(email);
-                ServicePresence services = serviceChecker.checkServices(email);
-                
-                // Analyze and score
-                PersonaScore persona = personaAnalyzer.buildPersona(gravatar, metrics, services);
-                SecurityScore security = securityScorer.calculateScore(metrics, services);
-                
-                // Build profile
-                EmailIntelligenceProfile profile = new EmailIntelligenceProfile(
-                    email, gravatar, metrics, services, persona
-                );
-                profile.setSecurityScore(security);
-                
-                return profile;
-            } catch (Exception e) {
-                // Graceful degradation - return basic profile
-                EmailIntelligenceProfile profile = new EmailIntelligenceProfile();
-                profile.setEmail(email);
-                profile.setEmailMetrics(emailAnalyzer.analyze(email));
-                return profile;
-            }
-        }, executorService);
+        return analyzeEmail(email, collectGravatarData(email));
+    }
+
+    private CompletableFuture<EmailIntelligenceProfile> analyzeEmail(String email, CompletableFuture<GravatarData> gravatar) {
+        // No thread waits for the Gravatar response; scoring starts on the executor once it arrives
+        CompletableFuture<EmailIntelligenceProfile> profile = gravatar.thenApplyAsync(
+            data -> buildProfile(email, data, null), executorService);
+        // Cancelling the profile stops the lookup too, as the interface promises
+        cancelWith(profile, gravatar);
+        return profile;
     }
 
     @Override
     public CompletableFuture<List<EmailIntelligenceProfile>> analyzeEmails(List<String> emails) {
-        List<CompletableFuture<EmailIntelligenceProfile>> futures = emails.stream()
-                .map(this::analyzeEmail)
-                .collect(Collectors.toList());
+        // Repeated addresses are analyzed once. Other addresses of the same mailbox share
+        // its service presence but get their own Gravatar lookup and scores, since
+        // Gravatar profiles belong to exact addresses. Lookups go through the bulk window,
+        // so however long the list, none is refused for exceeding the rate limit.
+        Map<String, CompletableFuture<EmailIntelligenceProfile>> byAddress = new HashMap<>();
+        Map<String, CompletableFuture<EmailIntelligenceProfile>> byMailbox = new HashMap<>();
+        List<CompletableFuture<EmailIntelligenceProfile>> futures = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            if (email == null) {
+                futures.add(analyzeEmail(email));
+                continue;
+            }
+            CompletableFuture<EmailIntelligenceProfile> analyzed = byAddress.get(email);
+            if (analyzed != null) {
+                futures.add(analyzed.thenApply(this::copyOf));
+                continue;
+            }
+            String key = canonicalizer.canonicalize(email);
+            CompletableFuture<EmailIntelligenceProfile> mailbox = byMailbox.get(key);
+            if (mailbox == null) {
+                analyzed = analyzeEmail(email, bulkLookups.submit(() -> collectGravatarData(email)));
+                byMailbox.put(key, analyzed);
+            } else {
+                CompletableFuture<GravatarData> gravatar = bulkLookups.submit(() -> collectGravatarData(email));
+                analyzed = gravatar.thenCombineAsync(mailbox,
+                    (data, first) -> buildProfile(email, data, first.getServicePresence()), executorService);
+                cancelWith(analyzed, gravatar);
+            }
+            byAddress.put(email, analyzed);
+            futures.add(analyzed);
+        }
 
         return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
                 .thenApply(v -> futures.stream()
@@ -85,16 +143,91 @@ public class EmailIntelligenceServiceImpl implements EmailIntelligenceService {
     }
 
     /**
-     * Collects Gravatar data with error handling
+     * Scores an address from its own metrics and Gravatar data
+     *
+     * @param services Service presence of the mailbox if already known, or null to check it
      */
-    private GravatarData collectGravatarData(String email) {
+    private EmailIntelligenceProfile buildProfile(String email, GravatarData gravatar, ServicePresence services) {
         try {
-            return gravatarCollector.collect(email);
+            // Collect data from the local sources
+            EmailMetrics metrics = emailAnalyzer.analyze(email);
+            if (services == null) {
+                services = serviceChecker.checkServices(email);
+            }
+
+            // Analyze and score
+            PersonaScore persona = personaAnalyzer.buildPersona(gravatar, metrics, services);
+            SecurityScore security = securityScorer.calculateScore(metrics, services);
+
+            // Build profile
+            EmailIntelligenceProfile profile = new EmailIntelligenceProfile(
+                email, gravatar, metrics, services, persona
+            );
+            profile.setSecurityScore(security);
+
+            return profile;
         } catch (Exception e) {
+            // Graceful degradation - return basic profile
+            EmailIntelligenceProfile profile = new EmailIntelligenceProfile();
+            profile.setEmail(email);
+            profile.setEmailMetrics(emailAnalyzer.analyze(email));
+            return profile;
+        }
+    }
+
+    /**
+     * Separate profile for a repeated address, with the same values as the first
+     */
+    private EmailIntelligenceProfile copyOf(EmailIntelligenceProfile analyzed) {
+        EmailIntelligenceProfile profile = new EmailIntelligenceProfile(
+            analyzed.getEmail(), analyzed.getGravatarData(), analyzed.getEmailMetrics(),
+            analyzed.getServicePresence(), analyzed.getPersonaScore()
+        );
+        profile.setSecurityScore(analyzed.getSecurityScore());
+        return profile;
+    }
+
+    /**
+     * Collects Gravatar data with error handling
+     */
+    private CompletableFuture<GravatarData> collectGravatarData(String email) {
+        CompletableFuture<GravatarData> lookup;
+        try {
+            lookup = gravatarCollector.collectAsync(email);
+        } catch (RuntimeException e) {
+            lookup = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<GravatarData> result = lookup.exceptionally(e -> {
             // Log warning and return empty data
             System.err.println("Gravatar lookup failed for " + email + ": " + e.getMessage());
             return GravatarData.empty();
-        }
+        });
+        cancelWith(result, lookup);
+        return result;
+    }
+
+    /**
+     * Cancels {@code source} when {@code dependent} is cancelled; dependent stages do
+     * not pass cancellation back to the stage they wait for
+     */
+    private static void cancelWith(CompletableFuture<?> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((value, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+    }
+
+    ResilientCaller getGravatarResilience() {
+        return gravatarCollector.getResilience();
+    }
+
+    /**
+     * Gravatar lookups refused by the rate limit or an open circuit so far; those
+     * addresses were scored without Gravatar data
+     */
+    public long getRefusedGravatarLookups() {
+        return gravatarCollector.getResilience().getRejectedCount();
     }
 
     /**
@@ -0,0 +1,195 @@
+package services;
+
+/**
+ * Regex-free email syntax checks that scan the address once without allocating.
+ *
+ * <p>{@link #validate(String)} applies the strict rules in a single pass and reports
+ * the first problem found. The remaining methods reproduce the individual legacy
+ * filters exactly (including their regex quirks) so existing cleaning results do
+ * not change.
+ */
+public final class EmailSyntaxValidator {
+
+    public static final int MIN_LENGTH = 6;
+    public static final int MAX_LENGTH = 254;
+    public static final int MAX_LOCAL_PART_LENGTH = 64;
+    public static final int MAX_LABEL_LENGTH = 63;
+
+    /**
+     * Outcome of {@link #validate(String)}
+     */
+    public enum Reason {
+        VALID,
+        TOO_SHORT,
+        TOO_LONG,
+        MISSING_AT,
+        MULTIPLE_AT,
+        EMPTY_LOCAL_PART,
+        LOCAL_PART_TOO_LONG,
+        INVALID_LOCAL_CHARACTER,
+        INVALID_DOT_PLACEMENT,
+        INVALID_DOMAIN_CHARACTER,
+        INVALID_DOMAIN_LABEL,
+        MISSING_TLD,
+        INVALID_TLD
+    }
+
+    private EmailSyntaxValidator() {
+    }
+
+    /**
+     * Validates length, local part, '@' count, domain labels and TLD in one pass.
+     * The local part may use {@code A-Z a-z 0-9 . _ % + -} with no leading, trailing or
+     * doubled dots; the domain needs at least two labels of letters, digits and inner
+     * hyphens, and a purely alphabetic TLD of at least two letters.
+     */
+    public static Reason validate(String email) {
+        int length = email.length();
+        if (length < MIN_LENGTH) {
+            return Reason.TOO_SHORT;
+        }
+        if (length > MAX_LENGTH) {
+            return Reason.TOO_LONG;
+        }
+
+        int at = -1;
+        int labelStart = 0;
+        boolean labelAlphabetic = true;
+        int labels = 0;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (at < 0) {
+                if (c == '@') {
+                    if (i == 0) {
+                        return Reason.EMPTY_LOCAL_PART;
+                    }
+                    if (i > MAX_LOCAL_PART_LENGTH) {
+                        return Reason.LOCAL_PART_TOO_LONG;
+                    }
+                    if (email.charAt(i - 1) == '.') {
+                        return Reason.INVALID_DOT_PLACEMENT;
+                    }
+                    at = i;
+                    labelStart = i + 1;
+                } else if (c == '.') {
+                    if (i == 0 || email.charAt(i - 1) == '.') {
+                        return Reason.INVALID_DOT_PLACEMENT;
+                    }
+                } else if (!isLocalChar(c)) {
+                    return Reason.INVALID_LOCAL_CHARACTER;
+                }
+            } else if (c == '.') {
+                if (!isValidLabel(email, labelStart, i)) {
+                    return Reason.INVALID_DOMAIN_LABEL;
+                }
+                labels++;
+                labelStart = i + 1;
+                labelAlphabetic = true;
+            } else if (c == '@') {
+                return Reason.MULTIPLE_AT;
+            } else if (isLetter(c)) {
+                // Letters are valid anywhere in a label
+            } else if (isDigit(c) || c == '-') {
+                labelAlphabetic = false;
+            } else {
+                return Reason.INVALID_DOMAIN_CHARACTER;
+            }
+        }
+
+        if (at < 0) {
+            return Reason.MISSING_AT;
+        }
+        if (labels == 0) {
+            return labelStart == length ? Reason.INVALID_DOMAIN_LABEL : Reason.MISSING_TLD;
+        }
+        int tldLength = length - labelStart;
+        if (tldLength == 0) {
+            return Reason.INVALID_DOMAIN_LABEL;
+        }
+        if (!labelAlphabetic || tldLength < 2 || tldLength > MAX_LABEL_LENGTH) {
+            return Reason.INVALID_TLD;
+        }
+        return Reason.VALID;
+    }
+
+    public static boolean isValid(String email) {
+        return validate(email) == Reason.VALID;
+    }
+
+    /**
+     * Same result as matching {@code ^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$}
+     */
+    public static boolean hasValidCharacters(String email) {
+        int length = email.length();
+        int at = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0 || i == 0) {
+                    return false;
+                }
+                at = i;
+            } else if (at < 0 ? !isLocalChar(c) : !(isLetter(c) || isDigit(c) || c == '.' || c == '-')) {
+                return false;
+            }
+        }
+        return at >= 0 && hasLetterTld(email, at + 1, length);
+    }
+
+    /**
+     * Same result as matching {@code ^[^@]+@[^@]+\.[A-Za-z]{2,}$}
+     */
+    public static boolean hasValidDomainFormat(String email) {
+        int at = email.indexOf('@');
+        if (at <= 0 || email.indexOf('@', at + 1) >= 0) {
+            return false;
+        }
+        return hasLetterTld(email, at + 1, email.length());
+    }
+
+    /**
+     * @return Whether the email contains exactly one '@'
+     */
+    public static boolean hasSingleAt(String email) {
+        int at = email.indexOf('@');
+        return at >= 0 && email.indexOf('@', at + 1) < 0;
+    }
+
+    public static boolean hasValidLength(String email) {
+        return email.length() >= MIN_LENGTH && email.length() <= MAX_LENGTH;
+    }
+
+    /**
+     * Whether [from, to) has a '.' that is not its first character and is followed
+     * by at least two letters up to the end. Only the last '.' can qualify.
+     */
+    private static boolean hasLetterTld(String email, int from, int to) {
+        int letters = 0;
+        int i = to - 1;
+        while (i >= from && isLetter(email.charAt(i))) {
+            letters++;
+            i--;
+        }
+        return i > from && email.charAt(i) == '.' && letters >= 2;
+    }
+
+    /**
+     * A label is 1 to 63 characters and neither starts nor ends with a hyphen
+     */
+    private static boolean isValidLabel(String email, int from, int to) {
+        return to > from && to - from <= MAX_LABEL_LENGTH
+            && email.charAt(from) != '-' && email.charAt(to - 1) != '-';
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
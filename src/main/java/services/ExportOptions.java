@@ -0,0 +1,100 @@
+package services;
+
+/**
+ * How {@link EmailExporter} writes a dataset: layout, compression and file splitting.
+ * Options are immutable; the {@code with} methods return modified copies.
+ */
+public final class ExportOptions {
+
+    /**
+     * Layout of the exported rows
+     */
+    public enum Format {
+        /** Active emails, one per line */
+        TEXT,
+        /** Every row as {@code email,status,reason}, with a header line */
+        CSV
+    }
+
+    /**
+     * Compression applied to each output file
+     */
+    public enum Compression {
+        NONE(""),
+        GZIP(".gz");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final ExportOptions DEFAULTS = new ExportOptions(Format.TEXT, Compression.NONE, 0, 0);
+
+    private final Format format;
+    private final Compression compression;
+    private final long maxRowsPerFile;
+    private final long maxBytesPerFile;
+
+    private ExportOptions(Format format, Compression compression, long maxRowsPerFile, long maxBytesPerFile) {
+        this.format = format;
+        this.compression = compression;
+        this.maxRowsPerFile = maxRowsPerFile;
+        this.maxBytesPerFile = maxBytesPerFile;
+    }
+
+    /**
+     * Uncompressed text of the active emails in a single file
+     */
+    public static ExportOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public ExportOptions withFormat(Format value) {
+        return new ExportOptions(value, compression, maxRowsPerFile, maxBytesPerFile);
+    }
+
+    public ExportOptions withCompression(Compression value) {
+        return new ExportOptions(format, value, maxRowsPerFile, maxBytesPerFile);
+    }
+
+    /**
+     * Starts a new file after this many rows; 0 for no limit
+     */
+    public ExportOptions withMaxRowsPerFile(long value) {
+        return new ExportOptions(format, compression, value, maxBytesPerFile);
+    }
+
+    /**
+     * Starts a new file before it would exceed this many uncompressed bytes; 0 for no limit.
+     * A file always holds at least one row.
+     */
+    public ExportOptions withMaxBytesPerFile(long value) {
+        return new ExportOptions(format, compression, maxRowsPerFile, value);
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public long getMaxRowsPerFile() {
+        return maxRowsPerFile;
+    }
+
+    public long getMaxBytesPerFile() {
+        return maxBytesPerFile;
+    }
+
+    public boolean isSplit() {
+        return maxRowsPerFile > 0 || maxBytesPerFile > 0;
+    }
+}
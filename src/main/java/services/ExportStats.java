@@ -0,0 +1,41 @@
+package services;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of an export: rows written and the files they went to
+ */
+public class ExportStats {
+    private final long rowsWritten;
+    private final long bytesWritten;
+    private final List<Path> files;
+
+    public ExportStats(long rowsWritten, long bytesWritten, List<Path> files) {
+        this.rowsWritten = rowsWritten;
+        this.bytesWritten = bytesWritten;
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Data rows written, not counting CSV header lines
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Bytes written before compression, headers included
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Files created, in order
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+}
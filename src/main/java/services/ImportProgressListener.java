@@ -0,0 +1,19 @@
+package services;
+
+/**
+ * Receives progress updates from a {@link StreamingEmailImporter}.
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = (bytesRead, totalBytes, records) -> { };
+
+    /**
+     * Called after each buffer of input has been processed.
+     *
+     * @param bytesRead Bytes consumed so far
+     * @param totalBytes Total input size in bytes, or -1 if unknown (e.g. stdin)
+     * @param records Lines read so far
+     */
+    void onProgress(long bytesRead, long totalBytes, long records);
+}
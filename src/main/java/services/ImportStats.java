@@ -0,0 +1,50 @@
+package services;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Summary of a streaming import: how much input was read and what the pipeline did with it
+ */
+public class ImportStats {
+    private final long bytesRead;
+    private final long linesRead;
+    private final long acceptedCount;
+    private final long skippedLines;
+    private final Map<CleaningStep, Integer> removedCounts;
+
+    public ImportStats(long bytesRead, long linesRead, long acceptedCount, long skippedLines,
+                       Map<CleaningStep, Integer> removedCounts) {
+        this.bytesRead = bytesRead;
+        this.linesRead = linesRead;
+        this.acceptedCount = acceptedCount;
+        this.skippedLines = skippedLines;
+        this.removedCounts = Collections.unmodifiableMap(removedCounts);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Lines that survived the pipeline and were handed to the sink
+     */
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    /**
+     * Lines dropped because they exceeded the importer's maximum line length
+     */
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    public Map<CleaningStep, Integer> getRemovedCounts() {
+        return removedCounts;
+    }
+}
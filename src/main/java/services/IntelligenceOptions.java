@@ -0,0 +1,152 @@
+package services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.intelligence.collectors.GravatarCache;
+import services.intelligence.resilience.ResilientCaller;
+
+/**
+ * How {@link EmailIntelligenceServiceImpl} runs its lookups: on which threads, and how
+ * many calls each external dependency may have in flight.
+ * Options are immutable; the {@code with} methods return modified copies.
+ *
+ * <p>Gravatar lookups wait for their responses without holding a thread, so the
+ * lookups in flight are bounded by the per-dependency limits alone; the thread mode
+ * sets where the profiles are scored once the responses arrive.
+ */
+public final class IntelligenceOptions {
+
+    /** Dependency name of the Gravatar profile lookup */
+    public static final String GRAVATAR = "gravatar";
+
+    /**
+     * Threads the analysis runs on
+     */
+    public enum ThreadMode {
+        /** A fixed pool of platform threads */
+        PLATFORM,
+        /** One virtual thread per lookup; needs Java 21 at runtime */
+        VIRTUAL
+    }
+
+    private static final int DEFAULT_PLATFORM_THREADS = 4;
+    private static final int DEFAULT_DEPENDENCY_LIMIT = 256;
+
+    private static final IntelligenceOptions DEFAULTS = new IntelligenceOptions(
+        VirtualThreads.isSupported() ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM,
+        DEFAULT_PLATFORM_THREADS, Collections.emptyMap(), null, null);
+
+    private final ThreadMode threadMode;
+    private final int platformThreads;
+    private final Map<String, Integer> dependencyLimits;
+    private final GravatarCache gravatarCache;
+    private final ResilientCaller gravatarResilience;
+
+    private IntelligenceOptions(ThreadMode threadMode, int platformThreads, Map<String, Integer> dependencyLimits,
+                                GravatarCache gravatarCache, ResilientCaller gravatarResilience) {
+        this.threadMode = threadMode;
+        this.platformThreads = platformThreads;
+        this.dependencyLimits = dependencyLimits;
+        this.gravatarCache = gravatarCache;
+        this.gravatarResilience = gravatarResilience;
+    }
+
+    /**
+     * Virtual threads when the runtime has them, otherwise 4 platform threads, and at
+     * most 256 calls in flight per dependency
+     */
+    public static IntelligenceOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public IntelligenceOptions withThreadMode(ThreadMode value) {
+        return new IntelligenceOptions(value, platformThreads, dependencyLimits, gravatarCache, gravatarResilience);
+    }
+
+    /**
+     * Pool size in {@link ThreadMode#PLATFORM} mode
+     */
+    public IntelligenceOptions withPlatformThreads(int value) {
+        return new IntelligenceOptions(threadMode, value, dependencyLimits, gravatarCache, gravatarResilience);
+    }
+
+    /**
+     * Caps the calls in flight to one dependency, such as {@link #GRAVATAR}. For
+     * Gravatar it bounds the adaptive concurrency limit of the default resilience layer;
+     * one set with {@link #withGravatarResilience} keeps its own maximum. Lookups over
+     * the cap wait without holding a thread.
+     */
+    public IntelligenceOptions withDependencyLimit(String dependency, int permits) {
+        Map<String, Integer> limits = new HashMap<>(dependencyLimits);
+        limits.put(dependency, permits);
+        return new IntelligenceOptions(threadMode, platformThreads, Collections.unmodifiableMap(limits),
+            gravatarCache, gravatarResilience);
+    }
+
+    /**
+     * Cache for Gravatar lookups, such as {@link GravatarCache#openDefault()}, which
+     * stays open after the service shuts down. Without one, each service keeps a
+     * memory-only cache.
+     */
+    public IntelligenceOptions withGravatarCache(GravatarCache value) {
+        return new IntelligenceOptions(threadMode, platformThreads, dependencyLimits, value, gravatarResilience);
+    }
+
+    /**
+     * Rate limit, adaptive concurrency limit, circuit breaker and timeouts of the
+     * Gravatar requests. Without one, each service uses
+     * {@link services.intelligence.resilience.ResilienceOptions#defaults()} with the
+     * concurrency capped at the {@link #GRAVATAR} dependency limit.
+     */
+    public IntelligenceOptions withGravatarResilience(ResilientCaller value) {
+        return new IntelligenceOptions(threadMode, platformThreads, dependencyLimits, gravatarCache, value);
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public int getPlatformThreads() {
+        return platformThreads;
+    }
+
+    public int getDependencyLimit(String dependency) {
+        return dependencyLimits.getOrDefault(dependency, DEFAULT_DEPENDENCY_LIMIT);
+    }
+
+    /**
+     * @return The configured cache, or null
+     */
+    public GravatarCache getGravatarCache() {
+        return gravatarCache;
+    }
+
+    /**
+     * @return The configured resilience layer, or null
+     */
+    public ResilientCaller getGravatarResilience() {
+        return gravatarResilience;
+    }
+
+    /**
+     * Creates the executor for the configured thread mode
+     *
+     * @throws UnsupportedOperationException if virtual threads are asked for on a runtime without them
+     */
+    ExecutorService newExecutor() {
+        if (threadMode == ThreadMode.VIRTUAL) {
+            return VirtualThreads.newThreadPerTaskExecutor();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, "intelligence-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package services;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classifies the local part of an email (the text before the first '@') as a role,
+ * admin or bot address in a single pass.
+ *
+ * <p>The known local parts are compiled into a trie over ASCII characters stored in
+ * a flat transition table. Classification walks the email once, lower-casing each
+ * character on the fly, and stops at the first '@' or as soon as no known local part
+ * can match, so nothing is allocated per email.
+ */
+public final class LocalPartClassifier {
+
+    public enum Category {
+        NONE, ROLE, ADMIN, BOT
+    }
+
+    private static final int ALPHABET = 128;
+
+    private static final LocalPartClassifier DEFAULT = new LocalPartClassifier(defaultLocalParts());
+
+    private final Map<String, Category> localParts;
+    private final int[] transitions;
+    private final Category[] categories;
+
+    private LocalPartClassifier(Map<String, Category> localParts) {
+        this.localParts = localParts;
+
+        int maxNodes = 1;
+        for (String localPart : localParts.keySet()) {
+            maxNodes += localPart.length();
+        }
+        int[] table = new int[maxNodes * ALPHABET];
+        Category[] accepting = new Category[maxNodes];
+        int nodes = 1;
+        for (Map.Entry<String, Category> entry : localParts.entrySet()) {
+            int node = 0;
+            for (int i = 0; i < entry.getKey().length(); i++) {
+                int slot = node * ALPHABET + entry.getKey().charAt(i);
+                if (table[slot] == 0) {
+                    table[slot] = nodes++;
+                }
+                node = table[slot];
+            }
+            accepting[node] = entry.getValue();
+        }
+        this.transitions = Arrays.copyOf(table, nodes * ALPHABET);
+        this.categories = Arrays.copyOf(accepting, nodes);
+    }
+
+    /**
+     * Classifier for the built-in role, admin and bot local parts
+     */
+    public static LocalPartClassifier defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a classifier that also recognizes the given local parts. A local part
+     * that is already known is moved to the new category.
+     *
+     * @param localParts ASCII local parts without the '@', matched case-insensitively
+     */
+    public LocalPartClassifier withLocalParts(Category category, Collection<String> localParts) {
+        if (category == Category.NONE) {
+            throw new IllegalArgumentException("Cannot register local parts as NONE");
+        }
+        Map<String, Category> extended = new LinkedHashMap<>(this.localParts);
+        for (String localPart : localParts) {
+            extended.put(normalize(localPart), category);
+        }
+        return new LocalPartClassifier(extended);
+    }
+
+    /**
+     * @return The category of the local part, or {@link Category#NONE} if it is not
+     *         a known local part or the email has no '@'
+     */
+    public Category classify(String email) {
+        int node = 0;
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                Category category = categories[node];
+                return category == null ? Category.NONE : category;
+            }
+            c = lower(c);
+            if (c >= ALPHABET) {
+                return Category.NONE;
+            }
+            node = transitions[node * ALPHABET + c];
+            if (node == 0) {
+                return Category.NONE;
+            }
+        }
+        return Category.NONE;
+    }
+
+    private static char lower(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < ALPHABET ? c : Character.toLowerCase(c);
+    }
+
+    private static String normalize(String localPart) {
+        StringBuilder sb = new StringBuilder(localPart.length());
+        for (int i = 0; i < localPart.length(); i++) {
+            char c = lower(localPart.charAt(i));
+            if (c >= ALPHABET || c == '@') {
+                throw new IllegalArgumentException("Unsupported local part: " + localPart);
+            }
+            sb.append(c);
+        }
+        if (sb.length() == 0) {
+            throw new IllegalArgumentException("Local part must not be empty");
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, Category> defaultLocalParts() {
+        Map<String, Category> localParts = new LinkedHashMap<>();
+        for (String role : new String[] {
+            "info", "support", "sales", "contact", "webmaster",
+            "help", "careers", "jobs", "marketing", "service"
+        }) {
+            localParts.put(role, Category.ROLE);
+        }
+        localParts.put("admin", Category.ADMIN);
+        for (String bot : new String[] {"noreply", "no-reply", "bot", "do-not-reply"}) {
+            localParts.put(bot, Category.BOT);
+        }
+        return localParts;
+    }
+}
@@ -0,0 +1,94 @@
+package services;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Starts lookups at most {@code size} at a time and queues the rest.
+ *
+ * <p>Bulk analysis hands every address over at once, but the resilience layer takes a
+ * rate-limit token as soon as a call is made and refuses calls that would wait longer
+ * than its throttle limit. Holding the excess back here lets them reserve their token
+ * only once an earlier lookup has finished. Lookups are started inside
+ * {@link #drain()}, which a work counter keeps to one thread at a time, so lookups
+ * that finish straight away do not recurse into the next start.
+ *
+ * @param <T> Lookup result type
+ */
+final class LookupWindow<T> {
+
+    private final Queue<Runnable> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger free;
+    private final AtomicInteger work = new AtomicInteger();
+
+    LookupWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.free = new AtomicInteger(size);
+    }
+
+    /**
+     * Queues a lookup, starting it once fewer than {@code size} are running.
+     * Cancelling the returned future drops the lookup if it has not started yet, or
+     * cancels it if it has.
+     */
+    CompletableFuture<T> submit(Supplier<CompletableFuture<T>> lookup) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        queued.add(() -> {
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            CompletableFuture<T> started;
+            try {
+                started = lookup.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> source = started;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    source.cancel(false);
+                }
+            });
+            source.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        drain();
+        return result;
+    }
+
+    private void release() {
+        free.incrementAndGet();
+        drain();
+    }
+
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            // Only this loop takes slots, so a slot seen free stays free until taken
+            while (free.get() > 0) {
+                Runnable next = queued.poll();
+                if (next == null) {
+                    break;
+                }
+                free.decrementAndGet();
+                next.run();
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
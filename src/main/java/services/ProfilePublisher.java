@@ -0,0 +1,165 @@
+package services;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import services.intelligence.models.EmailIntelligenceProfile;
+
+/**
+ * Publishes the profiles of a list of emails in completion order.
+ *
+ * <p>Emails are read from the iterable only as lookups are started, and at most
+ * {@code maxInFlight} profiles are either being looked up or waiting for demand, so
+ * memory stays bounded however long the list is. Every subscriber gets its own pass
+ * over the emails. Signals are delivered one at a time, on whichever thread finished
+ * the last lookup or requested more.
+ */
+final class ProfilePublisher implements Flow.Publisher<EmailIntelligenceProfile> {
+
+    private final Iterable<String> emails;
+    private final int maxInFlight;
+    private final Function<String, CompletableFuture<EmailIntelligenceProfile>> analyzer;
+
+    ProfilePublisher(Iterable<String> emails, int maxInFlight,
+                     Function<String, CompletableFuture<EmailIntelligenceProfile>> analyzer) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.emails = emails;
+        this.maxInFlight = maxInFlight;
+        this.analyzer = analyzer;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super EmailIntelligenceProfile> subscriber) {
+        Run run = new Run(subscriber);
+        subscriber.onSubscribe(run);
+        run.drain();
+    }
+
+    /**
+     * One subscription. All state besides the counters is touched only inside
+     * {@link #drain()}, which a work counter keeps to one thread at a time.
+     */
+    private final class Run implements Flow.Subscription {
+        private final Flow.Subscriber<? super EmailIntelligenceProfile> subscriber;
+        private final AtomicInteger work = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        private final Queue<EmailIntelligenceProfile> ready = new ConcurrentLinkedQueue<>();
+        private final Set<CompletableFuture<EmailIntelligenceProfile>> inFlight = new HashSet<>();
+        private final Queue<CompletableFuture<EmailIntelligenceProfile>> finished = new ConcurrentLinkedQueue<>();
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        private Iterator<String> source;
+        // Lookups started and not yet emitted
+        private int outstanding;
+        private boolean done;
+
+        Run(Flow.Subscriber<? super EmailIntelligenceProfile> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " profiles");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (work.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    step();
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void step() {
+            CompletableFuture<EmailIntelligenceProfile> future;
+            while ((future = finished.poll()) != null) {
+                inFlight.remove(future);
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (error != null) {
+                finish();
+                subscriber.onError(error);
+                return;
+            }
+
+            while (demand.get() > 0) {
+                EmailIntelligenceProfile profile = ready.poll();
+                if (profile == null) {
+                    break;
+                }
+                demand.decrementAndGet();
+                outstanding--;
+                subscriber.onNext(profile);
+            }
+
+            try {
+                if (source == null) {
+                    source = emails.iterator();
+                }
+                while (!cancelled && outstanding < maxInFlight && source.hasNext()) {
+                    outstanding++;
+                    start(source.next());
+                }
+                if (outstanding == 0 && !cancelled && !source.hasNext()) {
+                    finish();
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void start(String email) {
+            CompletableFuture<EmailIntelligenceProfile> future = analyzer.apply(email);
+            inFlight.add(future);
+            future.whenComplete((profile, failure) -> {
+                if (failure != null) {
+                    error = failure;
+                } else if (profile == null) {
+                    error = new NullPointerException("No profile for " + email);
+                } else {
+                    ready.add(profile);
+                }
+                finished.add(future);
+                drain();
+            });
+        }
+
+        private void finish() {
+            done = true;
+            inFlight.forEach(future -> future.cancel(false));
+            inFlight.clear();
+            ready.clear();
+        }
+    }
+}
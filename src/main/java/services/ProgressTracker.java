@@ -0,0 +1,243 @@
+package services;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a long operation, reported at a fixed rate instead of once per record.
+ *
+ * <p>Workers only add to counters, which costs a single atomic add; a shared daemon
+ * thread samples the counters every {@link #DEFAULT_SAMPLE_INTERVAL} while the tracker
+ * is started and hands a {@link Snapshot} with a smoothed rate and an ETA to the
+ * listener. Work and records are counted separately so that, for example, an import
+ * can measure completion in bytes and speed in lines.
+ */
+public final class ProgressTracker implements AutoCloseable {
+
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofMillis(100);
+
+    /**
+     * Tracker that ignores all updates, for callers that do not need progress. It is
+     * shared by every such caller, so it keeps no counts.
+     */
+    public static final ProgressTracker NONE = new ProgressTracker(-1, snapshot -> { }, false);
+
+    // Weight of the newest sample in the moving average of the rates
+    private static final double SMOOTHING = 0.3;
+
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "progress-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Receives progress samples on the sampler thread
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(Snapshot snapshot);
+    }
+
+    private final AtomicLong work = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final Listener listener;
+    private final boolean enabled;
+    private volatile long totalWork;
+
+    private ScheduledFuture<?> sampling;
+    private long startNanos;
+    private long lastNanos;
+    private long lastWork;
+    private long lastRecords;
+    private double workRate = -1;
+    private double recordRate = -1;
+
+    /**
+     * @param totalWork Work units for completion, or -1 if unknown
+     * @param listener Receives the samples
+     */
+    public ProgressTracker(long totalWork, Listener listener) {
+        this(totalWork, listener, true);
+    }
+
+    private ProgressTracker(long totalWork, Listener listener, boolean enabled) {
+        this.totalWork = totalWork;
+        this.listener = listener;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts sampling at the default interval
+     */
+    public ProgressTracker start() {
+        return start(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    public synchronized ProgressTracker start(Duration interval) {
+        if (enabled && sampling == null) {
+            startNanos = System.nanoTime();
+            lastNanos = startNanos;
+            long millis = Math.max(1, interval.toMillis());
+            sampling = SAMPLER.scheduleAtFixedRate(this::sample, millis, millis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Records processed records, each counting as one unit of work
+     */
+    public void advance(long count) {
+        if (!enabled) {
+            return;
+        }
+        work.addAndGet(count);
+        records.addAndGet(count);
+    }
+
+    /**
+     * Sets absolute counters, for sources that report their own totals
+     */
+    public void update(long workDone, long recordsDone) {
+        if (!enabled) {
+            return;
+        }
+        work.set(workDone);
+        records.set(recordsDone);
+    }
+
+    public void setTotalWork(long totalWork) {
+        if (enabled) {
+            this.totalWork = totalWork;
+        }
+    }
+
+    long getWorkDone() {
+        return work.get();
+    }
+
+    long getTotalWork() {
+        return totalWork;
+    }
+
+    /**
+     * Stops sampling and reports one final sample
+     */
+    @Override
+    public synchronized void close() {
+        if (sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+            sample();
+        }
+    }
+
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        long workDone = work.get();
+        long recordsDone = records.get();
+        double seconds = (now - lastNanos) / 1e9;
+        if (seconds > 0) {
+            workRate = smooth(workRate, (workDone - lastWork) / seconds);
+            recordRate = smooth(recordRate, (recordsDone - lastRecords) / seconds);
+        }
+        lastNanos = now;
+        lastWork = workDone;
+        lastRecords = recordsDone;
+
+        long total = totalWork;
+        Duration eta = null;
+        if (total >= 0 && workRate > 0) {
+            eta = Duration.ofMillis((long) (Math.max(0, total - workDone) / workRate * 1000));
+        }
+        try {
+            listener.onProgress(new Snapshot(workDone, total, recordsDone, recordRate < 0 ? 0 : recordRate,
+                eta, Duration.ofNanos(now - startNanos)));
+        } catch (RuntimeException e) {
+            System.err.println("Progress listener failed: " + e.getMessage());
+        }
+    }
+
+    private static double smooth(double average, double sample) {
+        return average < 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    /**
+     * One progress sample
+     */
+    public static final class Snapshot {
+        private final long workDone;
+        private final long totalWork;
+        private final long records;
+        private final double recordsPerSecond;
+        private final Duration eta;
+        private final Duration elapsed;
+
+        Snapshot(long workDone, long totalWork, long records, double recordsPerSecond, Duration eta,
+                 Duration elapsed) {
+            this.workDone = workDone;
+            this.totalWork = totalWork;
+            this.records = records;
+            this.recordsPerSecond = recordsPerSecond;
+            this.eta = eta;
+            this.elapsed = elapsed;
+        }
+
+        public long getWorkDone() {
+            return workDone;
+        }
+
+        /**
+         * @return Total work, or -1 if unknown
+         */
+        public long getTotalWork() {
+            return totalWork;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public double getRecordsPerSecond() {
+            return recordsPerSecond;
+        }
+
+        /**
+         * @return Estimated time left, or null while the total or the rate is unknown
+         */
+        public Duration getEta() {
+            return eta;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return Completed share between 0 and 1, or -1 if the total is unknown
+         */
+        public double getFraction() {
+            if (totalWork < 0) {
+                return -1;
+            }
+            return totalWork == 0 ? 1 : Math.min(1, (double) workDone / totalWork);
+        }
+
+        /**
+         * Short description such as {@code "12,345 records, 4,000/s, 0:03 left"}
+         */
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%,d records, %,.0f/s", records, recordsPerSecond));
+            if (eta != null) {
+                long seconds = eta.getSeconds();
+                text.append(String.format(", %d:%02d left", seconds / 60, seconds % 60));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads newline-separated email lists through a fixed-size NIO buffer and pushes
+ * each line through a {@link CleaningPipeline} straight into a sink. Memory use is
+ * bounded by the read buffer and the longest line, whatever the size of the input.
+ *
+ * <p>Input is decoded as UTF-8. Both LF and CRLF line endings are accepted, a
+ * leading byte order mark is ignored, and surrounding whitespace is trimmed from each
+ * line before the pipeline sees it.
+ */
+public class StreamingEmailImporter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private final int bufferSize;
+    private final int maxLineLength;
+
+    public StreamingEmailImporter() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param bufferSize Size of the read buffer in bytes
+     * @param maxLineLength Lines longer than this many bytes are skipped
+     */
+    public StreamingEmailImporter(int bufferSize, int maxLineLength) {
+        if (bufferSize <= 0 || maxLineLength <= 0) {
+            throw new IllegalArgumentException("Buffer size and max line length must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Streams a file through the pipeline.
+     *
+     * @param file File to read
+     * @param pipeline Cleaning steps applied to every line
+     * @param sink Receives each line that survives the pipeline, in input order
+     * @param listener Progress callback, invoked once per buffer
+     */
+    public ImportStats importFile(Path file, CleaningPipeline pipeline, Consumer<String> sink,
+                                  ImportProgressListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return importChannel(channel, channel.size(), pipeline, sink, listener);
+        }
+    }
+
+    /**
+     * Streams any byte channel (e.g. stdin) through the pipeline. The channel is not closed.
+     *
+     * @param totalBytes Input size for progress reporting, or -1 if unknown
+     */
+    public ImportStats importChannel(ReadableByteChannel channel, long totalBytes, CleaningPipeline pipeline,
+                                     Consumer<String> sink, ImportProgressListener listener) throws IOException {
+        LineReader reader = new LineReader(pipeline.newSession(), sink);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        long bytesRead = 0;
+
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            bytesRead += read;
+            buffer.flip();
+            reader.consume(buffer);
+            buffer.clear();
+            listener.onProgress(bytesRead, totalBytes, reader.lines);
+        }
+        reader.finish();
+        listener.onProgress(bytesRead, totalBytes, reader.lines);
+
+        return new ImportStats(bytesRead, reader.lines, reader.accepted, reader.skipped,
+            reader.session.getRemovedCounts());
+    }
+
+    /**
+     * Splits buffers into lines, carrying partial lines across buffer boundaries
+     */
+    private final class LineReader {
+        private final CleaningPipeline.Session session;
+        private final Consumer<String> sink;
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private boolean overflow;
+        private boolean pending;
+        private boolean firstLine = true;
+        private long lines;
+        private long accepted;
+        private long skipped;
+
+        LineReader(CleaningPipeline.Session session, Consumer<String> sink) {
+            this.session = session;
+            this.sink = sink;
+        }
+
+        void consume(ByteBuffer buffer) {
+            int start = buffer.position();
+            int limit = buffer.limit();
+            for (int i = start; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    append(buffer, start, i);
+                    emit();
+                    start = i + 1;
+                }
+            }
+            append(buffer, start, limit);
+        }
+
+        void finish() {
+            if (pending) {
+                emit();
+            }
+        }
+
+        private void append(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (length == 0) {
+                return;
+            }
+            pending = true;
+            if (overflow) {
+                return;
+            }
+            if (lineLength + length > maxLineLength) {
+                overflow = true;
+                return;
+            }
+            if (lineLength + length > line.length) {
+                byte[] grown = new byte[Math.min(maxLineLength, Math.max(line.length * 2, lineLength + length))];
+                System.arraycopy(line, 0, grown, 0, lineLength);
+                line = grown;
+            }
+            buffer.get(from, line, lineLength, length);
+            lineLength += length;
+        }
+
+        private void emit() {
+            lines++;
+            if (overflow) {
+                skipped++;
+            } else {
+                int start = 0;
+                int end = lineLength;
+                if (end > 0 && line[end - 1] == '\r') {
+                    end--;
+                }
+                if (firstLine && end >= 3 && (line[0] & 0xFF) == 0xEF && (line[1] & 0xFF) == 0xBB
+                        && (line[2] & 0xFF) == 0xBF) {
+                    start = 3;
+                }
+                String cleaned = session.apply(new String(line, start, end - start, StandardCharsets.UTF_8).trim());
+                if (cleaned != null) {
+                    accepted++;
+                    sink.accept(cleaned);
+                }
+            }
+            firstLine = false;
+            lineLength = 0;
+            overflow = false;
+            pending = false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The registered top-level domains, read from a list in the format IANA publishes
+ * at https://data.iana.org/TLD/tlds-alpha-by-domain.txt.
+ *
+ * <p>IDN TLDs are listed in punycode; their Unicode form is added when the list is
+ * loaded so {@code xn--p1ai} and {@code рф} are both recognized. Lookups probe a
+ * {@link DomainHashTable} with the TLD's character range, in constant time and
+ * without allocating.
+ */
+public final class TldRegistry {
+
+    private static final String BUNDLED_LIST = "/data/tlds-alpha-by-domain.txt";
+    private static final Path USER_LIST =
+        Paths.get(System.getProperty("user.home"), ".allinonechecker", "tlds-alpha-by-domain.txt");
+
+    private final DomainHashTable tlds;
+
+    private TldRegistry(Collection<String> tlds) {
+        List<String> names = new ArrayList<>(tlds.size() + 64);
+        for (String tld : tlds) {
+            String name = tld.trim().toLowerCase(Locale.ROOT);
+            names.add(name);
+            if (name.startsWith("xn--")) {
+                try {
+                    names.add(IDN.toUnicode(name, IDN.ALLOW_UNASSIGNED));
+                } catch (IllegalArgumentException e) {
+                    // Keep only the punycode form
+                }
+            }
+        }
+        this.tlds = new DomainHashTable(names);
+    }
+
+    public static TldRegistry of(Collection<String> tlds) {
+        return new TldRegistry(tlds);
+    }
+
+    /**
+     * Registry of the list shipped with the application
+     */
+    public static TldRegistry loadBundled() {
+        List<String> tlds = new ArrayList<>();
+        InputStream in = TldRegistry.class.getResourceAsStream(BUNDLED_LIST);
+        if (in == null) {
+            System.err.println("Bundled TLD list not found");
+            return new TldRegistry(tlds);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            readTlds(reader, tlds);
+        } catch (IOException e) {
+            System.err.println("Error reading bundled TLD list: " + e.getMessage());
+        }
+        return new TldRegistry(tlds);
+    }
+
+    /**
+     * Registry of a downloaded copy of the IANA list
+     */
+    public static TldRegistry load(Path file) throws IOException {
+        List<String> tlds = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            readTlds(reader, tlds);
+        }
+        return new TldRegistry(tlds);
+    }
+
+    /**
+     * Shared registry, read from {@code ~/.allinonechecker/tlds-alpha-by-domain.txt} if that
+     * file exists and from the bundled list otherwise. Loaded on first use.
+     */
+    public static TldRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return Whether the text after the last '.' is a registered TLD
+     */
+    public boolean hasRegisteredTld(String email) {
+        int dot = email.lastIndexOf('.');
+        return dot >= 0 && dot < email.length() - 1 && tlds.contains(email, dot + 1, email.length());
+    }
+
+    /**
+     * @param tld TLD without the leading dot, in any case
+     */
+    public boolean isRegistered(String tld) {
+        return !tld.isEmpty() && tlds.contains(tld, 0, tld.length());
+    }
+
+    /**
+     * Number of names known, counting the punycode and Unicode forms of IDN TLDs separately
+     */
+    public int size() {
+        return tlds.size();
+    }
+
+    private static void readTlds(Reader source, Collection<String> into) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String tld = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (tld.startsWith(".")) {
+                tld = tld.substring(1);
+            }
+            if (!tld.isEmpty()) {
+                into.add(tld);
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+        static final TldRegistry INSTANCE = loadDefault();
+
+        private static TldRegistry loadDefault() {
+            if (Files.isReadable(USER_LIST)) {
+                try {
+                    return load(USER_LIST);
+                } catch (IOException e) {
+                    System.err.println("Error reading TLD list: " + e.getMessage());
+                }
+            }
+            return loadBundled();
+        }
+    }
+}
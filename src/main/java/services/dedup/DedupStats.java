@@ -0,0 +1,43 @@
+package services.dedup;
+
+/**
+ * Summary of a {@link HashDeduplicator} run
+ */
+public class DedupStats {
+    private final long keptCount;
+    private final long removedCount;
+    private final long spilledRecords;
+    private final int partitions;
+
+    public DedupStats(long keptCount, long removedCount, long spilledRecords, int partitions) {
+        this.keptCount = keptCount;
+        this.removedCount = removedCount;
+        this.spilledRecords = spilledRecords;
+        this.partitions = partitions;
+    }
+
+    public long getKeptCount() {
+        return keptCount;
+    }
+
+    /**
+     * Duplicates and null entries dropped
+     */
+    public long getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Hashes written to disk because the in-memory table was full
+     */
+    public long getSpilledRecords() {
+        return spilledRecords;
+    }
+
+    /**
+     * Partition files deduplicated in memory after spilling, 0 if nothing was spilled
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+}
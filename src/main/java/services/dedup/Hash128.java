@@ -0,0 +1,105 @@
+package services.dedup;
+
+/**
+ * MurmurHash3 (x64, 128-bit) over the UTF-16 code units of a string. The result is
+ * left in {@link #high} and {@link #low} so hashing does not allocate; an instance
+ * must therefore only be used by one thread at a time.
+ */
+public final class Hash128 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long high;
+    private long low;
+
+    /**
+     * Hashes the string; the 128-bit result is never all zero bits
+     */
+    public void hash(String value) {
+        int length = value.length();
+        long h1 = 0x9368e53c2f6af274L;
+        long h2 = 0x586dcd208f7cd3fdL;
+
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long k1 = chars(value, i);
+            long k2 = chars(value, i + 4);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            if (shift < 64) {
+                k1 |= (long) value.charAt(i) << shift;
+            } else {
+                k2 |= (long) value.charAt(i) << (shift - 64);
+            }
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= (long) length * 2;
+        h2 ^= (long) length * 2;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        if (h1 == 0 && h2 == 0) {
+            h2 = 1;
+        }
+        high = h1;
+        low = h2;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    private static long chars(String value, int from) {
+        return value.charAt(from)
+            | (long) value.charAt(from + 1) << 16
+            | (long) value.charAt(from + 2) << 32
+            | (long) value.charAt(from + 3) << 48;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,300 @@
+package services.dedup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Removes duplicate strings from inputs far larger than the heap, keeping the first
+ * occurrence of each value in input order.
+ *
+ * <p>Values are reduced to 128-bit hashes held in an {@link OffHeapHashSet} bounded by
+ * the memory budget. When the table is full, hashes of values it has not seen are
+ * written with their input position to partition files chosen by the hash's top bits.
+ * Each partition is then deduplicated on its own in the same table (partitions that
+ * are still too large are split further), and the first occurrences are recorded in
+ * a bitset of one bit per input value. A second pass over the input emits the
+ * survivors.
+ *
+ * <p>Results are exact only up to collisions of the 128-bit Murmur3 hashes: two values
+ * are treated as equal when their hashes are, so a value whose hash collides with an
+ * earlier one is dropped. Murmur3 is not collision-resistant, so inputs crafted to
+ * collide can lose values; for ordinary inputs the chance is negligible.
+ */
+public class HashDeduplicator {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    private static final int RECORD_BYTES = 24;
+    private static final int PARTITION_BITS = 8;
+    private static final int SPLIT_BITS = 4;
+    private static final int WRITE_BUFFER_BYTES = 16 * 1024;
+    private static final int READ_BUFFER_BYTES = 256 * 1024;
+
+    private final long memoryBudget;
+    private final Path spillDirectory;
+
+    /**
+     * @param memoryBudget Bytes available to the hash table
+     * @param spillDirectory Directory for partition files, created if missing
+     */
+    public HashDeduplicator(long memoryBudget, Path spillDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Deduplicates an in-memory list
+     *
+     * @return The first occurrence of each value, in input order; null entries are dropped
+     */
+    public List<String> deduplicate(List<String> values) {
+        List<String> result = new ArrayList<>();
+        try {
+            deduplicate(values, result::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the first occurrence of each value to the sink, in input order.
+     * The source is iterated twice and must return the same values both times.
+     *
+     * @param source Values to deduplicate; null entries are dropped
+     * @param sink Receives the survivors
+     */
+    public DedupStats deduplicate(Iterable<String> source, Consumer<String> sink) throws IOException {
+        OffHeapHashSet table = new OffHeapHashSet(memoryBudget);
+        Hash128 hash = new Hash128();
+        BitSet64 keep = new BitSet64();
+        Spill spill = null;
+
+        try {
+            long index = 0;
+            for (String value : source) {
+                if (value != null) {
+                    hash.hash(value);
+                    if (spill == null) {
+                        int outcome = table.add(hash.getHigh(), hash.getLow());
+                        if (outcome == OffHeapHashSet.ADDED) {
+                            keep.set(index);
+                        } else if (outcome == OffHeapHashSet.FULL) {
+                            spill = new Spill(Files.createTempDirectory(createSpillDirectory(), "dedup"));
+                            spill.write(hash.getHigh(), hash.getLow(), index);
+                        }
+                    } else if (!table.contains(hash.getHigh(), hash.getLow())) {
+                        spill.write(hash.getHigh(), hash.getLow(), index);
+                    }
+                }
+                index++;
+            }
+
+            long spilled = 0;
+            int partitions = 0;
+            if (spill != null) {
+                spilled = spill.records;
+                partitions = spill.resolve(table, keep);
+            }
+
+            long kept = 0;
+            long removed = 0;
+            index = 0;
+            for (String value : source) {
+                if (keep.get(index)) {
+                    sink.accept(value);
+                    kept++;
+                } else {
+                    removed++;
+                }
+                index++;
+            }
+            return new DedupStats(kept, removed, spilled, partitions);
+        } finally {
+            if (spill != null) {
+                spill.delete();
+            }
+        }
+    }
+
+    private Path createSpillDirectory() throws IOException {
+        return Files.createDirectories(spillDirectory);
+    }
+
+    /**
+     * Partition files holding (high, low, index) records in input order
+     */
+    private static final class Spill {
+        private final Path directory;
+        private final FileChannel[] channels;
+        private final ByteBuffer[] buffers;
+        private long records;
+        private int fileCounter;
+
+        Spill(Path directory) throws IOException {
+            this.directory = directory;
+            int count = 1 << PARTITION_BITS;
+            channels = new FileChannel[count];
+            buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                channels[i] = openFile();
+                buffers[i] = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            }
+        }
+
+        void write(long high, long low, long index) throws IOException {
+            int partition = (int) (high >>> (64 - PARTITION_BITS));
+            append(channels[partition], buffers[partition], high, low, index);
+            records++;
+        }
+
+        /**
+         * Finds the first occurrences in every partition, reusing the main table
+         *
+         * @return Number of partitions processed in memory
+         */
+        int resolve(OffHeapHashSet table, BitSet64 keep) throws IOException {
+            int resolved = 0;
+            for (int i = 0; i < channels.length; i++) {
+                flush(channels[i], buffers[i]);
+                resolved += resolve(channels[i], PARTITION_BITS, table, keep);
+            }
+            return resolved;
+        }
+
+        private int resolve(FileChannel channel, int usedBits, OffHeapHashSet table, BitSet64 keep) throws IOException {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            table.clear(channel.size() / RECORD_BYTES);
+            boolean fits = true;
+            ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            long position = 0;
+            while (fits && position < channel.size()) {
+                in.clear();
+                position += channel.read(in, position);
+                in.flip();
+                while (in.remaining() >= RECORD_BYTES) {
+                    int outcome = table.add(in.getLong(), in.getLong());
+                    long index = in.getLong();
+                    if (outcome == OffHeapHashSet.ADDED) {
+                        keep.set(index);
+                    } else if (outcome == OffHeapHashSet.FULL) {
+                        fits = false;
+                        break;
+                    }
+                }
+                position -= in.remaining();
+            }
+            if (fits) {
+                return 1;
+            }
+            if (usedBits + SPLIT_BITS > 64) {
+                throw new IOException("Partition cannot be split further");
+            }
+            return split(channel, usedBits, table, keep);
+        }
+
+        /**
+         * Splits an oversized partition by the next hash bits. First occurrences already
+         * recorded stay valid because records are processed in input order.
+         */
+        private int split(FileChannel channel, int usedBits, OffHeapHashSet table, BitSet64 keep) throws IOException {
+            int count = 1 << SPLIT_BITS;
+            FileChannel[] parts = new FileChannel[count];
+            ByteBuffer[] partBuffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                parts[i] = openFile();
+                partBuffers[i] = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            }
+            ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            long position = 0;
+            while (position < channel.size()) {
+                in.clear();
+                position += channel.read(in, position);
+                in.flip();
+                while (in.remaining() >= RECORD_BYTES) {
+                    long high = in.getLong();
+                    long low = in.getLong();
+                    long index = in.getLong();
+                    int part = (int) ((high << usedBits) >>> (64 - SPLIT_BITS));
+                    append(parts[part], partBuffers[part], high, low, index);
+                }
+                position -= in.remaining();
+            }
+            channel.truncate(0);
+
+            int resolved = 0;
+            for (int i = 0; i < count; i++) {
+                flush(parts[i], partBuffers[i]);
+                resolved += resolve(parts[i], usedBits + SPLIT_BITS, table, keep);
+                parts[i].close();
+            }
+            return resolved;
+        }
+
+        private FileChannel openFile() throws IOException {
+            Path file = directory.resolve("part-" + (fileCounter++) + ".bin");
+            return FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        private static void append(FileChannel channel, ByteBuffer buffer, long high, long low, long index)
+                throws IOException {
+            if (buffer.remaining() < RECORD_BYTES) {
+                flush(channel, buffer);
+            }
+            buffer.putLong(high).putLong(low).putLong(index);
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, channel.size());
+            }
+            buffer.clear();
+        }
+
+        void delete() throws IOException {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Growable bitset addressed by long indexes
+     */
+    private static final class BitSet64 {
+        private long[] words = new long[1024];
+
+        void set(long index) {
+            int word = (int) (index >>> 6);
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << index;
+        }
+
+        boolean get(long index) {
+            int word = (int) (index >>> 6);
+            return word < words.length && (words[word] & (1L << index)) != 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package services.dedup;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Set of 128-bit hashes kept outside the Java heap in an open-addressing table with
+ * linear probing. Each entry costs 16 bytes per slot and the table is kept at most
+ * 3/4 full, so a set of n entries needs between 21 and 43 bytes per entry and puts
+ * no load on the garbage collector.
+ *
+ * <p>The table doubles as it fills. While it grows the old and the new table are both
+ * allocated, so it stops at the largest size whose growth from half that size fits the
+ * byte limit; from then on {@link #add} reports {@link #FULL} instead of growing.
+ * Not thread-safe.
+ */
+public final class OffHeapHashSet {
+
+    public static final int ADDED = 0;
+    public static final int PRESENT = 1;
+    public static final int FULL = 2;
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MIN_SLOTS = 1 << 10;
+    // A single direct buffer is limited to 2 GiB
+    private static final long MAX_SLOTS = 1L << 26;
+
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final long maxSlots;
+    private ByteBuffer table;
+    private int slots;
+    private int mask;
+    private int size;
+
+    /**
+     * @param maxBytes Upper bound for the table's memory, including while it grows
+     */
+    public OffHeapHashSet(long maxBytes) {
+        this(MIN_SLOTS, maxBytes);
+    }
+
+    /**
+     * @param initialSlots Slots allocated up front, rounded up to a power of two
+     * @param maxBytes Upper bound for the table's memory, including while it grows
+     */
+    public OffHeapHashSet(int initialSlots, long maxBytes) {
+        // Growing into the last size also holds the previous table, half as large
+        long limit = Long.highestOneBit(Math.max(MIN_SLOTS, maxBytes * 2 / (3 * SLOT_BYTES)));
+        this.maxSlots = Math.min(limit, MAX_SLOTS);
+        int initial = (int) Math.min(maxSlots, Math.max(MIN_SLOTS, Integer.highestOneBit(Math.max(1, initialSlots - 1)) << 1));
+        allocate(initial);
+    }
+
+    /**
+     * @return {@link #ADDED}, {@link #PRESENT}, or {@link #FULL} if the hash is not
+     *         in the set and there is no room for it within the byte limit
+     */
+    public int add(long high, long low) {
+        int slot = find(high, low);
+        if (slot < 0) {
+            return PRESENT;
+        }
+        if ((size + 1) * 4L > slots * 3L) {
+            if (slots >= maxSlots) {
+                return FULL;
+            }
+            grow();
+            slot = find(high, low);
+        }
+        write(slot, high, low);
+        size++;
+        return ADDED;
+    }
+
+    public boolean contains(long high, long low) {
+        return find(high, low) < 0;
+    }
+
+    /**
+     * Removes all entries and sizes the table for the expected number of entries,
+     * reusing the allocated memory when it is large enough. Only the slots in use
+     * are cleared, so reusing a large table for a small set stays cheap.
+     */
+    public void clear(long expectedEntries) {
+        long wanted = Long.highestOneBit(Math.max(MIN_SLOTS, expectedEntries * 4 / 3 + 1) - 1) << 1;
+        int slotCount = (int) Math.min(maxSlots, Math.max(MIN_SLOTS, wanted));
+        if ((long) slotCount * SLOT_BYTES > table.capacity()) {
+            allocate(slotCount);
+        } else {
+            slots = slotCount;
+            mask = slotCount - 1;
+            for (int offset = 0; offset < slotCount * SLOT_BYTES; offset += ZEROS.length) {
+                table.put(offset, ZEROS, 0, Math.min(ZEROS.length, slotCount * SLOT_BYTES - offset));
+            }
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Entries that fit without exceeding the byte limit
+     */
+    public long maxEntries() {
+        return maxSlots * 3 / 4;
+    }
+
+    public long allocatedBytes() {
+        return table.capacity();
+    }
+
+    /**
+     * @return The empty slot where the hash belongs, or -1 if it is already present
+     */
+    private int find(long high, long low) {
+        int slot = (int) (low ^ (low >>> 32)) & mask;
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            long storedHigh = table.getLong(offset);
+            long storedLow = table.getLong(offset + 8);
+            if (storedHigh == 0 && storedLow == 0) {
+                return slot;
+            }
+            if (storedHigh == high && storedLow == low) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void write(int slot, long high, long low) {
+        table.putLong(slot * SLOT_BYTES, high);
+        table.putLong(slot * SLOT_BYTES + 8, low);
+    }
+
+    private void grow() {
+        ByteBuffer old = table;
+        int oldSlots = slots;
+        allocate(slots * 2);
+        for (int i = 0; i < oldSlots; i++) {
+            long high = old.getLong(i * SLOT_BYTES);
+            long low = old.getLong(i * SLOT_BYTES + 8);
+            if (high != 0 || low != 0) {
+                write(find(high, low), high, low);
+            }
+        }
+    }
+
+    private void allocate(int slotCount) {
+        table = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+        slots = slotCount;
+        mask = slotCount - 1;
+    }
+}
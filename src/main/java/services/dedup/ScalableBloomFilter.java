@@ -0,0 +1,246 @@
+package services.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers which strings have been seen, in a few bits per string, with a bounded
+ * rate of false positives ("seen" for a string that was not) and no false negatives.
+ *
+ * <p>This is a scalable Bloom filter (Almeida et al., 2007): a chain of Bloom filters
+ * where each new layer has twice the capacity and half the error rate of the previous
+ * one, so the overall false-positive rate stays below the target however many strings
+ * are added. Bit positions come from one 128-bit {@link Hash128} using double hashing.
+ * At a 0.1% target a million strings take about 2 MB.
+ *
+ * <p>The filter can be saved to and loaded from a file so it keeps growing across runs.
+ * Not thread-safe.
+ */
+public class ScalableBloomFilter {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+    public static final long DEFAULT_INITIAL_CAPACITY = 1_000_000;
+
+    private static final int MAGIC = 0x53424631; // "SBF1"
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final double falsePositiveRate;
+    private final long initialCapacity;
+    private final List<Layer> layers = new ArrayList<>();
+    private final Hash128 hash = new Hash128();
+
+    /**
+     * @param falsePositiveRate Target probability that an unseen string is reported as seen
+     * @param initialCapacity Strings held by the first layer before a new layer is added
+     */
+    public ScalableBloomFilter(double falsePositiveRate, long initialCapacity) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Loads the filter saved in the file, or creates an empty one if the file does not exist
+     */
+    public static ScalableBloomFilter openOrCreate(Path file, double falsePositiveRate, long initialCapacity)
+            throws IOException {
+        if (Files.exists(file)) {
+            return readFrom(file);
+        }
+        return new ScalableBloomFilter(falsePositiveRate, initialCapacity);
+    }
+
+    /**
+     * @return Whether the string may have been added before; false means it certainly was not
+     */
+    public boolean mightContain(String value) {
+        hash.hash(value);
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).contains(hash.getHigh(), hash.getLow())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the string unless it may have been seen already
+     *
+     * @return true if the string was certainly not seen before and has been added
+     */
+    public boolean add(String value) {
+        if (mightContain(value)) {
+            return false;
+        }
+        Layer layer = layers.isEmpty() ? null : layers.get(layers.size() - 1);
+        if (layer == null || layer.count >= layer.capacity) {
+            int index = layers.size();
+            long capacity = initialCapacity << Math.min(index, 30);
+            double rate = falsePositiveRate * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+            layer = Layer.create(capacity, rate);
+            layers.add(layer);
+        }
+        layer.add(hash.getHigh(), hash.getLow());
+        return true;
+    }
+
+    /**
+     * Number of strings added, across all runs
+     */
+    public long getCount() {
+        long count = 0;
+        for (Layer layer : layers) {
+            count += layer.count;
+        }
+        return count;
+    }
+
+    public double getTargetFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Probability that an unseen string is reported as seen, given how full the layers are now
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double allClear = 1.0;
+        for (Layer layer : layers) {
+            allClear *= 1 - layer.estimatedFalsePositiveRate();
+        }
+        return 1 - allClear;
+    }
+
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += layer.words.length * 8L;
+        }
+        return bytes;
+    }
+
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * Saves the filter, replacing the file atomically
+     */
+    public void writeTo(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeDouble(falsePositiveRate);
+            out.writeLong(initialCapacity);
+            out.writeInt(layers.size());
+            for (Layer layer : layers) {
+                out.writeLong(layer.capacity);
+                out.writeInt(layer.hashCount);
+                out.writeLong(layer.count);
+                out.writeLong(layer.bitCount);
+                for (long word : layer.words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Bloom filter file: " + file);
+            }
+            ScalableBloomFilter filter = new ScalableBloomFilter(in.readDouble(), in.readLong());
+            int layerCount = in.readInt();
+            for (int i = 0; i < layerCount; i++) {
+                long capacity = in.readLong();
+                int hashCount = in.readInt();
+                long count = in.readLong();
+                long bitCount = in.readLong();
+                long[] words = new long[(int) (bitCount / 64)];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = in.readLong();
+                }
+                filter.layers.add(new Layer(capacity, hashCount, count, bitCount, words));
+            }
+            return filter;
+        }
+    }
+
+    /**
+     * One fixed-size Bloom filter of the chain
+     */
+    private static final class Layer {
+        final long capacity;
+        final int hashCount;
+        final long bitCount;
+        final long[] words;
+        long count;
+
+        Layer(long capacity, int hashCount, long count, long bitCount, long[] words) {
+            this.capacity = capacity;
+            this.hashCount = hashCount;
+            this.count = count;
+            this.bitCount = bitCount;
+            this.words = words;
+        }
+
+        /**
+         * Sizes a layer for the capacity and error rate: m = -n ln p / (ln 2)^2, k = (m / n) ln 2
+         */
+        static Layer create(long capacity, double rate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(rate) / LN2_SQUARED);
+            bits = Math.max(64, (bits + 63) / 64 * 64);
+            int hashCount = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            return new Layer(capacity, hashCount, 0, bits, new long[(int) (bits / 64)]);
+        }
+
+        boolean contains(long high, long low) {
+            long combined = high;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += low;
+            }
+            return true;
+        }
+
+        void add(long high, long low) {
+            long combined = high;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+                combined += low;
+            }
+            count++;
+        }
+
+        double estimatedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashCount * count / bitCount), hashCount);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package services.dedup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One-pass first-occurrence filter for streams of strings. Small inputs are
+ * remembered exactly in a heap set; once more than {@code heapLimit} distinct values
+ * have been seen, they are moved to 128-bit hashes in {@link OffHeapHashSet} tables,
+ * which cost 21 to 43 bytes per value outside the Java heap instead of a string and
+ * a set entry on it. As in {@link HashDeduplicator}, two values count as equal when
+ * their hashes are.
+ *
+ * <p>Unlike {@link HashDeduplicator} it reads its input only once, so it cannot spill
+ * to disk: when a table reaches its byte limit another one is started. Not thread-safe.
+ */
+public final class SeenSet {
+
+    public static final int DEFAULT_HEAP_LIMIT = 50_000;
+
+    private final int heapLimit;
+    private final long tableBytes;
+    private final Hash128 hash = new Hash128();
+    private final List<OffHeapHashSet> tables = new ArrayList<>();
+    private Set<String> heap = new HashSet<>();
+    private long size;
+
+    public SeenSet() {
+        this(DEFAULT_HEAP_LIMIT, HashDeduplicator.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * @param heapLimit Distinct values kept as strings before switching to hashes
+     * @param tableBytes Byte limit of each off-heap table
+     */
+    public SeenSet(int heapLimit, long tableBytes) {
+        this.heapLimit = heapLimit;
+        this.tableBytes = tableBytes;
+    }
+
+    /**
+     * @return True if the value was not seen before
+     */
+    public boolean add(String value) {
+        if (heap != null) {
+            if (!heap.add(value)) {
+                return false;
+            }
+            size++;
+            if (heap.size() > heapLimit) {
+                moveOffHeap();
+            }
+            return true;
+        }
+        hash.hash(value);
+        if (!addHash(hash.getHigh(), hash.getLow())) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Distinct values seen so far
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Whether values are held as hashes off the heap
+     */
+    public boolean isOffHeap() {
+        return heap == null;
+    }
+
+    private void moveOffHeap() {
+        tables.add(new OffHeapHashSet((int) Math.min(Integer.MAX_VALUE, heap.size() * 2L), tableBytes));
+        for (String value : heap) {
+            hash.hash(value);
+            addHash(hash.getHigh(), hash.getLow());
+        }
+        heap = null;
+    }
+
+    private boolean addHash(long high, long low) {
+        int last = tables.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (tables.get(i).contains(high, low)) {
+                return false;
+            }
+        }
+        int outcome = tables.get(last).add(high, low);
+        if (outcome == OffHeapHashSet.FULL) {
+            OffHeapHashSet next = new OffHeapHashSet(tableBytes);
+            tables.add(next);
+            next.add(high, low);
+            return true;
+        }
+        return outcome == OffHeapHashSet.ADDED;
+    }
+}
@@ -0,0 +1,172 @@
+package services.dns;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal DNS wire-format support (RFC 1035): builds single-question queries and
+ * extracts from responses the few facts needed to judge a mail domain.
+ */
+final class DnsMessage {
+
+    static final int TYPE_A = 1;
+    static final int TYPE_MX = 15;
+    static final int TYPE_AAAA = 28;
+
+    static final int RCODE_NOERROR = 0;
+    static final int RCODE_NXDOMAIN = 3;
+
+    private static final int CLASS_IN = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private DnsMessage() {
+    }
+
+    /**
+     * Encodes a recursive query for one name.
+     *
+     * @param domain ASCII domain name without trailing dot
+     * @return The query packet, or null if the name is not a valid DNS name
+     */
+    static byte[] encodeQuery(int id, String domain, int type) {
+        byte[] name = domain.getBytes(StandardCharsets.US_ASCII);
+        if (name.length == 0 || name.length > 253) {
+            return null;
+        }
+        byte[] packet = new byte[HEADER_SIZE + name.length + 2 + 4];
+        packet[0] = (byte) (id >>> 8);
+        packet[1] = (byte) id;
+        packet[2] = 0x01; // RD
+        packet[5] = 1; // QDCOUNT
+
+        int pos = HEADER_SIZE;
+        int labelStart = 0;
+        for (int i = 0; i <= name.length; i++) {
+            if (i == name.length || name[i] == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > 63) {
+                    return null;
+                }
+                packet[pos++] = (byte) labelLength;
+                System.arraycopy(name, labelStart, packet, pos, labelLength);
+                pos += labelLength;
+                labelStart = i + 1;
+            }
+        }
+        packet[pos++] = 0;
+        packet[pos++] = (byte) (type >>> 8);
+        packet[pos++] = (byte) type;
+        packet[pos++] = 0;
+        packet[pos] = CLASS_IN;
+        return packet;
+    }
+
+    /**
+     * Decodes the parts of a response used by {@link UdpDnsResolver}.
+     *
+     * @return The parsed response, or null if the packet is malformed
+     */
+    static Response decodeResponse(byte[] packet, int length) {
+        try {
+            if (length < HEADER_SIZE || (packet[2] & 0x80) == 0) {
+                return null;
+            }
+            Response response = new Response();
+            response.id = u16(packet, 0);
+            response.truncated = (packet[2] & 0x02) != 0;
+            response.rcode = packet[3] & 0x0F;
+            int questions = u16(packet, 4);
+            int answers = u16(packet, 6);
+
+            int pos = HEADER_SIZE;
+            for (int q = 0; q < questions; q++) {
+                StringBuilder name = q == 0 ? new StringBuilder() : null;
+                pos = readName(packet, length, pos, name);
+                if (name != null) {
+                    response.questionName = name.toString();
+                    response.questionType = u16(packet, pos);
+                }
+                pos += 4;
+            }
+
+            for (int a = 0; a < answers && pos < length; a++) {
+                pos = readName(packet, length, pos, null);
+                int type = u16(packet, pos);
+                int rdLength = u16(packet, pos + 8);
+                int rdata = pos + 10;
+                if (rdata + rdLength > length) {
+                    break;
+                }
+                if (type == TYPE_MX) {
+                    // RFC 7505 null MX: exchange is the root name
+                    if (rdLength >= 3 && packet[rdata + 2] == 0) {
+                        response.nullMx = true;
+                    } else {
+                        response.mxCount++;
+                    }
+                } else if (type == TYPE_A || type == TYPE_AAAA) {
+                    response.addressCount++;
+                }
+                pos = rdata + rdLength;
+            }
+            return response;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Skips (and optionally decodes) a possibly compressed name.
+     *
+     * @return Position just after the name in the original record
+     */
+    private static int readName(byte[] packet, int length, int pos, StringBuilder out) {
+        int end = -1;
+        int jumps = 0;
+        while (true) {
+            if (pos >= length) {
+                throw new ArrayIndexOutOfBoundsException(pos);
+            }
+            int labelLength = packet[pos] & 0xFF;
+            if (labelLength == 0) {
+                return end >= 0 ? end : pos + 1;
+            }
+            if ((labelLength & 0xC0) == 0xC0) {
+                if (end < 0) {
+                    end = pos + 2;
+                }
+                if (++jumps > 32) {
+                    throw new ArrayIndexOutOfBoundsException(pos);
+                }
+                pos = ((labelLength & 0x3F) << 8) | (packet[pos + 1] & 0xFF);
+                continue;
+            }
+            if (out != null) {
+                if (out.length() > 0) {
+                    out.append('.');
+                }
+                for (int i = 1; i <= labelLength; i++) {
+                    out.append((char) Character.toLowerCase(packet[pos + i] & 0xFF));
+                }
+            }
+            pos += labelLength + 1;
+        }
+    }
+
+    private static int u16(byte[] packet, int pos) {
+        return ((packet[pos] & 0xFF) << 8) | (packet[pos + 1] & 0xFF);
+    }
+
+    /**
+     * Facts extracted from a DNS response
+     */
+    static final class Response {
+        int id;
+        int rcode;
+        boolean truncated;
+        String questionName;
+        int questionType;
+        int mxCount;
+        boolean nullMx;
+        int addressCount;
+    }
+}
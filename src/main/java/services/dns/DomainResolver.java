@@ -0,0 +1,13 @@
+package services.dns;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves a single domain asynchronously. Implementations should complete the
+ * future with {@link DomainVerdict#FAILED} rather than exceptionally on errors.
+ */
+@FunctionalInterface
+public interface DomainResolver {
+
+    CompletableFuture<DomainVerdict> resolve(String domain);
+}
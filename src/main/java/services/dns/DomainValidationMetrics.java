@@ -0,0 +1,91 @@
+package services.dns;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing the work done by a {@link DomainValidator}. All methods are thread-safe.
+ */
+public class DomainValidationMetrics {
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordStoreHit() {
+        storeHits.increment();
+    }
+
+    void recordLookup(long latencyNanos, DomainVerdict verdict) {
+        lookups.increment();
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+        if (verdict == DomainVerdict.FAILED) {
+            failures.increment();
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Verdicts answered by the persistent store after an in-memory miss
+     */
+    public long getStoreHits() {
+        return storeHits.sum();
+    }
+
+    /**
+     * Number of domains sent to the resolver (cache misses)
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Share of domains answered without a network lookup, from memory or the persistent store
+     */
+    public double getCacheHitRatio() {
+        long hits = getCacheHits() + getStoreHits();
+        long total = hits + getLookups();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public double getAverageLatencyMillis() {
+        long count = getLookups();
+        return count == 0 ? 0.0 : totalLatencyNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void reset() {
+        cacheHits.reset();
+        storeHits.reset();
+        lookups.reset();
+        failures.reset();
+        totalLatencyNanos.reset();
+        maxLatencyNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lookups=%d, cacheHits=%d, storeHits=%d (%.1f%%), failures=%d, avgLatency=%.1fms, maxLatency=%.1fms",
+            getLookups(), getCacheHits(), getStoreHits(), getCacheHitRatio() * 100, getFailures(),
+            getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
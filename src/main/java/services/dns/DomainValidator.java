@@ -0,0 +1,213 @@
+package services.dns;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks email domains in bulk: emails are grouped by domain, each unique domain is
+ * resolved at most once with a bounded number of lookups in flight, answers are
+ * cached, and the verdicts are fanned back out to the emails. Lookups go to the
+ * in-memory cache first, then to the optional {@link PersistentVerdictStore}, and
+ * only then to the network.
+ */
+public class DomainValidator {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+    public static final Duration DEFAULT_POSITIVE_TTL = Duration.ofHours(6);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(30);
+
+    private final DomainResolver resolver;
+    private final int maxInFlight;
+    private final DomainVerdictCache cache;
+    private final PersistentVerdictStore store;
+    private final DomainValidationMetrics metrics = new DomainValidationMetrics();
+
+    public DomainValidator(DomainResolver resolver) {
+        this(resolver, null);
+    }
+
+    /**
+     * @param resolver Resolver used for cache misses
+     * @param store Verdicts shared across sessions, or null to keep verdicts in memory only
+     */
+    public DomainValidator(DomainResolver resolver, PersistentVerdictStore store) {
+        this(resolver, DEFAULT_MAX_IN_FLIGHT, new DomainVerdictCache(DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL), store);
+    }
+
+    public DomainValidator(DomainResolver resolver, int maxInFlight, DomainVerdictCache cache) {
+        this(resolver, maxInFlight, cache, null);
+    }
+
+    /**
+     * @param resolver Resolver used for cache misses
+     * @param maxInFlight Maximum number of concurrent lookups
+     * @param cache Cache consulted before the store and the resolver
+     * @param store Verdicts shared across sessions, or null to keep verdicts in memory only
+     */
+    public DomainValidator(DomainResolver resolver, int maxInFlight, DomainVerdictCache cache,
+                           PersistentVerdictStore store) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.resolver = resolver;
+        this.maxInFlight = maxInFlight;
+        this.cache = cache;
+        this.store = store;
+    }
+
+    /**
+     * MX-aware UDP resolver on the system name servers, or the platform resolver
+     * when no name server can be found in the system configuration
+     */
+    public static DomainResolver systemResolver() {
+        List<InetSocketAddress> servers = UdpDnsResolver.systemNameServers();
+        if (servers.isEmpty()) {
+            return new InetAddressDomainResolver();
+        }
+        return new UdpDnsResolver(servers);
+    }
+
+    /**
+     * Keeps the emails whose domain exists, preserving order and duplicates.
+     * Emails without a domain part are removed.
+     */
+    public List<String> filterEmails(List<String> emails) {
+        Set<String> domains = new LinkedHashSet<>();
+        for (String email : emails) {
+            String domain = extractDomain(email);
+            if (domain != null) {
+                domains.add(domain);
+            }
+        }
+
+        Map<String, DomainVerdict> verdicts = validateDomains(domains);
+
+        List<String> cleaned = new ArrayList<>();
+        for (String email : emails) {
+            String domain = extractDomain(email);
+            if (domain != null && verdicts.get(domain) == DomainVerdict.EXISTS) {
+                cleaned.add(email);
+            }
+        }
+        return cleaned;
+    }
+
+    /**
+     * Resolves every domain, using the cache where possible. Blocks until all
+     * lookups have completed.
+     *
+     * @param domains Lower-case domain names
+     * @return Verdict per domain
+     */
+    public Map<String, DomainVerdict> validateDomains(Collection<String> domains) {
+        Map<String, DomainVerdict> verdicts = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicBoolean storeFailed = new AtomicBoolean();
+
+        for (String domain : domains) {
+            DomainVerdict cached = cache.get(domain);
+            if (cached != null) {
+                metrics.recordCacheHit();
+                verdicts.put(domain, cached);
+                continue;
+            }
+            if (store != null) {
+                DomainVerdict stored = store.get(domain);
+                if (stored != null) {
+                    metrics.recordStoreHit();
+                    cache.put(domain, stored);
+                    verdicts.put(domain, stored);
+                    continue;
+                }
+            }
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            long start = System.nanoTime();
+            pending.add(resolveSafely(domain).thenAccept(verdict -> {
+                metrics.recordLookup(System.nanoTime() - start, verdict);
+                cache.put(domain, verdict);
+                verdicts.put(domain, verdict);
+                if (store != null) {
+                    try {
+                        store.put(domain, verdict);
+                    } catch (UncheckedIOException e) {
+                        // The verdict still counts for this run; report the broken store once
+                        if (storeFailed.compareAndSet(false, true)) {
+                            System.err.println("Could not persist domain verdicts: " + e.getCause().getMessage());
+                        }
+                    }
+                }
+            }).whenComplete((ignored, ex) -> inFlight.release()));
+        }
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        if (store != null) {
+            try {
+                store.flush();
+            } catch (IOException e) {
+                System.err.println("Could not persist domain verdicts: " + e.getMessage());
+            }
+        }
+
+        Map<String, DomainVerdict> result = new HashMap<>(verdicts);
+        for (String domain : domains) {
+            result.putIfAbsent(domain, DomainVerdict.FAILED);
+        }
+        return result;
+    }
+
+    public DomainValidationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public DomainVerdictCache getCache() {
+        return cache;
+    }
+
+    public PersistentVerdictStore getStore() {
+        return store;
+    }
+
+    private CompletableFuture<DomainVerdict> resolveSafely(String domain) {
+        try {
+            return resolver.resolve(domain).exceptionally(ex -> DomainVerdict.FAILED);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(DomainVerdict.FAILED);
+        }
+    }
+
+    /**
+     * @return The lower-case part after the first '@', or null if there is none
+     */
+    static String extractDomain(String email) {
+        if (email == null) {
+            return null;
+        }
+        int atIndex = email.indexOf('@');
+        if (atIndex > 0 && atIndex < email.length() - 1) {
+            return email.substring(atIndex + 1).toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package services.dns;
+
+/**
+ * Outcome of checking whether an email domain exists
+ */
+public enum DomainVerdict {
+    /** The domain resolves and can receive mail */
+    EXISTS,
+    /** The domain does not exist or publishes no usable records */
+    NOT_FOUND,
+    /** The lookup failed (timeout, network error); the answer is unknown */
+    FAILED
+}
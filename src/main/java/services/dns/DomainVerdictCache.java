@@ -0,0 +1,76 @@
+package services.dns;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of domain verdicts with separate lifetimes for positive and
+ * negative answers. {@link DomainVerdict#FAILED} answers are never cached so
+ * transient network errors are retried on the next run.
+ */
+public class DomainVerdictCache {
+
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public DomainVerdictCache(Duration positiveTtl, Duration negativeTtl) {
+        this(positiveTtl, negativeTtl, System::nanoTime);
+    }
+
+    /**
+     * @param clock Monotonic time source in nanoseconds
+     */
+    public DomainVerdictCache(Duration positiveTtl, Duration negativeTtl, LongSupplier clock) {
+        this.positiveTtlNanos = positiveTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * @return The cached verdict, or null if absent or expired
+     */
+    public DomainVerdict get(String domain) {
+        Entry entry = entries.get(domain);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(domain, entry);
+            return null;
+        }
+        return entry.verdict;
+    }
+
+    public void put(String domain, DomainVerdict verdict) {
+        long ttl;
+        if (verdict == DomainVerdict.EXISTS) {
+            ttl = positiveTtlNanos;
+        } else if (verdict == DomainVerdict.NOT_FOUND) {
+            ttl = negativeTtlNanos;
+        } else {
+            return;
+        }
+        entries.put(domain, new Entry(verdict, clock.getAsLong() + ttl));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        final DomainVerdict verdict;
+        final long expiresAt;
+
+        Entry(DomainVerdict verdict, long expiresAt) {
+            this.verdict = verdict;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
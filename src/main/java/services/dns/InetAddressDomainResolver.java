@@ -0,0 +1,34 @@
+package services.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves domains through the blocking {@link InetAddress} API (A/AAAA records),
+ * running each lookup on a daemon thread.
+ */
+public class InetAddressDomainResolver implements DomainResolver {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dns-lookup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public CompletableFuture<DomainVerdict> resolve(String domain) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                InetAddress.getByName(domain);
+                return DomainVerdict.EXISTS;
+            } catch (UnknownHostException e) {
+                return DomainVerdict.NOT_FOUND;
+            } catch (Exception e) {
+                return DomainVerdict.FAILED;
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,256 @@
+package services.dns;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Domain verdicts persisted across sessions in an append-only log file.
+ *
+ * <p>Each verdict is one line {@code domain<TAB>VERDICT<TAB>expiresAtEpochMillis}. The
+ * log is replayed into memory when the store is opened (later lines win, expired
+ * lines are dropped) and new verdicts are appended. When the log holds more than
+ * twice as many lines as live entries it is compacted into a fresh file and
+ * atomically swapped in. A torn last line after a crash is simply skipped.
+ */
+public class PersistentVerdictStore implements Closeable {
+
+    public static final Duration DEFAULT_POSITIVE_TTL = Duration.ofDays(7);
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofDays(1);
+
+    private static final int MIN_COMPACTION_RECORDS = 1_000;
+
+    private final Path file;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private BufferedWriter writer;
+    private long logRecords;
+    private long hits;
+    private long misses;
+
+    private PersistentVerdictStore(Path file, Duration positiveTtl, Duration negativeTtl, LongSupplier clock) {
+        this.file = file;
+        this.positiveTtlMillis = positiveTtl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.clock = clock;
+    }
+
+    public static PersistentVerdictStore open(Path file) throws IOException {
+        return open(file, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Opens (or creates) a store and replays its log.
+     *
+     * @param clock Wall-clock time source in epoch milliseconds
+     */
+    public static PersistentVerdictStore open(Path file, Duration positiveTtl, Duration negativeTtl,
+                                              LongSupplier clock) throws IOException {
+        PersistentVerdictStore store = new PersistentVerdictStore(file, positiveTtl, negativeTtl, clock);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        store.load();
+        store.openWriter();
+        return store;
+    }
+
+    /**
+     * Opens the store in the user's home directory, or returns null if it cannot be opened.
+     */
+    public static PersistentVerdictStore openDefault() {
+        Path file = Paths.get(System.getProperty("user.home"), ".allinonechecker", "domain-verdicts.log");
+        try {
+            return open(file);
+        } catch (IOException e) {
+            System.err.println("Domain verdict store unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The stored verdict, or null if absent or expired
+     */
+    public synchronized DomainVerdict get(String domain) {
+        Entry entry = entries.get(domain);
+        if (entry != null && entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(domain);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.verdict;
+    }
+
+    /**
+     * Records a verdict. {@link DomainVerdict#FAILED} is not stored.
+     */
+    public synchronized void put(String domain, DomainVerdict verdict) {
+        long ttl;
+        if (verdict == DomainVerdict.EXISTS) {
+            ttl = positiveTtlMillis;
+        } else if (verdict == DomainVerdict.NOT_FOUND) {
+            ttl = negativeTtlMillis;
+        } else {
+            return;
+        }
+        if (domain.indexOf('\t') >= 0 || domain.indexOf('\n') >= 0) {
+            return;
+        }
+        Entry entry = new Entry(verdict, clock.getAsLong() + ttl);
+        entries.put(domain, entry);
+        try {
+            writeEntry(writer, domain, entry);
+            logRecords++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes buffered verdicts to disk and compacts the log if it has grown too large.
+     */
+    public synchronized void flush() throws IOException {
+        writer.flush();
+        if (logRecords > MIN_COMPACTION_RECORDS && logRecords > 2L * entries.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the log with only the live entries.
+     */
+    public synchronized void compact() throws IOException {
+        writer.close();
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                writeEntry(out, e.getKey(), e.getValue());
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        logRecords = entries.size();
+        openWriter();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        writer.close();
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = clock.getAsLong();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logRecords++;
+                int first = line.indexOf('\t');
+                int second = line.indexOf('\t', first + 1);
+                if (first <= 0 || second < 0) {
+                    continue;
+                }
+                try {
+                    DomainVerdict verdict = DomainVerdict.valueOf(line.substring(first + 1, second));
+                    long expiresAt = Long.parseLong(line.substring(second + 1));
+                    String domain = line.substring(0, first);
+                    if (expiresAt > now) {
+                        entries.put(domain, new Entry(verdict, expiresAt));
+                    } else {
+                        entries.remove(domain);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Torn or foreign line - skip it
+                }
+            }
+        }
+    }
+
+    private void openWriter() throws IOException {
+        terminateTornLine();
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Ends a partially written last line so the next record starts on a line of its own
+     */
+    private void terminateTornLine() throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            if (last.get(0) != '\n') {
+                channel.write(ByteBuffer.wrap(new byte[] {'\n'}), channel.size());
+            }
+        }
+    }
+
+    private static void writeEntry(BufferedWriter out, String domain, Entry entry) throws IOException {
+        out.write(domain);
+        out.write('\t');
+        out.write(entry.verdict.name());
+        out.write('\t');
+        out.write(Long.toString(entry.expiresAt));
+        out.write('\n');
+    }
+
+    private static final class Entry {
+        final DomainVerdict verdict;
+        final long expiresAt;
+
+        Entry(DomainVerdict verdict, long expiresAt) {
+            this.verdict = verdict;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package services.dns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.IDN;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Non-blocking DNS client that judges mail domains the way a mail server would:
+ * it queries MX records and only falls back to A, then AAAA lookups when the domain
+ * has no MX.
+ * A null MX (RFC 7505) or NXDOMAIN means the domain cannot receive mail.
+ *
+ * <p>Queries are pipelined over a few UDP sockets served by a single I/O thread,
+ * so thousands of lookups can be in flight without a thread per lookup. Sockets
+ * are opened on first use. Lost packets are retried on the next socket (and next
+ * server, when several are configured) until the attempt limit is reached.
+ */
+public class UdpDnsResolver implements DomainResolver, Closeable {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+    public static final int DEFAULT_ATTEMPTS = 3;
+    public static final int DEFAULT_SOCKETS = 4;
+
+    private static final int DNS_PORT = 53;
+    private static final int MAX_PACKET = 4096;
+
+    private final List<InetSocketAddress> servers;
+    private final int socketCount;
+    private final long timeoutNanos;
+    private final int maxAttempts;
+
+    private final Queue<Query> submitted = new ConcurrentLinkedQueue<>();
+    private final Object lifecycleLock = new Object();
+    private volatile boolean closed;
+    private volatile Selector selector;
+    private Thread ioThread;
+
+    // State below is owned by the I/O thread
+    private DatagramChannel[] channels;
+    private List<Map<Integer, Query>> pending;
+    private final PriorityQueue<Timeout> timeouts = new PriorityQueue<>();
+    private int nextChannel;
+
+    public UdpDnsResolver(List<InetSocketAddress> servers) {
+        this(servers, DEFAULT_SOCKETS, DEFAULT_TIMEOUT, DEFAULT_ATTEMPTS);
+    }
+
+    /**
+     * @param servers Recursive resolvers to query
+     * @param socketCount Number of UDP sockets queries are spread across
+     * @param timeout Time to wait for each answer before retrying
+     * @param maxAttempts Attempts per query before the domain is reported as {@link DomainVerdict#FAILED}
+     */
+    public UdpDnsResolver(List<InetSocketAddress> servers, int socketCount, Duration timeout, int maxAttempts) {
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("At least one DNS server is required");
+        }
+        this.servers = new ArrayList<>(servers);
+        this.socketCount = Math.max(socketCount, 1);
+        this.timeoutNanos = timeout.toNanos();
+        this.maxAttempts = Math.max(maxAttempts, 1);
+    }
+
+    /**
+     * Reads the name servers configured in /etc/resolv.conf.
+     *
+     * @return The servers found, or an empty list if none are configured (e.g. on Windows)
+     */
+    public static List<InetSocketAddress> systemNameServers() {
+        List<InetSocketAddress> servers = new ArrayList<>();
+        Path resolvConf = Paths.get("/etc/resolv.conf");
+        if (!Files.isReadable(resolvConf)) {
+            return servers;
+        }
+        try {
+            for (String line : Files.readAllLines(resolvConf)) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length >= 2 && parts[0].equals("nameserver")) {
+                    String address = parts[1];
+                    int zone = address.indexOf('%');
+                    if (zone >= 0) {
+                        address = address.substring(0, zone);
+                    }
+                    servers.add(new InetSocketAddress(InetAddress.getByName(address), DNS_PORT));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read DNS configuration: " + e.getMessage());
+        }
+        return servers;
+    }
+
+    @Override
+    public CompletableFuture<DomainVerdict> resolve(String domain) {
+        CompletableFuture<DomainVerdict> future = new CompletableFuture<>();
+        String name;
+        try {
+            name = IDN.toASCII(domain, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            future.complete(DomainVerdict.NOT_FOUND);
+            return future;
+        }
+        if (name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        if (DnsMessage.encodeQuery(0, name, DnsMessage.TYPE_MX) == null) {
+            future.complete(DomainVerdict.NOT_FOUND);
+            return future;
+        }
+
+        try {
+            ensureStarted();
+        } catch (IOException e) {
+            future.complete(DomainVerdict.FAILED);
+            return future;
+        }
+        Query query = new Query(name, future);
+        submitted.add(query);
+        if (closed && submitted.remove(query)) {
+            future.complete(DomainVerdict.FAILED);
+        }
+        selector.wakeup();
+        return future;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lifecycleLock) {
+            closed = true;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IOException("Resolver is closed");
+            }
+            if (ioThread != null) {
+                return;
+            }
+            Selector newSelector = Selector.open();
+            channels = new DatagramChannel[socketCount];
+            pending = new ArrayList<>();
+            for (int i = 0; i < socketCount; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(servers.get(i % servers.size()));
+                channel.register(newSelector, SelectionKey.OP_READ, i);
+                channels[i] = channel;
+                pending.add(new HashMap<>());
+            }
+            selector = newSelector;
+            ioThread = new Thread(this::runLoop, "dns-udp-io");
+            ioThread.setDaemon(true);
+            ioThread.start();
+        }
+    }
+
+    private void runLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_PACKET);
+        try {
+            while (!closed) {
+                Query query;
+                while ((query = submitted.poll()) != null) {
+                    query.type = DnsMessage.TYPE_MX;
+                    send(query);
+                }
+
+                long waitMillis = 0;
+                Timeout next = timeouts.peek();
+                if (next != null) {
+                    waitMillis = Math.max(1, (next.deadline - System.nanoTime()) / 1_000_000);
+                }
+                selector.select(waitMillis);
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    int index = (Integer) key.attachment();
+                    receive(index, buffer);
+                }
+                selector.selectedKeys().clear();
+                expireTimeouts();
+            }
+        } catch (IOException e) {
+            System.err.println("DNS resolver stopped: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void send(Query query) {
+        int index = nextChannel;
+        nextChannel = (nextChannel + 1) % channels.length;
+        Map<Integer, Query> channelPending = pending.get(index);
+
+        int id;
+        do {
+            id = ThreadLocalRandom.current().nextInt(0x10000);
+        } while (channelPending.containsKey(id));
+
+        query.attempts++;
+        query.channel = index;
+        query.id = id;
+        query.sequence++;
+        try {
+            channels[index].write(ByteBuffer.wrap(DnsMessage.encodeQuery(id, query.name, query.type)));
+        } catch (IOException e) {
+            // Treated like a lost packet: the timeout retries it
+        }
+        channelPending.put(id, query);
+        timeouts.add(new Timeout(System.nanoTime() + timeoutNanos, query, query.sequence));
+    }
+
+    private void receive(int index, ByteBuffer buffer) {
+        while (true) {
+            buffer.clear();
+            int read;
+            try {
+                read = channels[index].read(buffer);
+            } catch (IOException e) {
+                // ICMP port unreachable and similar: pending queries time out and retry
+                return;
+            }
+            if (read <= 0) {
+                return;
+            }
+            DnsMessage.Response response = DnsMessage.decodeResponse(buffer.array(), read);
+            if (response == null) {
+                continue;
+            }
+            Map<Integer, Query> channelPending = pending.get(index);
+            Query query = channelPending.get(response.id);
+            if (query == null || !query.name.equals(response.questionName) || query.type != response.questionType) {
+                continue;
+            }
+            channelPending.remove(response.id);
+            handleResponse(query, response);
+        }
+    }
+
+    private void handleResponse(Query query, DnsMessage.Response response) {
+        if (response.rcode == DnsMessage.RCODE_NXDOMAIN) {
+            complete(query, DomainVerdict.NOT_FOUND);
+        } else if (response.rcode != DnsMessage.RCODE_NOERROR) {
+            retryOrFail(query);
+        } else if (query.type == DnsMessage.TYPE_MX) {
+            if (response.mxCount > 0) {
+                complete(query, DomainVerdict.EXISTS);
+            } else if (response.nullMx) {
+                complete(query, DomainVerdict.NOT_FOUND);
+            } else if (response.truncated) {
+                complete(query, DomainVerdict.FAILED);
+            } else {
+                // No MX record: mail falls back to the address record (RFC 5321 section 5.1)
+                query.type = DnsMessage.TYPE_A;
+                query.attempts = 0;
+                send(query);
+            }
+        } else if (response.addressCount > 0) {
+            complete(query, DomainVerdict.EXISTS);
+        } else if (response.truncated) {
+            complete(query, DomainVerdict.FAILED);
+        } else if (query.type == DnsMessage.TYPE_A) {
+            // The implicit MX may also be an IPv6-only host
+            query.type = DnsMessage.TYPE_AAAA;
+            query.attempts = 0;
+            send(query);
+        } else {
+            complete(query, DomainVerdict.NOT_FOUND);
+        }
+    }
+
+    private void expireTimeouts() {
+        long now = System.nanoTime();
+        Timeout timeout;
+        while ((timeout = timeouts.peek()) != null && now - timeout.deadline >= 0) {
+            timeouts.poll();
+            Query query = timeout.query;
+            if (query.done || query.sequence != timeout.sequence) {
+                continue;
+            }
+            pending.get(query.channel).remove(query.id);
+            retryOrFail(query);
+        }
+    }
+
+    private void retryOrFail(Query query) {
+        if (query.attempts < maxAttempts) {
+            send(query);
+        } else {
+            complete(query, DomainVerdict.FAILED);
+        }
+    }
+
+    private void complete(Query query, DomainVerdict verdict) {
+        query.done = true;
+        query.future.complete(verdict);
+    }
+
+    private void shutdown() {
+        closed = true;
+        Query query;
+        while ((query = submitted.poll()) != null) {
+            query.future.complete(DomainVerdict.FAILED);
+        }
+        for (Map<Integer, Query> channelPending : pending) {
+            for (Query waiting : channelPending.values()) {
+                waiting.future.complete(DomainVerdict.FAILED);
+            }
+            channelPending.clear();
+        }
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore on shutdown
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Ignore on shutdown
+        }
+    }
+
+    /**
+     * One domain being resolved; reused for the A and AAAA fallbacks and for retries
+     */
+    private static final class Query {
+        final String name;
+        final CompletableFuture<DomainVerdict> future;
+        int type;
+        int attempts;
+        int channel;
+        int id;
+        int sequence;
+        boolean done;
+
+        Query(String name, CompletableFuture<DomainVerdict> future) {
+            this.name = name;
+            this.future = future;
+        }
+    }
+
+    private static final class Timeout implements Comparable<Timeout> {
+        final long deadline;
+        final Query query;
+        final int sequence;
+
+        Timeout(long deadline, Query query, int sequence) {
+            this.deadline = deadline;
+            this.query = query;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Timeout other) {
+            return Long.compare(deadline - other.deadline, 0);
+        }
+    }
+}
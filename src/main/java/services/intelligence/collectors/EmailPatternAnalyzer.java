@@ -1,5 +1,6 @@
 package services.intelligence.collectors;
 
+import services.DisposableDomainIndex;
 import services.intelligence.models.EmailMetrics;
 
 import java.util.HashMap;
@@ -96,10 +97,7 @@ public class EmailPatternAnalyzer {
         return domain.contains("temp") ||
                domain.contains("disposable") ||
                domain.contains("throwaway") ||
-               domain.equals("mailinator.com") ||
-               domain.equals("yopmail.com") ||
-               domain.equals("10minutemail.com") ||
-               domain.equals("guerrillamail.com");
+               DisposableDomainIndex.getDefault().containsDomain(domain);
     }
 
     private String analyzeUsernamePattern(String username) {
@@ -0,0 +1,525 @@
+package services.intelligence.collectors;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import services.intelligence.models.GravatarData;
+
+/**
+ * Cache of Gravatar lookups keyed by the MD5 hash of the address.
+ *
+ * <p>Found profiles and missing ones have separate lifetimes, so the many addresses
+ * without a profile are not asked for again on every run. Entries live in a
+ * least-recently-used map in memory and, when the cache is opened on a file, in an
+ * append-only log on disk. Only the offsets of the disk records are kept in memory;
+ * a record is read back when its hash is no longer in the memory tier. Concurrent
+ * lookups of the same hash share one load, which is cancelled once every one of them
+ * has cancelled. Failed loads are never cached.
+ *
+ * <p>Log lines are {@code hash<TAB>expiresAtEpochMillis<TAB>json}. On open, later lines
+ * win, expired ones are dropped and a torn last line is cut off; on close the log is
+ * rewritten if it holds more than twice as many lines as live entries.
+ */
+public class GravatarCache implements Closeable {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final Duration DEFAULT_HIT_TTL = Duration.ofDays(7);
+    public static final Duration DEFAULT_MISS_TTL = Duration.ofDays(1);
+
+    private static final int MIN_COMPACTION_RECORDS = 1_000;
+    private static final Gson GSON = new Gson();
+
+    private final int maxEntries;
+    private final long hitTtlMillis;
+    private final long missTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> memory;
+    private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Guarded by GravatarCache.class
+    private static GravatarCache shared;
+
+    // Disk tier, guarded by this
+    private Path file;
+    private FileChannel channel;
+    private final Map<String, Record> records = new HashMap<>();
+    private long logRecords;
+
+    /**
+     * Memory-only cache with the default size and lifetimes
+     */
+    public GravatarCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_HIT_TTL, DEFAULT_MISS_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Memory-only cache
+     *
+     * @param maxEntries Entries kept in memory before the least recently used is evicted
+     * @param hitTtl Lifetime of found profiles
+     * @param missTtl Lifetime of missing profiles
+     * @param clock Wall-clock time source in epoch milliseconds
+     */
+    public GravatarCache(int maxEntries, Duration hitTtl, Duration missTtl, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.hitTtlMillis = hitTtl.toMillis();
+        this.missTtlMillis = missTtl.toMillis();
+        this.clock = clock;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GravatarCache.Entry> eldest) {
+                if (size() > GravatarCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static GravatarCache open(Path file) throws IOException {
+        return open(file, DEFAULT_MAX_ENTRIES, DEFAULT_HIT_TTL, DEFAULT_MISS_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * Opens (or creates) a cache backed by a log file and replays the log.
+     */
+    public static GravatarCache open(Path file, int maxEntries, Duration hitTtl, Duration missTtl,
+                                     LongSupplier clock) throws IOException {
+        GravatarCache cache = new GravatarCache(maxEntries, hitTtl, missTtl, clock);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        cache.file = file;
+        cache.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * Opens the cache in the user's home directory, or a memory-only cache if the file
+     * cannot be opened.
+     */
+    public static GravatarCache openDefault() {
+        Path file = Paths.get(System.getProperty("user.home"), ".allinonechecker", "gravatar-cache.log");
+        try {
+            return open(file);
+        } catch (IOException e) {
+            System.err.println("Gravatar cache file unavailable: " + e.getMessage());
+            return new GravatarCache();
+        }
+    }
+
+    /**
+     * The {@link #openDefault()} cache of this process, opened on first use. Code that
+     * may run several times, such as a page opened again, shares it so that only one
+     * handle appends to the log file. Close it with {@link #closeShared()} on exit.
+     */
+    public static synchronized GravatarCache shared() {
+        if (shared == null) {
+            shared = openDefault();
+        }
+        return shared;
+    }
+
+    /**
+     * Closes the shared cache if it was opened
+     */
+    public static synchronized void closeShared() throws IOException {
+        if (shared != null) {
+            GravatarCache cache = shared;
+            shared = null;
+            cache.close();
+        }
+    }
+
+    /**
+     * Returns the cached data for a hash, or loads it. Callers asking for a hash that
+     * is already loading get the result of that load. The loader's result is cached
+     * unless it fails. Each caller gets its own future; cancelling it leaves the load,
+     * and the loader's future is cancelled when the last caller leaves.
+     *
+     * @param loader Fetches the data for a hash; fails for errors that should be retried
+     */
+    public CompletableFuture<GravatarData> get(String hash,
+                                               Function<String, CompletableFuture<GravatarData>> loader) {
+        GravatarData cached = getIfPresent(hash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        while (true) {
+            Load load = new Load(hash);
+            Load running = loading.putIfAbsent(hash, load);
+            if (running != null) {
+                CompletableFuture<GravatarData> joined = running.join();
+                if (joined != null) {
+                    coalesced.incrementAndGet();
+                    return joined;
+                }
+                // Every caller of that load cancelled; start a new one
+                loading.remove(hash, running);
+                continue;
+            }
+            misses.incrementAndGet();
+
+            CompletableFuture<GravatarData> first = load.join();
+            CompletableFuture<GravatarData> loaded;
+            try {
+                loaded = loader.apply(hash);
+            } catch (RuntimeException e) {
+                loaded = CompletableFuture.failedFuture(e);
+            }
+            load.start(loaded);
+            loaded.whenComplete((data, error) -> {
+                if (error == null && data != null) {
+                    put(hash, data);
+                }
+                loading.remove(hash, load);
+                if (error != null) {
+                    load.result.completeExceptionally(error);
+                } else {
+                    load.result.complete(data);
+                }
+            });
+            return first;
+        }
+    }
+
+    /**
+     * @return The cached data, or null if absent or expired
+     */
+    public GravatarData getIfPresent(String hash) {
+        long now = clock.getAsLong();
+        synchronized (memory) {
+            Entry entry = memory.get(hash);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.data;
+            }
+            if (entry != null) {
+                memory.remove(hash);
+            }
+        }
+
+        GravatarData stored = readRecord(hash, now);
+        if (stored == null) {
+            return null;
+        }
+        diskHits.incrementAndGet();
+        return stored;
+    }
+
+    public void put(String hash, GravatarData data) {
+        long expiresAt = clock.getAsLong() + (data.isProfileExists() ? hitTtlMillis : missTtlMillis);
+        synchronized (memory) {
+            memory.put(hash, new Entry(data, expiresAt));
+        }
+        writeRecord(hash, data, expiresAt);
+    }
+
+    /**
+     * Entries in the memory tier
+     */
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    /**
+     * Lookups answered from memory
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Lookups answered from the disk tier
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Lookups that had to be loaded
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Lookups that joined a load already running for the same hash
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Entries dropped from memory to make room
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long answered = hits.get() + diskHits.get() + coalesced.get();
+        long total = answered + misses.get();
+        return total == 0 ? 0.0 : (double) answered / total;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        if (logRecords > MIN_COMPACTION_RECORDS && logRecords > 2L * records.size()) {
+            compact();
+        }
+        channel.close();
+        channel = null;
+        records.clear();
+    }
+
+    private synchronized GravatarData readRecord(String hash, long now) {
+        Record record = records.get(hash);
+        if (record == null) {
+            return null;
+        }
+        if (record.expiresAt <= now) {
+            records.remove(hash);
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(record.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, record.offset + buffer.position()) < 0) {
+                    throw new IOException("Record past the end of " + file);
+                }
+            }
+            String line = new String(buffer.array(), StandardCharsets.UTF_8);
+            GravatarData data = GSON.fromJson(line.substring(line.indexOf('\t', hash.length() + 1) + 1),
+                GravatarData.class);
+            synchronized (memory) {
+                memory.put(hash, new Entry(data, record.expiresAt));
+            }
+            return data;
+        } catch (IOException | JsonParseException | StringIndexOutOfBoundsException e) {
+            records.remove(hash);
+            return null;
+        }
+    }
+
+    private synchronized void writeRecord(String hash, GravatarData data, long expiresAt) {
+        if (channel == null) {
+            return;
+        }
+        byte[] line = (hash + '\t' + expiresAt + '\t' + GSON.toJson(data) + '\n').getBytes(StandardCharsets.UTF_8);
+        try {
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            records.put(hash, new Record(offset, line.length - 1, expiresAt));
+            logRecords++;
+        } catch (IOException e) {
+            System.err.println("Gravatar cache file disabled: " + e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Indexes the log, keeping the last live record of each hash
+     */
+    private void load() throws IOException {
+        long now = clock.getAsLong();
+        long offset = 0;
+        long lineStart = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                logRecords++;
+                indexLine(line.toString(StandardCharsets.UTF_8), lineStart, line.size(), now);
+                line.reset();
+                lineStart = offset;
+            }
+        }
+        if (lineStart < offset) {
+            // Torn last line after a crash
+            channel.truncate(lineStart);
+        }
+    }
+
+    private void indexLine(String line, long offset, int length, long now) {
+        int first = line.indexOf('\t');
+        int second = line.indexOf('\t', first + 1);
+        if (first <= 0 || second < 0) {
+            return;
+        }
+        try {
+            long expiresAt = Long.parseLong(line.substring(first + 1, second));
+            String hash = line.substring(0, first);
+            if (expiresAt > now) {
+                records.put(hash, new Record(offset, length, expiresAt));
+            } else {
+                records.remove(hash);
+            }
+        } catch (NumberFormatException e) {
+            // Torn or foreign line - skip it
+        }
+    }
+
+    /**
+     * Rewrites the log with only the live records
+     */
+    private void compact() throws IOException {
+        long now = clock.getAsLong();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Record record : records.values()) {
+                if (record.expiresAt > now) {
+                    channel.transferTo(record.offset, record.length + 1L, out);
+                }
+            }
+        }
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = null;
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already failing; the memory tier keeps working
+        }
+        channel = null;
+        records.clear();
+    }
+
+    /**
+     * One load of a hash and the callers waiting for it
+     */
+    private final class Load {
+        final String hash;
+        final CompletableFuture<GravatarData> result = new CompletableFuture<>();
+        // Guarded by this
+        private CompletableFuture<GravatarData> source;
+        private int waiters;
+        private boolean abandoned;
+
+        Load(String hash) {
+            this.hash = hash;
+        }
+
+        /**
+         * @return A future of the result for one more caller, or null if every caller
+         *         already cancelled
+         */
+        synchronized CompletableFuture<GravatarData> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<GravatarData> copy = result.copy();
+            copy.whenComplete((data, error) -> {
+                if (copy.isCancelled()) {
+                    leave();
+                }
+            });
+            return copy;
+        }
+
+        void start(CompletableFuture<GravatarData> loaded) {
+            synchronized (this) {
+                source = loaded;
+                if (!abandoned) {
+                    return;
+                }
+            }
+            loaded.cancel(false);
+        }
+
+        private void leave() {
+            CompletableFuture<GravatarData> cancelled;
+            synchronized (this) {
+                if (--waiters > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                cancelled = source;
+            }
+            loading.remove(hash, this);
+            if (cancelled != null) {
+                cancelled.cancel(false);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final GravatarData data;
+        final long expiresAt;
+
+        Entry(GravatarData data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Position of a log line, without its newline
+     */
+    private static final class Record {
+        final long offset;
+        final int length;
+        final long expiresAt;
+
+        Record(long offset, int length, long expiresAt) {
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
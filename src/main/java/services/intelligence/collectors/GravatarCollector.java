@@ -1,99 +1,269 @@
 package services.intelligence.collectors;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import services.intelligence.models.GravatarData;
+import services.intelligence.resilience.ResilienceOptions;
+import services.intelligence.resilience.ResilientCaller;
 
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Collects Gravatar profile data for email addresses
+ * Collects Gravatar profile data for email addresses.
+ *
+ * <p>Lookups can block the calling thread ({@link #collect}) or run on OkHttp's
+ * dispatcher ({@link #collectAsync}). All requests go to one host, so the dispatcher
+ * allows as many calls per host as in total, and over HTTPS they are multiplexed on
+ * a few HTTP/2 connections. Responses are parsed as a stream, reading only the
+ * fields used and skipping the rest of the profile.
+ *
+ * <p>Every request goes through a {@link ResilientCaller}, which paces bursts, adapts
+ * the number of concurrent calls, and stops calling Gravatar for a while after
+ * repeated failures so that lookups return empty data at once instead of each waiting
+ * for a timeout.
  */
 public class GravatarCollector {
     private static final String GRAVATAR_API_URL = "https://www.gravatar.com/";
+    private static final int MAX_REQUESTS = 256;
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
     private final OkHttpClient httpClient;
+    private final String baseUrl;
+    private final String host;
+    private final GravatarCache cache;
+    private final ResilientCaller resilience;
 
     public GravatarCollector() {
+        this(GRAVATAR_API_URL, null);
+    }
+
+    /**
+     * @param cache Cache consulted before each lookup, or null for none
+     */
+    public GravatarCollector(GravatarCache cache) {
+        this(GRAVATAR_API_URL, cache);
+    }
+
+    /**
+     * @param cache Cache consulted before each lookup, or null for none
+     * @param resilience Limits applied to the requests; its options also set the timeouts
+     */
+    public GravatarCollector(GravatarCache cache, ResilientCaller resilience) {
+        this(GRAVATAR_API_URL, cache, resilience);
+    }
+
+    GravatarCollector(String baseUrl) {
+        this(baseUrl, null);
+    }
+
+    GravatarCollector(String baseUrl, GravatarCache cache) {
+        this(baseUrl, cache, new ResilientCaller(ResilienceOptions.defaults()));
+    }
+
+    /**
+     * @param baseUrl Base of the profile URLs, ending with '/'
+     * @param cache Cache consulted before each lookup, or null for none
+     * @param resilience Limits applied to the requests; its options also set the timeouts
+     */
+    GravatarCollector(String baseUrl, GravatarCache cache, ResilientCaller resilience) {
+        ResilienceOptions options = resilience.getOptions();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS);
         this.httpClient = new OkHttpClient.Builder()
                 .followRedirects(true)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .connectTimeout(options.getConnectTimeout())
+                .readTimeout(options.getReadTimeout())
                 .build();
+        this.baseUrl = baseUrl;
+        this.host = HttpUrl.get(baseUrl).host();
+        this.cache = cache;
+        this.resilience = resilience;
+    }
+
+    /**
+     * Limits guarding the requests, with their counters
+     */
+    public ResilientCaller getResilience() {
+        return resilience;
+    }
+
+    /**
+     * HTTP calls sent and not finished yet
+     */
+    int getRunningCalls() {
+        return httpClient.dispatcher().runningCallsCount();
     }
 
     /**
      * Fetches Gravatar profile data
      */
     public GravatarData collect(String email) {
+        // Graceful degradation - errors give empty data
+        return collectAsync(email).join();
+    }
+
+    /**
+     * Fetches Gravatar profile data without blocking. The future never fails; errors
+     * give empty data as in {@link #collect}. Cancelling it cancels the HTTP call
+     * unless other callers are waiting for the same profile.
+     */
+    public CompletableFuture<GravatarData> collectAsync(String email) {
+        String hash;
         try {
-            String hash = md5Hash(email.trim().toLowerCase());
-            String url = GRAVATAR_API_URL + hash + ".json";
+            hash = md5Hash(email.trim().toLowerCase());
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(GravatarData.empty());
+        }
+        CompletableFuture<GravatarData> lookup = cache == null ? fetchAsync(hash) : cache.get(hash, this::fetchAsync);
+        CompletableFuture<GravatarData> result = lookup.exceptionally(e -> GravatarData.empty());
+        result.whenComplete((data, error) -> {
+            if (result.isCancelled()) {
+                lookup.cancel(false);
+            }
+        });
+        return result;
+    }
 
-            Request request = new Request.Builder()
-                    .url(url)
-                    .build();
+    /**
+     * Looks up a profile, failing on errors worth retrying later and when the
+     * resilience limits refuse the request
+     */
+    private CompletableFuture<GravatarData> fetchAsync(String hash) {
+        return resilience.call(host, () -> send(hash));
+    }
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String jsonData = response.body().string();
-                    return parseGravatarResponse(jsonData);
-                } else {
-                    // Profile doesn't exist or not public
-                    return GravatarData.empty();
+    private CompletableFuture<GravatarData> send(String hash) {
+        CompletableFuture<GravatarData> result = new CompletableFuture<>();
+        Call call = httpClient.newCall(newRequest(hash));
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    result.complete(readResponse(response));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
                 }
             }
-        } catch (Exception e) {
-            // Graceful degradation - return empty data
-            return GravatarData.empty();
-        }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((data, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
     }
 
-    private GravatarData parseGravatarResponse(String jsonData) {
+    private Request newRequest(String hash) {
+        return new Request.Builder()
+                .url(baseUrl + hash + ".json")
+                .build();
+    }
+
+    /**
+     * @return The profile, or empty data if there is none
+     * @throws IOException for other unsuccessful responses, which should not be cached
+     */
+    private GravatarData readResponse(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (response.code() == 404) {
+            // Profile doesn't exist or not public
+            return GravatarData.empty();
+        }
+        if (!response.isSuccessful() || body == null) {
+            throw new IOException("Gravatar answered HTTP " + response.code());
+        }
         GravatarData data = new GravatarData();
         data.setProfileExists(true);
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            parseGravatarResponse(reader, data);
+        } catch (IOException | IllegalStateException e) {
+            // If parsing fails, still return that profile exists
+        }
+        return data;
+    }
 
-        try {
-            JsonObject root = JsonParser.parseString(jsonData).getAsJsonObject();
-            JsonArray entries = root.getAsJsonArray("entry");
-
-            if (entries != null && entries.size() > 0) {
-                JsonObject entry = entries.get(0).getAsJsonObject();
-
-                // Extract display name
-                if (entry.has("displayName")) {
-                    data.setDisplayName(entry.get("displayName").getAsString());
-                }
+    /**
+     * Reads {@code entry[0]} of a profile response into {@code data}. Parsing stops
+     * after the first entry; the rest of the body is not read.
+     */
+    static void parseGravatarResponse(JsonReader reader, GravatarData data) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"entry".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                parseEntry(reader, data);
+            }
+            return;
+        }
+    }
 
-                // Extract profile image URL
-                if (entry.has("thumbnailUrl")) {
-                    data.setProfileImageUrl(entry.get("thumbnailUrl").getAsString());
-                }
+    private static void parseEntry(JsonReader reader, GravatarData data) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if ("displayName".equals(name)) {
+                data.setDisplayName(reader.nextString());
+            } else if ("thumbnailUrl".equals(name)) {
+                data.setProfileImageUrl(reader.nextString());
+            } else if ("accounts".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                data.setLinkedAccounts(parseAccounts(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 
-                // Extract linked accounts
-                if (entry.has("accounts")) {
-                    JsonArray accounts = entry.getAsJsonArray("accounts");
-                    List<String> linkedAccounts = new ArrayList<>();
-                    for (JsonElement account : accounts) {
-                        JsonObject acc = account.getAsJsonObject();
-                        if (acc.has("shortname")) {
-                            linkedAccounts.add(acc.get("shortname").getAsString());
-                        }
-                    }
-                    data.setLinkedAccounts(linkedAccounts);
+    private static List<String> parseAccounts(JsonReader reader) throws IOException {
+        List<String> linkedAccounts = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("shortname".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    linkedAccounts.add(reader.nextString());
+                } else {
+                    reader.skipValue();
                 }
             }
-        } catch (Exception e) {
-            // If parsing fails, still return that profile exists
+            reader.endObject();
         }
-
-        return data;
+        reader.endArray();
+        return linkedAccounts;
     }
 
     private String md5Hash(String input) {
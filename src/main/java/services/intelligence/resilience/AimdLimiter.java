@@ -0,0 +1,116 @@
+package services.intelligence.resilience;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that adapts to the remote side with additive increase and
+ * multiplicative decrease.
+ *
+ * <p>Every success raises the limit by {@code 1 / limit}, about one more slot per round
+ * of calls; a failure halves it, at most once per {@link #DECREASE_INTERVAL_NANOS} so
+ * that a wave of failures from one overload counts once. Callers over the limit wait
+ * in line without holding a thread.
+ *
+ * <p>A caller whose turn comes may release it again right away, for example when its
+ * call is refused. Turns are therefore handed out in a loop by the outermost
+ * {@link #release} on the thread, never by nesting one release inside another, so a
+ * long line drains without growing the stack.
+ */
+public class AimdLimiter {
+
+    static final long DECREASE_INTERVAL_NANOS = 100_000_000L;
+    private static final double BACKOFF = 0.5;
+
+    private final int min;
+    private final int max;
+    private final LongSupplier clock;
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    // Turns the outermost release on this thread still has to start
+    private final ThreadLocal<Queue<CompletableFuture<Void>>> starting = new ThreadLocal<>();
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+    private boolean decreased;
+
+    /**
+     * @param clock Monotonic time source in nanoseconds
+     */
+    public AimdLimiter(int initial, int min, int max, LongSupplier clock) {
+        this.min = min;
+        this.max = max;
+        this.clock = clock;
+        this.limit = Math.max(min, Math.min(max, initial));
+    }
+
+    /**
+     * @return Completes when the caller may start; it must then call {@link #release} once
+     */
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (waiting.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> turn = new CompletableFuture<>();
+            waiting.add(turn);
+            return turn;
+        }
+    }
+
+    /**
+     * Ends a call and adjusts the limit
+     *
+     * @param success Whether the remote side handled the call well; null to leave the limit alone
+     */
+    public void release(Boolean success) {
+        Queue<CompletableFuture<Void>> admitted = new ArrayDeque<>();
+        synchronized (this) {
+            inFlight--;
+            if (Boolean.TRUE.equals(success)) {
+                limit = Math.min(max, limit + 1 / limit);
+            } else if (Boolean.FALSE.equals(success)) {
+                long now = clock.getAsLong();
+                if (!decreased || now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+                    limit = Math.max(min, limit * BACKOFF);
+                    lastDecrease = now;
+                    decreased = true;
+                }
+            }
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                inFlight++;
+                admitted.add(waiting.poll());
+            }
+        }
+        Queue<CompletableFuture<Void>> pending = starting.get();
+        if (pending != null) {
+            // Called from a turn being started below; the loop there starts these too
+            pending.addAll(admitted);
+            return;
+        }
+        // Started outside the lock, since a caller may run its call right here
+        starting.set(admitted);
+        try {
+            CompletableFuture<Void> turn;
+            while ((turn = admitted.poll()) != null) {
+                turn.complete(null);
+            }
+        } finally {
+            starting.remove();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+}
@@ -0,0 +1,113 @@
+package services.intelligence.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a failing dependency for a while so callers fail fast instead of each
+ * waiting for a timeout.
+ *
+ * <p>The circuit opens after {@code failureThreshold} failures in a row. While open,
+ * calls are refused. After {@code openDuration} one trial call is let through: its
+ * success closes the circuit, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * @param clock Monotonic time source in nanoseconds
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Whether calls are currently refused, without taking the trial call
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && clock.getAsLong() - openedAt < openNanos;
+    }
+
+    /**
+     * Asks to make a call. A permitted call must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                refused.incrementAndGet();
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                refused.incrementAndGet();
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                opened.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * Ends a call that says nothing about the dependency's health, such as a cancelled one
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Calls refused while the circuit was open
+     */
+    public long getRefusedCount() {
+        return refused.get();
+    }
+
+    /**
+     * Times the circuit opened
+     */
+    public long getOpenedCount() {
+        return opened.get();
+    }
+}
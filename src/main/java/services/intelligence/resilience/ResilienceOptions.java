@@ -0,0 +1,127 @@
+package services.intelligence.resilience;
+
+import java.time.Duration;
+
+/**
+ * Limits applied by a {@link ResilientCaller} to each host, and the timeouts of the
+ * HTTP clients using it. Options are immutable; the {@code with} methods return
+ * modified copies.
+ */
+public final class ResilienceOptions {
+
+    private static final ResilienceOptions DEFAULTS = new ResilienceOptions(20, 50, Duration.ofSeconds(30),
+        16, 1, 256, 5, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Duration maxThrottleWait;
+    private final int initialConcurrency;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+
+    private ResilienceOptions(double requestsPerSecond, int burst, Duration maxThrottleWait,
+                              int initialConcurrency, int minConcurrency, int maxConcurrency,
+                              int failureThreshold, Duration openDuration,
+                              Duration connectTimeout, Duration readTimeout) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxThrottleWait = maxThrottleWait;
+        this.initialConcurrency = initialConcurrency;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * 20 requests per second with bursts of 50, waiting at most 30 s for the rate limit;
+     * 16 concurrent calls adapting between 1 and 256; the circuit opens for 30 s after
+     * 5 failures in a row; 5 s to connect and 10 s between reads
+     */
+    public static ResilienceOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Sustained request rate per host, and how many requests may go out at once after a pause
+     */
+    public ResilienceOptions withRateLimit(double perSecond, int burstSize) {
+        return new ResilienceOptions(perSecond, burstSize, maxThrottleWait, initialConcurrency, minConcurrency,
+            maxConcurrency, failureThreshold, openDuration, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Calls that would wait longer than this for the rate limit are rejected instead
+     */
+    public ResilienceOptions withMaxThrottleWait(Duration value) {
+        return new ResilienceOptions(requestsPerSecond, burst, value, initialConcurrency, minConcurrency,
+            maxConcurrency, failureThreshold, openDuration, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Starting, lowest and highest number of concurrent calls per host
+     */
+    public ResilienceOptions withConcurrency(int initial, int min, int max) {
+        return new ResilienceOptions(requestsPerSecond, burst, maxThrottleWait, initial, min, max,
+            failureThreshold, openDuration, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Consecutive failures that open the circuit, and how long it stays open
+     */
+    public ResilienceOptions withCircuitBreaker(int threshold, Duration open) {
+        return new ResilienceOptions(requestsPerSecond, burst, maxThrottleWait, initialConcurrency, minConcurrency,
+            maxConcurrency, threshold, open, connectTimeout, readTimeout);
+    }
+
+    public ResilienceOptions withTimeouts(Duration connect, Duration read) {
+        return new ResilienceOptions(requestsPerSecond, burst, maxThrottleWait, initialConcurrency, minConcurrency,
+            maxConcurrency, failureThreshold, openDuration, connect, read);
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public Duration getMaxThrottleWait() {
+        return maxThrottleWait;
+    }
+
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+}
@@ -0,0 +1,203 @@
+package services.intelligence.resilience;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Guards asynchronous calls to remote hosts with a rate limit, an adaptive concurrency
+ * limit and a circuit breaker, each kept per host.
+ *
+ * <p>A call first fails fast if the host's circuit is open, then waits for a rate
+ * token and a concurrency slot, neither of which holds a thread. Calls that would wait
+ * longer than {@link ResilienceOptions#getMaxThrottleWait()} for a token, and calls
+ * refused by the circuit, fail with a {@link RejectedExecutionException} without
+ * reaching the host. A failed call counts against the circuit and shrinks the
+ * concurrency limit; a cancelled one counts as neither success nor failure.
+ */
+public class ResilientCaller {
+
+    private final ResilienceOptions options;
+    private final LongSupplier clock;
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public ResilientCaller(ResilienceOptions options) {
+        this(options, System::nanoTime);
+    }
+
+    ResilientCaller(ResilienceOptions options, LongSupplier clock) {
+        this.options = options;
+        this.clock = clock;
+    }
+
+    public ResilienceOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Runs {@code action} once the host's limits allow it. Cancelling the returned
+     * future cancels the action's future, or drops the call if it has not started.
+     *
+     * @param host Host the action calls
+     * @param action Starts the call
+     */
+    public <T> CompletableFuture<T> call(String host, Supplier<CompletableFuture<T>> action) {
+        Guard guard = guards.computeIfAbsent(host, Guard::new);
+        if (guard.breaker.isOpen()) {
+            guard.rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Circuit open for " + host));
+        }
+        long wait = guard.bucket.reserve(options.getMaxThrottleWait().toNanos());
+        if (wait < 0) {
+            guard.rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Rate limit exceeded for " + host));
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable admit = () -> guard.limiter.acquire().thenRun(() -> start(guard, action, result));
+        if (wait == 0) {
+            admit.run();
+        } else {
+            CompletableFuture.runAsync(admit, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+        }
+        return result;
+    }
+
+    private <T> void start(Guard guard, Supplier<CompletableFuture<T>> action, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // Cancelled while waiting for its turn
+            guard.limiter.release(null);
+            return;
+        }
+        if (!guard.breaker.tryAcquire()) {
+            guard.limiter.release(null);
+            guard.rejected.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException("Circuit open for " + guard.host));
+            return;
+        }
+
+        CompletableFuture<T> attempt;
+        try {
+            attempt = action.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> running = attempt;
+        running.whenComplete((value, error) -> {
+            finish(guard, running.isCancelled() || unwrap(error) instanceof CancellationException ? null : error == null);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                running.cancel(false);
+            }
+        });
+    }
+
+    private void finish(Guard guard, Boolean success) {
+        if (success == null) {
+            guard.breaker.onIgnored();
+        } else if (success) {
+            guard.succeeded.incrementAndGet();
+            guard.breaker.onSuccess();
+        } else {
+            guard.failed.incrementAndGet();
+            guard.breaker.onFailure();
+        }
+        // Released last, since the next call may start right here and must see the circuit's new state
+        guard.limiter.release(success);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return The host's circuit breaker, or null if it was never called
+     */
+    public CircuitBreaker getCircuitBreaker(String host) {
+        Guard guard = guards.get(host);
+        return guard == null ? null : guard.breaker;
+    }
+
+    /**
+     * @return The host's concurrency limiter, or null if it was never called
+     */
+    public AimdLimiter getLimiter(String host) {
+        Guard guard = guards.get(host);
+        return guard == null ? null : guard.limiter;
+    }
+
+    /**
+     * @return The host's rate limiter, or null if it was never called
+     */
+    public TokenBucket getRateLimiter(String host) {
+        Guard guard = guards.get(host);
+        return guard == null ? null : guard.bucket;
+    }
+
+    /**
+     * Counters and current limits of every host called so far, by host name
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        guards.forEach((host, guard) -> stats.put(host, guard.toMap()));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Calls refused without being made, by the rate limit or an open circuit, across all hosts
+     */
+    public long getRejectedCount() {
+        return guards.values().stream().mapToLong(guard -> guard.rejected.get()).sum();
+    }
+
+    /**
+     * Limits and counters of one host
+     */
+    private final class Guard {
+        final String host;
+        final TokenBucket bucket;
+        final AimdLimiter limiter;
+        final CircuitBreaker breaker;
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+
+        Guard(String host) {
+            this.host = host;
+            this.bucket = new TokenBucket(options.getRequestsPerSecond(), options.getBurst(), clock);
+            this.limiter = new AimdLimiter(options.getInitialConcurrency(), options.getMinConcurrency(),
+                options.getMaxConcurrency(), clock);
+            this.breaker = new CircuitBreaker(options.getFailureThreshold(), options.getOpenDuration(), clock);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("succeeded", succeeded.get());
+            values.put("failed", failed.get());
+            values.put("rejected", rejected.get());
+            values.put("throttled", bucket.getDelayedCount());
+            values.put("circuit", breaker.getState().name());
+            values.put("circuitOpened", breaker.getOpenedCount());
+            values.put("concurrencyLimit", limiter.getLimit());
+            values.put("inFlight", limiter.getInFlight());
+            values.put("waiting", limiter.getWaiting());
+            return values;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package services.intelligence.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that spaces requests out to a steady rate while allowing short bursts.
+ *
+ * <p>Callers reserve a token and are told how long to wait for it, so a burst larger
+ * than the bucket is spread out over time instead of being refused. A reservation
+ * that would wait longer than the caller accepts is refused without taking a token.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier clock;
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param perSecond Tokens added per second
+     * @param burst Tokens the bucket holds when full
+     * @param clock Monotonic time source in nanoseconds
+     */
+    public TokenBucket(double perSecond, int burst, LongSupplier clock) {
+        this.tokensPerNano = perSecond / 1e9;
+        this.capacity = burst;
+        this.clock = clock;
+        this.tokens = burst;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Takes a token, possibly one that is only added in the future
+     *
+     * @param maxWaitNanos Longest acceptable wait
+     * @return Nanoseconds to wait before using the token, or -1 if that would exceed {@code maxWaitNanos}
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        double left = tokens - 1;
+        long wait = left >= 0 ? 0 : (long) Math.ceil(-left / tokensPerNano);
+        if (wait > maxWaitNanos) {
+            refused.incrementAndGet();
+            return -1;
+        }
+        tokens = left;
+        if (wait > 0) {
+            delayed.incrementAndGet();
+        }
+        return wait;
+    }
+
+    /**
+     * Reservations that had to wait for a token
+     */
+    public long getDelayedCount() {
+        return delayed.get();
+    }
+
+    /**
+     * Reservations refused because the wait was too long
+     */
+    public long getRefusedCount() {
+        return refused.get();
+    }
+}
@@ -0,0 +1,123 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CliMain
+ */
+@DisplayName("CliMain Tests")
+class CliMainTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String input, String... args) {
+        return CliMain.run(args, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+            new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Test
+    @DisplayName("Stdin is streamed through the default chain to stdout with stats on stderr")
+    void testRun_StreamsStdinToStdout() {
+        int exit = run(" A@Example.com\n\na@example.com\nno-at-sign\nb@example.com\n");
+
+        assertEquals(CliMain.EXIT_OK, exit);
+        assertEquals("a@example.com\nb@example.com\n", out.toString(StandardCharsets.UTF_8));
+        String stats = err.toString(StandardCharsets.UTF_8);
+        assertTrue(stats.contains("Read 5 lines"), stats);
+        assertTrue(stats.contains("Kept 2, removed 3"), stats);
+    }
+
+    @Test
+    @DisplayName("Chosen steps and CSV output write removal reasons to a file")
+    void testRun_CsvFileWithSteps() throws Exception {
+        Path input = tempDir.resolve("in.txt");
+        Path output = tempDir.resolve("out.csv");
+        Files.write(input, Arrays.asList("info@example.com", "jane@example.com", "jane@example.com"));
+
+        int exit = run("", "-i", input.toString(), "-o", output.toString(), "--csv",
+            "--steps", "remove-duplicates,REMOVE_ROLE_BASED");
+
+        assertEquals(CliMain.EXIT_OK, exit);
+        assertEquals(Arrays.asList(
+            "email,status,reason",
+            "info@example.com,removed,Role-based",
+            "jane@example.com,active,",
+            "jane@example.com,removed,Duplicates"
+        ), Files.readAllLines(output));
+    }
+
+    @Test
+    @DisplayName("Gzip output gets the same name in streaming and collected mode, and lines are trimmed in both")
+    void testRun_GzipNamingAndTrimming() throws Exception {
+        Path input = tempDir.resolve("in.txt");
+        Files.write(input, Arrays.asList(" jane@example.com ", "jane@example.com"));
+        Path streamed = tempDir.resolve("streamed.txt");
+        Path collected = tempDir.resolve("collected.csv");
+
+        assertEquals(CliMain.EXIT_OK, run("", "-i", input.toString(), "-o", streamed.toString(), "--gzip",
+            "--steps", "remove_duplicates"));
+        assertEquals(CliMain.EXIT_OK, run("", "-i", input.toString(), "-o", collected.toString(), "--gzip",
+            "--csv", "--steps", "remove_duplicates"));
+
+        assertFalse(Files.exists(streamed));
+        assertEquals(Arrays.asList("jane@example.com"), readGzip(tempDir.resolve("streamed.txt.gz")));
+        assertFalse(Files.exists(collected));
+        assertEquals(Arrays.asList("email,status,reason", "jane@example.com,active,",
+            "jane@example.com,removed,Duplicates"), readGzip(tempDir.resolve("collected.csv.gz")));
+    }
+
+    private static List<String> readGzip(Path file) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("The seen filter file carries previously seen emails into the next run")
+    void testRun_SeenFilterAcrossRuns() {
+        Path filter = tempDir.resolve("seen.sbf");
+
+        assertEquals(CliMain.EXIT_OK, run("a@example.com\nb@example.com\n",
+            "--steps", "remove_previously_seen", "--seen-filter", filter.toString()));
+        assertTrue(Files.exists(filter));
+        out.reset();
+        err.reset();
+        assertEquals(CliMain.EXIT_OK, run("b@example.com\nc@example.com\n",
+            "--steps", "remove_previously_seen", "--seen-filter", filter.toString()));
+
+        assertEquals("c@example.com\n", out.toString(StandardCharsets.UTF_8));
+        String stats = err.toString(StandardCharsets.UTF_8);
+        assertTrue(stats.contains("Seen filter: 3 emails, estimated false-positive rate"), stats);
+        assertEquals(CliMain.EXIT_USAGE, run("", "--steps", "remove_previously_seen"));
+    }
+
+    @Test
+    @DisplayName("Invalid arguments print usage and exit with a usage error")
+    void testRun_InvalidArguments() {
+        assertEquals(CliMain.EXIT_USAGE, run("", "--steps", "remove_everything"));
+        assertEquals(CliMain.EXIT_USAGE, run("", "--csv"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage:"));
+    }
+}
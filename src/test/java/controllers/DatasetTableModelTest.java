@@ -0,0 +1,61 @@
+package controllers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+import services.EmailDataset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DatasetTableModel
+ */
+@DisplayName("DatasetTableModel Tests")
+class DatasetTableModelTest {
+
+    private static EmailDataset dataset(int size) {
+        EmailDataset.Builder builder = EmailDataset.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add("user" + i + "@example.com");
+        }
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("Rows are decoded in pages and only a few pages are kept")
+    void testGet_DecodesBoundedPages() {
+        DatasetTableModel model = new DatasetTableModel();
+        model.setDataset(dataset(100_000));
+
+        assertEquals(100_000, model.size());
+        assertEquals("user0@example.com", model.get(0));
+        assertEquals("user99999@example.com", model.get(99_999));
+        for (int i = 0; i < 100_000; i += DatasetTableModel.PAGE_SIZE) {
+            assertEquals("user" + i + "@example.com", model.get(i));
+        }
+        assertTrue(model.getCachedPageCount() <= 8);
+        assertThrows(IndexOutOfBoundsException.class, () -> model.get(100_000));
+    }
+
+    @Test
+    @DisplayName("Replacing the dataset fires one change")
+    void testSetDataset_FiresSingleChange() {
+        DatasetTableModel model = new DatasetTableModel();
+        model.setDataset(dataset(1_000));
+        List<String> events = new ArrayList<>();
+        model.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                events.add(change.getFrom() + ":" + change.getRemovedSize() + ":" + change.getAddedSize());
+            }
+        });
+
+        model.setDataset(dataset(10));
+
+        assertEquals(List.of("0:1000:10"), events);
+        assertEquals("user9@example.com", model.get(9));
+    }
+}
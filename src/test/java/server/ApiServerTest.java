@@ -0,0 +1,136 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import services.EmailCleaningServiceImpl;
+import services.EmailIntelligenceService;
+import services.intelligence.models.EmailIntelligenceProfile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApiServer, with the intelligence service replaced by a stub
+ */
+@DisplayName("ApiServer Tests")
+class ApiServerTest {
+
+    private final AtomicInteger analyzeCalls = new AtomicInteger();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ApiServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        EmailIntelligenceService intelligence = new EmailIntelligenceService() {
+            @Override
+            public CompletableFuture<EmailIntelligenceProfile> analyzeEmail(String email) {
+                EmailIntelligenceProfile profile = new EmailIntelligenceProfile();
+                profile.setEmail(email);
+                return CompletableFuture.completedFuture(profile);
+            }
+
+            @Override
+            public CompletableFuture<List<EmailIntelligenceProfile>> analyzeEmails(List<String> emails) {
+                analyzeCalls.incrementAndGet();
+                if (emails.stream().anyMatch(email -> email.startsWith("fail"))) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Lookup failed"));
+                }
+                List<EmailIntelligenceProfile> profiles = new ArrayList<>();
+                emails.forEach(email -> profiles.add(analyzeEmail(email).join()));
+                return CompletableFuture.completedFuture(profiles);
+            }
+
+            @Override
+            public String generateHTMLReport(List<EmailIntelligenceProfile> profiles) {
+                return "";
+            }
+        };
+        server = new ApiServer(new EmailCleaningServiceImpl(), intelligence,
+            ServerOptions.defaults().withPort(0).withMaxBatchSize(2))
+            .addMetrics("gravatar", () -> Map.of("failed", 2))
+            .start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("Clean answers one NDJSON line per input row with status and reason")
+    void testClean_ReturnsRowStatuses() throws Exception {
+        HttpResponse<String> response = send("POST", "/clean?steps=remove_duplicates,remove_emails_without_at",
+            "\"a@example.com\"\n{\"email\":\"a@example.com\"}\n\nno-at-sign\n");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(Ndjson.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+        String[] lines = response.body().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"email\":\"a@example.com\",\"status\":\"active\"}", lines[0]);
+        assertEquals("{\"email\":\"a@example.com\",\"status\":\"removed\",\"reason\":\"Duplicates\"}", lines[1]);
+        assertEquals("{\"email\":\"no-at-sign\",\"status\":\"removed\",\"reason\":\"Missing @\"}", lines[2]);
+    }
+
+    @Test
+    @DisplayName("Analyze streams one profile per email and is counted in the metrics")
+    void testAnalyze_ReturnsProfilesAndMetrics() throws Exception {
+        HttpResponse<String> response = send("POST", "/analyze", "jane@example.com\njohn@example.com\n");
+
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("jane@example.com", JsonParser.parseString(lines[0]).getAsJsonObject().get("email").getAsString());
+        assertEquals("john@example.com", JsonParser.parseString(lines[1]).getAsJsonObject().get("email").getAsString());
+        assertEquals(1, analyzeCalls.get());
+
+        JsonObject metrics = JsonParser.parseString(send("GET", "/metrics", null).body()).getAsJsonObject();
+        assertEquals(1, metrics.getAsJsonObject("POST /analyze").get("count").getAsInt());
+        assertEquals(0, metrics.getAsJsonObject("POST /clean").get("count").getAsInt());
+        assertEquals(2, metrics.getAsJsonObject("gravatar").get("failed").getAsInt());
+    }
+
+    @Test
+    @DisplayName("A batch failing after profiles were sent ends the stream with an error line")
+    void testAnalyze_FailureAfterFirstChunk() throws Exception {
+        HttpResponse<String> response = send("POST", "/analyze",
+            "jane@example.com\njohn@example.com\nfail@example.com\nlast@example.com\n");
+
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("jane@example.com", JsonParser.parseString(lines[0]).getAsJsonObject().get("email").getAsString());
+        assertEquals("Internal error", JsonParser.parseString(lines[2]).getAsJsonObject().get("error").getAsString());
+    }
+
+    @Test
+    @DisplayName("Malformed lines, unknown steps and wrong methods get client errors")
+    void testErrors() throws Exception {
+        assertEquals(400, send("POST", "/clean", "{\"name\":\"x\"}\n").statusCode());
+        assertEquals(400, send("POST", "/clean?steps=nope", "a@example.com\n").statusCode());
+        assertEquals(405, send("PUT", "/clean", "").statusCode());
+        assertEquals(404, send("GET", "/cleanup", null).statusCode());
+    }
+}
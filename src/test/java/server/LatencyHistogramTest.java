@@ -0,0 +1,42 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram
+ */
+@DisplayName("LatencyHistogram Tests")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Percentiles are within the bucket error of the recorded values")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxMicros());
+        assertEquals(500_500, histogram.getMeanMicros(), 1);
+        assertEquals(500_000, histogram.getPercentileMicros(0.5), 500_000 * 0.125);
+        assertEquals(990_000, histogram.getPercentileMicros(0.99), 990_000 * 0.125);
+        assertEquals(1_000_000, histogram.getPercentileMicros(1.0));
+    }
+
+    @Test
+    @DisplayName("Every value falls in a bucket whose upper bound covers it")
+    void testBucketBounds() {
+        for (long micros : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1023, 1024, 123_456_789L, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= micros, "bucket of " + micros);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < micros, "bucket of " + micros);
+        }
+        assertEquals(0, new LatencyHistogram().getPercentileMicros(0.99));
+    }
+}
@@ -0,0 +1,59 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MicroBatcher
+ */
+@DisplayName("MicroBatcher Tests")
+class MicroBatcherTest {
+
+    @Test
+    @DisplayName("Items of concurrent callers share batches and each caller gets its own results")
+    void testSubmit_MergesCallers() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test-batcher", items -> {
+            batches.add(items);
+            List<String> results = new ArrayList<>();
+            items.forEach(item -> results.add(item.toUpperCase()));
+            return CompletableFuture.completedFuture(results);
+        }, 10, Duration.ofMillis(200), 100)) {
+            CompletableFuture<List<String>> first = batcher.submit(Arrays.asList("a", "b"), Duration.ZERO);
+            CompletableFuture<List<String>> second = batcher.submit(Arrays.asList("c"), Duration.ZERO);
+
+            assertEquals(Arrays.asList("A", "B"), first.get());
+            assertEquals(Arrays.asList("C"), second.get());
+            assertEquals(1, batches.size());
+            assertEquals(Arrays.asList("a", "b", "c"), batches.get(0));
+            assertEquals(0, batcher.getPendingCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Submitting beyond the pending limit is rejected until results come back")
+    void testSubmit_RejectsWhenFull() throws Exception {
+        CompletableFuture<List<String>> blocked = new CompletableFuture<>();
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test-batcher", items -> blocked,
+                10, Duration.ofMillis(100), 2)) {
+            CompletableFuture<List<String>> accepted = batcher.submit(Arrays.asList("a", "b"), Duration.ZERO);
+
+            assertThrows(RejectedExecutionException.class,
+                () -> batcher.submit(Arrays.asList("c"), Duration.ofMillis(20)));
+
+            blocked.complete(Arrays.asList("A", "B"));
+            assertEquals(Arrays.asList("A", "B"), accepted.get());
+            assertNotNull(batcher.submit(Arrays.asList("c"), Duration.ZERO));
+        }
+    }
+}
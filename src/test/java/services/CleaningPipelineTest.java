@@ -0,0 +1,182 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CleaningPipeline
+ */
+@DisplayName("CleaningPipeline Tests")
+class CleaningPipelineTest {
+
+    private static final List<String> SAMPLE = Arrays.asList(
+        "  VALID@EXAMPLE.COM  ",
+        "valid@example.com",
+        "",
+        "   ",
+        "invalid.email.com",
+        "user@@test.com",
+        "good.user@test.com",
+        "support@company.com",
+        "Tab\tInside@Test.com",
+        "valid@example.com"
+    );
+
+    @Test
+    @DisplayName("Fused pipeline matches chained service calls")
+    void testRun_MatchesChainedCalls() {
+        EmailCleaningService service = new EmailCleaningServiceImpl();
+
+        List<String> expected = SAMPLE;
+        expected = service.removeDuplicates(expected);
+        expected = service.removeEmptyLines(expected);
+        expected = service.trimAndNormalize(expected);
+        expected = service.removeEmailsWithoutAt(expected);
+        expected = service.removeEmailsWithMultipleAt(expected);
+        expected = service.removeRoleBasedEmails(expected);
+
+        CleaningResult result = CleaningPipeline.of(
+            CleaningStep.REMOVE_DUPLICATES,
+            CleaningStep.REMOVE_EMPTY_LINES,
+            CleaningStep.TRIM_AND_NORMALIZE,
+            CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+            CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT,
+            CleaningStep.REMOVE_ROLE_BASED
+        ).run(SAMPLE);
+
+        assertEquals(expected, result.getCleanedEmails());
+        assertEquals(SAMPLE.size() - expected.size(), result.getRemovedCount());
+    }
+
+    @Test
+    @DisplayName("Per-step removal counts are reported")
+    void testRun_PerStepCounts() {
+        CleaningResult result = CleaningPipeline.of(
+            CleaningStep.REMOVE_EMPTY_LINES,
+            CleaningStep.TRIM_AND_NORMALIZE,
+            CleaningStep.REMOVE_DUPLICATES,
+            CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+            CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT
+        ).run(SAMPLE);
+
+        assertEquals(2, result.getRemovedCount(CleaningStep.REMOVE_EMPTY_LINES));
+        assertEquals(0, result.getRemovedCount(CleaningStep.TRIM_AND_NORMALIZE));
+        assertEquals(2, result.getRemovedCount(CleaningStep.REMOVE_DUPLICATES));
+        assertEquals(1, result.getRemovedCount(CleaningStep.REMOVE_EMAILS_WITHOUT_AT));
+        assertEquals(1, result.getRemovedCount(CleaningStep.REMOVE_EMAILS_WITH_MULTIPLE_AT));
+        assertEquals(Arrays.asList("valid@example.com", "good.user@test.com", "support@company.com",
+            "tabinside@test.com"), result.getCleanedEmails());
+    }
+
+    @Test
+    @DisplayName("Null entries are removed by the first step")
+    void testRun_NullEntries() {
+        CleaningResult result = CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES)
+            .run(Arrays.asList("a@test.com", null, "a@test.com"));
+
+        assertEquals(Arrays.asList("a@test.com"), result.getCleanedEmails());
+        assertEquals(2, result.getRemovedCount(CleaningStep.REMOVE_DUPLICATES));
+    }
+
+    @Test
+    @DisplayName("Sessions can be fed one email at a time")
+    void testSession_Streaming() {
+        CleaningPipeline pipeline = CleaningPipeline.of(CleaningStep.TRIM_AND_NORMALIZE)
+            .then(CleaningStep.REMOVE_DUPLICATES);
+        CleaningPipeline.Session session = pipeline.newSession();
+
+        List<String> out = new ArrayList<>();
+        for (String email : Arrays.asList("A@B.com", " a@b.com", "c@d.com")) {
+            String cleaned = session.apply(email);
+            if (cleaned != null) {
+                out.add(cleaned);
+            }
+        }
+
+        assertEquals(Arrays.asList("a@b.com", "c@d.com"), out);
+        assertEquals(3, session.getProcessedCount());
+        assertEquals(1, session.getRemovedCount());
+    }
+
+    @Test
+    @DisplayName("Normalization returns already clean emails without copying")
+    void testTrimAndNormalize_ReusesCleanInstance() {
+        String email = "clean@example.com";
+        CleaningResult result = CleaningPipeline.of(CleaningStep.TRIM_AND_NORMALIZE).run(Arrays.asList(email));
+
+        assertSame(email, result.getCleanedEmails().get(0));
+    }
+
+    @Test
+    @DisplayName("Parallel run matches sequential run, including order and counts")
+    void testRunParallel_MatchesSequential() {
+        Random random = new Random(42);
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                emails.add(null);
+            } else if (kind == 1) {
+                emails.add("   ");
+            } else if (kind == 2) {
+                emails.add("  USER" + random.nextInt(500) + "@Example.com ");
+            } else if (kind == 3) {
+                emails.add("no-at-sign" + i);
+            } else {
+                emails.add("user" + random.nextInt(3_000) + "@example.com");
+            }
+        }
+
+        CleaningPipeline pipeline = CleaningPipeline.of(
+            CleaningStep.REMOVE_EMPTY_LINES,
+            CleaningStep.REMOVE_DUPLICATES,
+            CleaningStep.TRIM_AND_NORMALIZE,
+            CleaningStep.REMOVE_EMAILS_WITHOUT_AT,
+            CleaningStep.REMOVE_DUPLICATES
+        );
+
+        CleaningResult sequential = pipeline.run(emails);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CleaningResult parallel = pipeline.runParallel(emails, pool, 257);
+
+            assertEquals(sequential.getCleanedEmails(), parallel.getCleanedEmails());
+            assertEquals(sequential.getRemovedCount(), parallel.getRemovedCount());
+            assertEquals(sequential.getRemovedCounts(), parallel.getRemovedCounts());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Duplicates in lists past the heap limit are removed the same way in both runs")
+    void testRemoveDuplicates_LargeList() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 150_000; i++) {
+            emails.add("user" + (i * 7919 % 80_000) + "@example.com");
+        }
+        List<String> expected = new ArrayList<>(new LinkedHashSet<>(emails));
+        CleaningPipeline pipeline = CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES);
+
+        CleaningResult sequential = pipeline.run(emails);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CleaningResult parallel = pipeline.runParallel(emails, pool, 4_096);
+
+            assertEquals(expected, sequential.getCleanedEmails());
+            assertEquals(expected, parallel.getCleanedEmails());
+            assertEquals(150_000 - 80_000, (int) parallel.getRemovedCounts().get(CleaningStep.REMOVE_DUPLICATES));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
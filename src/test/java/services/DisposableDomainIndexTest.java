@@ -0,0 +1,72 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DisposableDomainIndex
+ */
+@DisplayName("DisposableDomainIndex Tests")
+class DisposableDomainIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Listed domains and their subdomains match case-insensitively")
+    void testIsDisposable_DomainsAndSubdomains() {
+        DisposableDomainIndex index = DisposableDomainIndex.of(Arrays.asList("mailinator.com", "Grr.LA", "mailinator.com"));
+
+        assertEquals(2, index.size());
+        assertTrue(index.isDisposable("user@mailinator.com"));
+        assertTrue(index.isDisposable("USER@MAILINATOR.COM"));
+        assertTrue(index.isDisposable("user@inbox.mailinator.com"));
+        assertTrue(index.isDisposable("user@grr.la"));
+        assertFalse(index.isDisposable("user@notmailinator.com"));
+        assertFalse(index.isDisposable("user@mailinator.com.example.org"));
+        assertFalse(index.isDisposable("user@gmail.com"));
+        assertFalse(index.isDisposable("mailinator.com"));
+        assertTrue(index.containsDomain("sub.grr.la"));
+    }
+
+    @Test
+    @DisplayName("The bundled list is extended by a user-supplied file")
+    void testLoadBundledWith_UserList() throws Exception {
+        Path userList = tempDir.resolve("extra.txt");
+        Files.write(userList, Arrays.asList("# company blocklist", "burner.example  # trial accounts", "", "@spam.test"),
+            StandardCharsets.UTF_8);
+
+        DisposableDomainIndex bundled = DisposableDomainIndex.loadBundled();
+        DisposableDomainIndex extended = DisposableDomainIndex.loadBundledWith(userList);
+
+        assertTrue(bundled.isDisposable("a@yopmail.com"));
+        assertFalse(bundled.isDisposable("a@burner.example"));
+        assertEquals(bundled.size() + 2, extended.size());
+        assertTrue(extended.isDisposable("a@burner.example"));
+        assertTrue(extended.isDisposable("a@spam.test"));
+        assertTrue(extended.isDisposable("a@yopmail.com"));
+    }
+
+    @Test
+    @DisplayName("Pipelines use the index from their rules")
+    void testPipeline_CustomRules() {
+        CleaningRules rules = CleaningRules.defaults()
+            .withDisposableDomains(DisposableDomainIndex.of(Arrays.asList("burner.example")));
+        List<String> emails = Arrays.asList("a@burner.example", "b@mailinator.com", "c@gmail.com");
+
+        CleaningResult custom = CleaningPipeline.of(CleaningStep.REMOVE_DISPOSABLE).withRules(rules).run(emails);
+        CleaningResult defaults = CleaningPipeline.of(CleaningStep.REMOVE_DISPOSABLE).run(emails);
+
+        assertEquals(Arrays.asList("b@mailinator.com", "c@gmail.com"), custom.getCleanedEmails());
+        assertEquals(Arrays.asList("a@burner.example", "c@gmail.com"), defaults.getCleanedEmails());
+    }
+}
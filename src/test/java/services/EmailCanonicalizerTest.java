@@ -0,0 +1,72 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmailCanonicalizer
+ */
+@DisplayName("EmailCanonicalizer Tests")
+class EmailCanonicalizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Bundled rules fold Gmail dots, plus-tags and provider aliases")
+    void testCanonicalize_BundledRules() {
+        EmailCanonicalizer canonicalizer = EmailCanonicalizer.loadBundled();
+
+        assertEquals("johndoe@gmail.com", canonicalizer.canonicalize("john.doe+promo@gmail.com"));
+        assertEquals("johndoe@gmail.com", canonicalizer.canonicalize("JohnDoe@googlemail.com"));
+        assertEquals("jane@outlook.com", canonicalizer.canonicalize("Jane+news@Outlook.com"));
+        assertEquals("jane.doe@icloud.com", canonicalizer.canonicalize("jane.doe@me.com"));
+        assertEquals("+tag@gmail.com", canonicalizer.canonicalize("+tag@gmail.com"));
+        assertTrue(canonicalizer.isSameMailbox("a.b@gmail.com", "ab+x@googlemail.com"));
+
+        // Unknown providers are only lower-cased
+        assertEquals("john.doe+promo@example.com", canonicalizer.canonicalize("John.Doe+promo@Example.com"));
+        String canonical = "already@example.com";
+        assertSame(canonical, canonicalizer.canonicalize(canonical));
+    }
+
+    @Test
+    @DisplayName("A user rules file adds and overrides provider rules")
+    void testLoadBundledWith_UserRules() throws Exception {
+        Path rules = tempDir.resolve("provider-rules.txt");
+        Files.write(rules, Arrays.asList(
+            "# company mail",
+            "corp.example canonical=example.com tags=-",
+            "outlook.com"
+        ), StandardCharsets.UTF_8);
+
+        EmailCanonicalizer canonicalizer = EmailCanonicalizer.loadBundledWith(rules);
+
+        assertEquals("ann@example.com", canonicalizer.canonicalize("ann-sales@corp.example"));
+        assertEquals("jane+news@outlook.com", canonicalizer.canonicalize("jane+news@outlook.com"));
+        assertEquals("johndoe@gmail.com", canonicalizer.canonicalize("john.doe@gmail.com"));
+        assertThrows(Exception.class, () -> EmailCanonicalizer.parse(new StringReader("gmail.com dots=keep")));
+    }
+
+    @Test
+    @DisplayName("Canonical dedup keeps the first address of each mailbox as written")
+    void testRemoveCanonicalDuplicates_KeepsFirstOriginal() {
+        EmailCleaningService service = new EmailCleaningServiceImpl();
+        List<String> emails = Arrays.asList(
+            "John.Doe@gmail.com", "johndoe+news@googlemail.com", "other@gmail.com", "JOHNDOE@GMAIL.COM");
+
+        List<String> result = service.removeCanonicalDuplicates(emails);
+
+        assertEquals(Arrays.asList("John.Doe@gmail.com", "other@gmail.com"), result);
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.jupiter.params.provider.CsvSource;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
@@ -86,6 +87,25 @@ class EmailCleaningServiceImplTest {
         assertEquals(2, result.size());
     }
     
+    @Test
+    @DisplayName("Import into a dataset trims lines and skips blanks")
+    void testImportDataset() throws IOException {
+        File tempFile = Files.createTempFile("test_emails", ".txt").toFile();
+        tempFile.deleteOnExit();
+        Files.writeString(tempFile.toPath(), " test1@example.com\n\ntest2@example.com \n");
+        
+        EmailDataset result = service.importDataset(tempFile, ImportProgressListener.NONE);
+        assertEquals(Arrays.asList("test1@example.com", "test2@example.com"), result.getActiveEmails());
+    }
+    
+    @Test
+    @DisplayName("Service API does not expose JavaFX types")
+    void testServiceApi_HasNoJavaFxTypes() {
+        for (Method method : EmailCleaningService.class.getMethods()) {
+            assertFalse(method.toGenericString().contains("javafx."), method::toGenericString);
+        }
+    }
+    
     // =============== Remove Duplicates Tests ===============
     
     @Test
@@ -0,0 +1,99 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmailDataset
+ */
+@DisplayName("EmailDataset Tests")
+class EmailDatasetTest {
+
+    @Test
+    @DisplayName("Rows round-trip across chunks, including non-ASCII emails")
+    void testBuilder_RoundTripsAcrossChunks() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < EmailDataset.CHUNK_ROWS * 2 + 5; i++) {
+            emails.add(i % 1000 == 0 ? "josé" + i + "@examplé.com" : "user" + i + "@example.com");
+        }
+
+        EmailDataset dataset = EmailDataset.of(emails);
+
+        assertEquals(emails.size(), dataset.size());
+        assertEquals(emails.size(), dataset.getActiveCount());
+        assertEquals(emails, dataset.activeView());
+        assertEquals(EmailDataset.Status.ACTIVE, dataset.getStatus(EmailDataset.CHUNK_ROWS));
+        assertNull(dataset.getReason(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> dataset.getEmail(emails.size()));
+        assertThrows(UnsupportedOperationException.class, () -> dataset.activeView().add("x@y.com"));
+    }
+
+    @Test
+    @DisplayName("Cleaning keeps removed rows with the step that removed them")
+    void testRun_RecordsStatusAndReason() {
+        EmailDataset input = EmailDataset.of(Arrays.asList(
+            "  A@Example.com ", "a@example.com", "no-at-sign", "b@example.com"));
+        CleaningPipeline pipeline = CleaningPipeline.of(
+            CleaningStep.TRIM_AND_NORMALIZE, CleaningStep.REMOVE_EMAILS_WITHOUT_AT, CleaningStep.REMOVE_DUPLICATES);
+
+        EmailDataset cleaned = new EmailCleaningServiceImpl().clean(input, pipeline);
+
+        assertEquals(4, input.getActiveCount());
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"), cleaned.activeView());
+        assertEquals(EmailDataset.Status.REMOVED, cleaned.getStatus(1));
+        assertEquals("a@example.com", cleaned.getEmail(1));
+        assertEquals(CleaningStep.REMOVE_DUPLICATES.getDisplayName(), cleaned.getReason(1));
+        assertEquals(CleaningStep.REMOVE_EMAILS_WITHOUT_AT.getDisplayName(), cleaned.getReason(2));
+
+        // A later run leaves rows removed earlier untouched
+        EmailDataset again = CleaningPipeline.of(CleaningStep.REMOVE_ROLE_BASED).run(cleaned);
+        assertEquals(cleaned.getRemovedCounts(), again.getRemovedCounts());
+        assertEquals(2, again.getActiveCount());
+    }
+
+    @Test
+    @DisplayName("Parallel dataset run matches sequential run")
+    void testRunParallel_MatchesSequential() {
+        Random random = new Random(7);
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+                emails.add("   ");
+            } else if (kind == 1) {
+                emails.add("no-at-sign" + i);
+            } else {
+                emails.add(" User" + random.nextInt(3_000) + "@Example.com");
+            }
+        }
+        EmailDataset input = EmailDataset.of(emails);
+        CleaningPipeline pipeline = CleaningPipeline.of(
+            CleaningStep.REMOVE_EMPTY_LINES,
+            CleaningStep.TRIM_AND_NORMALIZE,
+            CleaningStep.REMOVE_DUPLICATES,
+            CleaningStep.REMOVE_EMAILS_WITHOUT_AT
+        );
+
+        EmailDataset sequential = pipeline.run(input);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            EmailDataset parallel = pipeline.runParallel(input, pool, 257);
+
+            assertEquals(sequential.size(), parallel.size());
+            for (int row = 0; row < sequential.size(); row++) {
+                assertEquals(sequential.getEmail(row), parallel.getEmail(row));
+                assertEquals(sequential.getReason(row), parallel.getReason(row));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmailExporter
+ */
+@DisplayName("EmailExporter Tests")
+class EmailExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final EmailExporter exporter = new EmailExporter();
+
+    private static EmailDataset cleanedSample() {
+        EmailDataset input = EmailDataset.of(Arrays.asList(
+            "a@example.com", "josé@exämple.com", "a@example.com", "no-at,sign", "\"quoted\"@example.com"));
+        return CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES, CleaningStep.REMOVE_EMAILS_WITHOUT_AT).run(input);
+    }
+
+    @Test
+    @DisplayName("Text export writes the active emails as UTF-8 lines")
+    void testExport_TextUtf8() throws Exception {
+        Path target = tempDir.resolve("out.txt");
+
+        ExportStats stats = exporter.export(cleanedSample(), target, ExportOptions.defaults());
+
+        assertEquals(Arrays.asList("a@example.com", "josé@exämple.com", "\"quoted\"@example.com"),
+            Files.readAllLines(target, StandardCharsets.UTF_8));
+        assertEquals(3, stats.getRowsWritten());
+        assertEquals(List.of(target), stats.getFiles());
+        assertEquals(Files.size(target), stats.getBytesWritten());
+    }
+
+    @Test
+    @DisplayName("CSV export lists every row with its status and quoted fields")
+    void testExport_CsvWithReasons() throws Exception {
+        Path target = tempDir.resolve("out.csv");
+
+        exporter.export(cleanedSample(), target, ExportOptions.defaults().withFormat(ExportOptions.Format.CSV));
+
+        assertEquals(Arrays.asList(
+            "email,status,reason",
+            "a@example.com,active,",
+            "josé@exämple.com,active,",
+            "a@example.com,removed,Duplicates",
+            "\"no-at,sign\",removed,Missing @",
+            "\"\"\"quoted\"\"@example.com\",active,"
+        ), Files.readAllLines(target, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Split gzip export numbers the parts and keeps every row once")
+    void testExport_GzipSplitByRows() throws Exception {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        Path target = tempDir.resolve("emails.txt");
+        ExportOptions options = ExportOptions.defaults()
+            .withCompression(ExportOptions.Compression.GZIP)
+            .withMaxRowsPerFile(1_000);
+
+        ExportStats stats = exporter.export(EmailDataset.of(emails), target, options);
+
+        assertEquals(Arrays.asList(tempDir.resolve("emails-001.txt.gz"), tempDir.resolve("emails-002.txt.gz"),
+            tempDir.resolve("emails-003.txt.gz")), stats.getFiles());
+        List<String> read = new ArrayList<>();
+        for (Path file : stats.getFiles()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                read.addAll(reader.lines().collect(Collectors.toList()));
+            }
+        }
+        assertEquals(emails, read);
+    }
+}
@@ -3,12 +3,22 @@ package services;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import services.intelligence.analysis.SecurityScorer;
+import services.intelligence.collectors.GravatarCollector;
 import services.intelligence.models.EmailIntelligenceProfile;
+import services.intelligence.models.GravatarData;
+import services.intelligence.resilience.ResilienceOptions;
+import services.intelligence.resilience.ResilientCaller;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -261,4 +271,180 @@ class EmailIntelligenceServiceImplTest {
         // Should complete without throwing
         assertDoesNotThrow(() -> future.get(10, TimeUnit.SECONDS));
     }
+    
+    // =============== Execution Tests ===============
+    
+    @Test
+    @DisplayName("Gravatar lookups in flight never exceed the resilience layer's concurrency limit")
+    void testAnalyzeEmails_RespectsConcurrencyLimit() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ResilientCaller resilience = new ResilientCaller(ResilienceOptions.defaults().withConcurrency(3, 1, 3));
+        GravatarCollector slowCollector = new GravatarCollector(null, resilience) {
+            @Override
+            public CompletableFuture<GravatarData> collectAsync(String email) {
+                return getResilience().call("gravatar.test", () -> {
+                    peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return CompletableFuture.supplyAsync(() -> {
+                        inFlight.decrementAndGet();
+                        return GravatarData.empty();
+                    }, CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS));
+                });
+            }
+        };
+        EmailIntelligenceServiceImpl limited = new EmailIntelligenceServiceImpl(
+            IntelligenceOptions.defaults().withPlatformThreads(8), slowCollector);
+        
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        List<EmailIntelligenceProfile> profiles = limited.analyzeEmails(emails).get(10, TimeUnit.SECONDS);
+        limited.shutdown();
+        
+        assertEquals(30, profiles.size());
+        assertEquals(3, peak.get());
+    }
+    
+    @Test
+    @DisplayName("Bulk analysis queues lookups beyond the rate limit instead of having them refused")
+    void testAnalyzeEmails_QueuesBeyondRateLimit() throws Exception {
+        // 200 calls/s with a 50 ms throttle wait admits 10 calls at a time; the burst is far below the list
+        ResilienceOptions options = ResilienceOptions.defaults()
+            .withRateLimit(200, 5)
+            .withMaxThrottleWait(Duration.ofMillis(50));
+        AtomicInteger calls = new AtomicInteger();
+        GravatarCollector collector = new GravatarCollector(null, new ResilientCaller(options)) {
+            @Override
+            public CompletableFuture<GravatarData> collectAsync(String email) {
+                return getResilience().call("gravatar.test", () -> {
+                    calls.incrementAndGet();
+                    return CompletableFuture.completedFuture(GravatarData.empty());
+                });
+            }
+        };
+        EmailIntelligenceServiceImpl limited = new EmailIntelligenceServiceImpl(
+            IntelligenceOptions.defaults().withPlatformThreads(4), collector);
+
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            emails.add("user" + i + "@example.com");
+        }
+        List<EmailIntelligenceProfile> profiles = limited.analyzeEmails(emails).get(10, TimeUnit.SECONDS);
+        limited.shutdown();
+
+        assertEquals(10, EmailIntelligenceServiceImpl.bulkWindow(options));
+        assertEquals(200, profiles.size());
+        assertEquals(200, calls.get());
+        assertEquals(0, limited.getRefusedGravatarLookups());
+    }
+
+    @Test
+    @DisplayName("The Gravatar dependency limit caps the default resilience layer")
+    void testConstructor_DependencyLimitCapsConcurrency() {
+        EmailIntelligenceServiceImpl limited = new EmailIntelligenceServiceImpl(
+            IntelligenceOptions.defaults().withDependencyLimit(IntelligenceOptions.GRAVATAR, 4));
+        limited.shutdown();
+        
+        ResilienceOptions applied = limited.getGravatarResilience().getOptions();
+        assertEquals(4, applied.getMaxConcurrency());
+        assertTrue(applied.getInitialConcurrency() <= 4);
+        assertTrue(applied.getMinConcurrency() <= applied.getInitialConcurrency());
+    }
+    
+    @Test
+    @DisplayName("Cancelling a streaming subscription cancels the Gravatar lookups in flight")
+    void testAnalyzeEmailsStreaming_CancelStopsLookups() throws Exception {
+        List<CompletableFuture<GravatarData>> lookups = new CopyOnWriteArrayList<>();
+        GravatarCollector pendingCollector = new GravatarCollector() {
+            @Override
+            public CompletableFuture<GravatarData> collectAsync(String email) {
+                CompletableFuture<GravatarData> lookup = new CompletableFuture<>();
+                lookups.add(lookup);
+                return lookup;
+            }
+        };
+        EmailIntelligenceServiceImpl streaming = new EmailIntelligenceServiceImpl(IntelligenceOptions.defaults(),
+            pendingCollector);
+        
+        CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        streaming.analyzeEmailsStreaming(Arrays.asList("a@example.com", "b@example.com", "c@example.com"), 2)
+            .subscribe(new Flow.Subscriber<EmailIntelligenceProfile>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscribed.complete(subscription);
+                }
+                
+                @Override
+                public void onNext(EmailIntelligenceProfile item) {
+                }
+                
+                @Override
+                public void onError(Throwable throwable) {
+                }
+                
+                @Override
+                public void onComplete() {
+                }
+            });
+        subscribed.get(5, TimeUnit.SECONDS).cancel();
+        streaming.shutdown();
+        
+        assertEquals(2, lookups.size());
+        for (CompletableFuture<GravatarData> lookup : lookups) {
+            assertTrue(lookup.isCancelled());
+        }
+    }
+    
+    @Test
+    @DisplayName("Aliases of one mailbox get their own Gravatar data and scores from their own metrics")
+    void testAnalyzeEmails_AliasesScoredSeparately() throws Exception {
+        List<String> looked = new CopyOnWriteArrayList<>();
+        GravatarCollector collector = new GravatarCollector() {
+            @Override
+            public CompletableFuture<GravatarData> collectAsync(String email) {
+                looked.add(email);
+                GravatarData data = new GravatarData();
+                data.setProfileExists(email.startsWith("john.doe"));
+                data.setDisplayName(email);
+                return CompletableFuture.completedFuture(data);
+            }
+        };
+        EmailIntelligenceServiceImpl aliases = new EmailIntelligenceServiceImpl(IntelligenceOptions.defaults(), collector);
+        
+        List<EmailIntelligenceProfile> profiles = aliases.analyzeEmails(Arrays.asList(
+            "john.doe@gmail.com", "johndoe+news1234@gmail.com", "john.doe@gmail.com")).get(10, TimeUnit.SECONDS);
+        aliases.shutdown();
+        
+        assertEquals(3, profiles.size());
+        assertEquals(2, looked.size(), "Repeated addresses are looked up once");
+        EmailIntelligenceProfile first = profiles.get(0);
+        EmailIntelligenceProfile alias = profiles.get(1);
+        assertEquals("PROFESSIONAL", first.getEmailMetrics().getUsernamePattern());
+        assertEquals("NUMERIC", alias.getEmailMetrics().getUsernamePattern());
+        assertEquals("johndoe+news1234@gmail.com", alias.getGravatarData().getDisplayName());
+        assertFalse(alias.getGravatarData().isProfileExists());
+        SecurityScorer scorer = new SecurityScorer();
+        for (EmailIntelligenceProfile profile : profiles) {
+            assertEquals(scorer.calculateScore(profile.getEmailMetrics(), profile.getServicePresence()).getOverallScore(),
+                profile.getSecurityScore().getOverallScore(), profile.getEmail());
+        }
+        assertNotEquals(first.getSecurityScore().getOverallScore(), alias.getSecurityScore().getOverallScore());
+        assertEquals("john.doe@gmail.com", profiles.get(2).getEmail());
+        assertNotSame(first, profiles.get(2));
+    }
+    
+    @Test
+    @DisplayName("Platform thread mode is available on every runtime")
+    void testAnalyzeEmail_PlatformThreads() throws Exception {
+        EmailIntelligenceServiceImpl platform = new EmailIntelligenceServiceImpl(
+            IntelligenceOptions.defaults().withThreadMode(IntelligenceOptions.ThreadMode.PLATFORM));
+        
+        EmailIntelligenceProfile profile = platform.analyzeEmail("test@example.com").get(10, TimeUnit.SECONDS);
+        platform.shutdown();
+        
+        assertEquals("test@example.com", profile.getEmail());
+        assertEquals(VirtualThreads.isSupported(), IntelligenceOptions.defaults().getThreadMode()
+            == IntelligenceOptions.ThreadMode.VIRTUAL);
+    }
 }
@@ -0,0 +1,68 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static services.EmailSyntaxValidator.Reason.*;
+
+/**
+ * Unit tests for EmailSyntaxValidator
+ */
+@DisplayName("EmailSyntaxValidator Tests")
+class EmailSyntaxValidatorTest {
+
+    private static final Pattern EMAIL_REGEX =
+        Pattern.compile("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    private static final Pattern DOMAIN_FORMAT_REGEX = Pattern.compile("^[^@]+@[^@]+\\.[A-Za-z]{2,}$");
+
+    @Test
+    @DisplayName("Strict validation reports the first problem")
+    void testValidate_Reasons() {
+        assertEquals(VALID, EmailSyntaxValidator.validate("john.doe+tag@mail.example.com"));
+        assertEquals(VALID, EmailSyntaxValidator.validate("a_b%c@x-y.co"));
+        assertEquals(TOO_SHORT, EmailSyntaxValidator.validate("a@b.c"));
+        assertEquals(MISSING_AT, EmailSyntaxValidator.validate("john.example.com"));
+        assertEquals(MULTIPLE_AT, EmailSyntaxValidator.validate("john@doe@example.com"));
+        assertEquals(EMPTY_LOCAL_PART, EmailSyntaxValidator.validate("@example.com"));
+        assertEquals(INVALID_LOCAL_CHARACTER, EmailSyntaxValidator.validate("jo hn@example.com"));
+        assertEquals(INVALID_DOT_PLACEMENT, EmailSyntaxValidator.validate("john..doe@example.com"));
+        assertEquals(INVALID_DOT_PLACEMENT, EmailSyntaxValidator.validate("john.@example.com"));
+        assertEquals(INVALID_DOMAIN_CHARACTER, EmailSyntaxValidator.validate("john@exa_mple.com"));
+        assertEquals(INVALID_DOMAIN_LABEL, EmailSyntaxValidator.validate("john@-example.com"));
+        assertEquals(INVALID_DOMAIN_LABEL, EmailSyntaxValidator.validate("john@example..com"));
+        assertEquals(INVALID_DOMAIN_LABEL, EmailSyntaxValidator.validate("john@example.com."));
+        assertEquals(MISSING_TLD, EmailSyntaxValidator.validate("john@localhost"));
+        assertEquals(INVALID_TLD, EmailSyntaxValidator.validate("john@example.c0m"));
+        assertEquals(INVALID_TLD, EmailSyntaxValidator.validate("john@example.c"));
+        assertEquals(LOCAL_PART_TOO_LONG, EmailSyntaxValidator.validate("a".repeat(65) + "@example.com"));
+        assertEquals(TOO_LONG, EmailSyntaxValidator.validate("a@" + "b".repeat(250) + ".com"));
+    }
+
+    @Test
+    @DisplayName("Legacy checks agree with the regexes they replace on random input")
+    void testLegacyChecks_MatchRegexes() {
+        char[] alphabet = {'a', 'Z', '0', '.', '@', '-', '_', '+', '%', ' ', '\n', '\r', 'é', '#'};
+        Random random = new Random(42);
+        for (int n = 0; n < 200_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(14);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            if (random.nextBoolean()) {
+                sb.append(random.nextBoolean() ? ".com" : ".io");
+                if (random.nextInt(4) == 0) {
+                    sb.append(random.nextBoolean() ? "\n" : "\r\n");
+                }
+            }
+            String email = sb.toString();
+
+            assertEquals(EMAIL_REGEX.matcher(email).matches(), EmailSyntaxValidator.hasValidCharacters(email), email);
+            assertEquals(DOMAIN_FORMAT_REGEX.matcher(email).matches(), EmailSyntaxValidator.hasValidDomainFormat(email), email);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static services.LocalPartClassifier.Category.*;
+
+/**
+ * Unit tests for LocalPartClassifier
+ */
+@DisplayName("LocalPartClassifier Tests")
+class LocalPartClassifierTest {
+
+    private final LocalPartClassifier classifier = LocalPartClassifier.defaults();
+
+    @Test
+    @DisplayName("Only exact local parts are classified, case-insensitively")
+    void testClassify_ExactLocalPart() {
+        assertEquals(ROLE, classifier.classify("info@example.com"));
+        assertEquals(ROLE, classifier.classify("Sales@Example.com"));
+        assertEquals(ADMIN, classifier.classify("ADMIN@example.com"));
+        assertEquals(BOT, classifier.classify("no-reply@example.com"));
+        assertEquals(BOT, classifier.classify("bot@example.com"));
+        assertEquals(NONE, classifier.classify("information@example.com"));
+        assertEquals(NONE, classifier.classify("inf@example.com"));
+        assertEquals(NONE, classifier.classify("my.info@example.com"));
+        assertEquals(NONE, classifier.classify("info"));
+        assertEquals(NONE, classifier.classify("ìnfo@example.com"));
+    }
+
+    @Test
+    @DisplayName("User-supplied local parts extend or override the defaults")
+    void testWithLocalParts() {
+        LocalPartClassifier extended = classifier
+            .withLocalParts(ROLE, Arrays.asList("Billing", "help"))
+            .withLocalParts(BOT, Arrays.asList("mailer-daemon", "info"));
+
+        assertEquals(ROLE, extended.classify("billing@example.com"));
+        assertEquals(BOT, extended.classify("MAILER-DAEMON@example.com"));
+        assertEquals(BOT, extended.classify("info@example.com"));
+        assertEquals(ROLE, classifier.classify("info@example.com"));
+        assertThrows(IllegalArgumentException.class, () -> classifier.withLocalParts(NONE, Arrays.asList("x")));
+        assertThrows(IllegalArgumentException.class, () -> classifier.withLocalParts(ROLE, Arrays.asList("a@b")));
+    }
+
+    @Test
+    @DisplayName("The combined step removes the same emails as both filters")
+    void testCombinedStep() {
+        List<String> emails = Arrays.asList(
+            "info@a.com", "ADMIN@a.com", "noreply@a.com", "john@a.com", "support", "do-not-reply@b.org", "jobs.x@a.com");
+
+        CleaningResult separate = CleaningPipeline.of(CleaningStep.REMOVE_ROLE_BASED, CleaningStep.REMOVE_ADMIN_OR_BOT).run(emails);
+        CleaningResult combined = CleaningPipeline.of(CleaningStep.REMOVE_ROLE_BASED_ADMIN_OR_BOT).run(emails);
+
+        assertEquals(Arrays.asList("john@a.com", "support", "jobs.x@a.com"), combined.getCleanedEmails());
+        assertEquals(separate.getCleanedEmails(), combined.getCleanedEmails());
+        assertEquals(1, separate.getRemovedCount(CleaningStep.REMOVE_ROLE_BASED));
+        assertEquals(3, separate.getRemovedCount(CleaningStep.REMOVE_ADMIN_OR_BOT));
+    }
+}
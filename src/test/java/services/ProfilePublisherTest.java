@@ -0,0 +1,106 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import services.intelligence.models.EmailIntelligenceProfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProfilePublisher
+ */
+@DisplayName("ProfilePublisher Tests")
+class ProfilePublisherTest {
+
+    private final List<CompletableFuture<EmailIntelligenceProfile>> started = new ArrayList<>();
+    private final List<String> startedEmails = new ArrayList<>();
+
+    private CompletableFuture<EmailIntelligenceProfile> analyze(String email) {
+        CompletableFuture<EmailIntelligenceProfile> future = new CompletableFuture<>();
+        started.add(future);
+        startedEmails.add(email);
+        return future;
+    }
+
+    private static EmailIntelligenceProfile profile(String email) {
+        EmailIntelligenceProfile profile = new EmailIntelligenceProfile();
+        profile.setEmail(email);
+        return profile;
+    }
+
+    /**
+     * Subscriber that records signals and requests only when told to
+     */
+    private static final class Recorder implements Flow.Subscriber<EmailIntelligenceProfile> {
+        final List<String> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(EmailIntelligenceProfile item) {
+            received.add(item.getEmail());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    @DisplayName("Profiles are emitted in completion order within demand and the in-flight limit")
+    void testSubscribe_BoundsInFlightAndDemand() {
+        List<String> emails = Arrays.asList("a@x.com", "b@x.com", "c@x.com", "d@x.com");
+        Recorder recorder = new Recorder();
+        new ProfilePublisher(emails, 2, this::analyze).subscribe(recorder);
+
+        assertEquals(Arrays.asList("a@x.com", "b@x.com"), startedEmails);
+
+        started.get(1).complete(profile("b@x.com"));
+        assertTrue(recorder.received.isEmpty());
+        assertEquals(2, started.size(), "an unrequested profile still counts against the limit");
+
+        recorder.subscription.request(10);
+        assertEquals(Arrays.asList("b@x.com"), recorder.received);
+        assertEquals(3, started.size());
+
+        started.get(0).complete(profile("a@x.com"));
+        started.get(2).complete(profile("c@x.com"));
+        started.get(3).complete(profile("d@x.com"));
+        assertEquals(Arrays.asList("b@x.com", "a@x.com", "c@x.com", "d@x.com"), recorder.received);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    @DisplayName("Cancelling stops new lookups and later results are dropped")
+    void testCancel_StopsLookups() {
+        List<String> emails = Arrays.asList("a@x.com", "b@x.com", "c@x.com");
+        Recorder recorder = new Recorder();
+        new ProfilePublisher(emails, 1, this::analyze).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        recorder.subscription.cancel();
+        started.get(0).complete(profile("a@x.com"));
+
+        assertEquals(1, started.size());
+        assertTrue(started.get(0).isDone());
+        assertTrue(recorder.received.isEmpty());
+        assertFalse(recorder.completed);
+    }
+}
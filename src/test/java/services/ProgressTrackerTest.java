@@ -0,0 +1,81 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProgressTracker
+ */
+@DisplayName("ProgressTracker Tests")
+class ProgressTrackerTest {
+
+    @Test
+    @DisplayName("Samples report rate and ETA, and closing reports the final counts")
+    void testSampling_ReportsRateEtaAndFinalSample() throws Exception {
+        List<ProgressTracker.Snapshot> samples = new CopyOnWriteArrayList<>();
+        ProgressTracker tracker = new ProgressTracker(1_000, samples::add).start(Duration.ofMillis(10));
+
+        for (int i = 0; i < 500; i++) {
+            tracker.advance(1);
+        }
+        Thread.sleep(100);
+        int sampledWhileRunning = samples.size();
+        tracker.advance(500);
+        tracker.close();
+
+        assertTrue(sampledWhileRunning >= 2);
+        ProgressTracker.Snapshot halfway = samples.get(0);
+        assertEquals(500, halfway.getWorkDone());
+        assertEquals(0.5, halfway.getFraction());
+        assertTrue(halfway.getRecordsPerSecond() > 0);
+        assertNotNull(halfway.getEta());
+
+        ProgressTracker.Snapshot last = samples.get(samples.size() - 1);
+        assertEquals(1_000, last.getRecords());
+        assertEquals(1.0, last.getFraction());
+        assertEquals(Duration.ZERO, last.getEta());
+
+        // No samples once closed
+        int closedAt = samples.size();
+        Thread.sleep(50);
+        assertEquals(closedAt, samples.size());
+    }
+
+    @Test
+    @DisplayName("Pipeline runs advance the tracker by every active row")
+    void testPipelineRun_AdvancesTracker() {
+        EmailDataset.Builder builder = EmailDataset.builder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.add("user" + i + "@example.com");
+        }
+        List<ProgressTracker.Snapshot> samples = new CopyOnWriteArrayList<>();
+        ProgressTracker tracker = new ProgressTracker(10_000, samples::add).start();
+
+        CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES).run(builder.build(), tracker);
+        tracker.close();
+
+        assertEquals(10_000, samples.get(samples.size() - 1).getWorkDone());
+    }
+
+    @Test
+    @DisplayName("The shared NONE tracker ignores untracked runs")
+    void testNone_IgnoresUpdates() {
+        EmailDataset.Builder builder = EmailDataset.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add("user" + i + "@example.com");
+        }
+        new EmailCleaningServiceImpl().clean(builder.build(), CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES));
+        ProgressTracker.NONE.setTotalWork(42);
+        ProgressTracker.NONE.update(7, 7);
+
+        assertEquals(0, ProgressTracker.NONE.getWorkDone());
+        assertEquals(-1, ProgressTracker.NONE.getTotalWork());
+        assertSame(ProgressTracker.NONE, ProgressTracker.NONE.start());
+    }
+}
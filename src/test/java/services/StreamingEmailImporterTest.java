@@ -0,0 +1,89 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamingEmailImporter
+ */
+@DisplayName("StreamingEmailImporter Tests")
+class StreamingEmailImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Lines spanning buffer boundaries are reassembled")
+    void testImportFile_SmallBuffer() throws IOException {
+        Path file = tempDir.resolve("emails.txt");
+        Files.write(file, "\uFEFFfirst@example.com\r\nSECOND@Example.com\n\n  third@example.com  \nlast@example.com"
+            .getBytes(StandardCharsets.UTF_8));
+
+        List<String> out = new ArrayList<>();
+        List<Long> progress = new ArrayList<>();
+        StreamingEmailImporter importer = new StreamingEmailImporter(7, 1024);
+        ImportStats stats = importer.importFile(file,
+            CleaningPipeline.of(CleaningStep.REMOVE_EMPTY_LINES, CleaningStep.REMOVE_DUPLICATES),
+            out::add, (bytesRead, totalBytes, records) -> progress.add(bytesRead));
+
+        assertEquals(Arrays.asList("first@example.com", "SECOND@Example.com", "third@example.com",
+            "last@example.com"), out);
+        assertEquals(5, stats.getLinesRead());
+        assertEquals(4, stats.getAcceptedCount());
+        assertEquals(1, (int) stats.getRemovedCounts().get(CleaningStep.REMOVE_EMPTY_LINES));
+        assertEquals(Files.size(file), stats.getBytesRead());
+        assertEquals(Files.size(file), (long) progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Over-long lines are skipped without buffering them")
+    void testImportChannel_SkipsLongLines() throws IOException {
+        StringBuilder input = new StringBuilder("ok@example.com\n");
+        for (int i = 0; i < 100; i++) {
+            input.append('x');
+        }
+        input.append("@example.com\nalso.ok@example.com\n");
+
+        List<String> out = new ArrayList<>();
+        StreamingEmailImporter importer = new StreamingEmailImporter(16, 32);
+        ImportStats stats = importer.importChannel(
+            Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8))),
+            -1, CleaningPipeline.of(), out::add, ImportProgressListener.NONE);
+
+        assertEquals(Arrays.asList("ok@example.com", "also.ok@example.com"), out);
+        assertEquals(3, stats.getLinesRead());
+        assertEquals(1, stats.getSkippedLines());
+    }
+
+    @Test
+    @DisplayName("Service streaming import keeps only pipeline survivors")
+    void testImportStreaming_Service() throws IOException {
+        Path file = tempDir.resolve("dupes.txt");
+        Files.write(file, Arrays.asList("a@test.com", "b@test.com", "a@test.com", "bad-line"));
+
+        List<String> out = new ArrayList<>();
+        ImportStats stats = new EmailCleaningServiceImpl().importStreaming(file.toFile(),
+            CleaningPipeline.of(CleaningStep.REMOVE_DUPLICATES, CleaningStep.REMOVE_EMAILS_WITHOUT_AT),
+            out::add, ImportProgressListener.NONE);
+
+        assertEquals(Arrays.asList("a@test.com", "b@test.com"), out);
+        assertEquals(4, stats.getLinesRead());
+        assertEquals(2, stats.getAcceptedCount());
+    }
+}
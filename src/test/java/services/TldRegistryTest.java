@@ -0,0 +1,63 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TldRegistry
+ */
+@DisplayName("TldRegistry Tests")
+class TldRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("The bundled list knows generic, country and IDN TLDs")
+    void testBundled() {
+        TldRegistry registry = TldRegistry.loadBundled();
+
+        assertTrue(registry.size() > 1_000);
+        assertTrue(registry.hasRegisteredTld("user@example.COM"));
+        assertTrue(registry.hasRegisteredTld("user@example.photography"));
+        assertTrue(registry.hasRegisteredTld("user@example.xn--p1ai"));
+        assertTrue(registry.hasRegisteredTld("user@пример.рф"));
+        assertFalse(registry.hasRegisteredTld("user@domain.zzz"));
+        assertFalse(registry.hasRegisteredTld("user@test.x"));
+        assertFalse(registry.hasRegisteredTld("user@domain.com."));
+        assertFalse(registry.hasRegisteredTld("nodots"));
+    }
+
+    @Test
+    @DisplayName("A downloaded IANA file replaces the list")
+    void testLoad() throws Exception {
+        Path file = tempDir.resolve("tlds.txt");
+        Files.write(file, Arrays.asList("# Version 2099010100", "COM", "NEWTLD", "XN--P1AI"), StandardCharsets.UTF_8);
+
+        TldRegistry registry = TldRegistry.load(file);
+
+        assertEquals(4, registry.size());
+        assertTrue(registry.isRegistered("newtld"));
+        assertTrue(registry.isRegistered("рф"));
+        assertFalse(registry.isRegistered("org"));
+    }
+
+    @Test
+    @DisplayName("The TLD filter rejects unregistered TLDs")
+    void testFilter() {
+        List<String> emails = Arrays.asList("a@domain.com", "b@test.xyz", "c@domain.zzz", "d@fake.x", "e@shop.ONLINE");
+
+        CleaningResult result = CleaningPipeline.of(CleaningStep.REMOVE_INVALID_OR_FAKE_TLDS).run(emails);
+
+        assertEquals(Arrays.asList("a@domain.com", "b@test.xyz", "e@shop.ONLINE"), result.getCleanedEmails());
+    }
+}
@@ -0,0 +1,86 @@
+package services.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HashDeduplicator and OffHeapHashSet
+ */
+@DisplayName("HashDeduplicator Tests")
+class HashDeduplicatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("In-memory deduplication keeps first occurrences in order")
+    void testDeduplicate_InMemory() {
+        HashDeduplicator deduplicator = new HashDeduplicator(HashDeduplicator.DEFAULT_MEMORY_BUDGET, tempDir);
+
+        List<String> result = deduplicator.deduplicate(
+            Arrays.asList("b@x.com", "a@x.com", "b@x.com", null, "", "A@x.com", "", "a@x.com"));
+
+        assertEquals(Arrays.asList("b@x.com", "a@x.com", "", "A@x.com"), result);
+    }
+
+    @Test
+    @DisplayName("Spilling to disk gives the same result as a LinkedHashSet")
+    void testDeduplicate_SpillMatchesLinkedHashSet() throws Exception {
+        Random random = new Random(7);
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 300_000; i++) {
+            emails.add("user" + random.nextInt(200_000) + "@example" + random.nextInt(3) + ".com");
+        }
+        // 16 KiB holds 768 hashes, so almost everything is spilled and partitions must be split
+        HashDeduplicator deduplicator = new HashDeduplicator(16 * 1024, tempDir.resolve("spill"));
+
+        List<String> result = new ArrayList<>();
+        DedupStats stats = deduplicator.deduplicate(emails, result::add);
+
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(emails)), result);
+        assertEquals(result.size(), stats.getKeptCount());
+        assertEquals(emails.size() - result.size(), stats.getRemovedCount());
+        assertTrue(stats.getSpilledRecords() > 0);
+        assertTrue(stats.getPartitions() > 256);
+        try (Stream<Path> leftovers = Files.list(tempDir.resolve("spill"))) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    @DisplayName("The off-heap set grows while old and new tables fit its byte limit, then reports FULL")
+    void testOffHeapHashSet_Limit() {
+        OffHeapHashSet set = new OffHeapHashSet(1 << 16);
+
+        int added = 0;
+        for (long i = 1; i <= 5_000; i++) {
+            int outcome = set.add(i, i * 31);
+            if (outcome == OffHeapHashSet.ADDED) {
+                added++;
+            } else {
+                assertEquals(OffHeapHashSet.FULL, outcome);
+            }
+        }
+
+        assertEquals(set.maxEntries(), added);
+        assertEquals(1 << 15, set.allocatedBytes());
+        assertTrue(set.allocatedBytes() + set.allocatedBytes() / 2 <= 1 << 16, "Last growth stayed within the limit");
+        assertTrue(set.contains(1, 31));
+        assertEquals(OffHeapHashSet.PRESENT, set.add(1, 31));
+        set.clear(10);
+        assertFalse(set.contains(1, 31));
+        assertEquals(0, set.size());
+    }
+}
@@ -0,0 +1,70 @@
+package services.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import services.CleaningPipeline;
+import services.CleaningResult;
+import services.CleaningRules;
+import services.CleaningStep;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ScalableBloomFilter
+ */
+@DisplayName("ScalableBloomFilter Tests")
+class ScalableBloomFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("No false negatives and a false-positive rate near the target while scaling")
+    void testErrorRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(0.01, 10_000);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(filter.getLayerCount() > 1);
+        assertTrue(filter.getEstimatedFalsePositiveRate() < 0.01);
+        assertTrue(falsePositives < 1_000, "false positives: " + falsePositives);
+        assertTrue(filter.getMemoryBytes() < 400_000, "memory: " + filter.getMemoryBytes());
+    }
+
+    @Test
+    @DisplayName("A saved filter drops emails seen in an earlier run")
+    void testPersistedAcrossRuns() throws Exception {
+        Path file = tempDir.resolve("seen.bloom");
+
+        ScalableBloomFilter first = ScalableBloomFilter.openOrCreate(file, 0.001, 1_000);
+        CleaningPipeline firstRun = CleaningPipeline.of(CleaningStep.REMOVE_PREVIOUSLY_SEEN)
+            .withRules(CleaningRules.defaults().withSeenFilter(first));
+        CleaningResult day1 = firstRun.run(Arrays.asList("a@x.com", "b@x.com", "a@x.com"));
+        first.writeTo(file);
+
+        ScalableBloomFilter second = ScalableBloomFilter.openOrCreate(file, 0.5, 1);
+        CleaningPipeline secondRun = CleaningPipeline.of(CleaningStep.REMOVE_PREVIOUSLY_SEEN)
+            .withRules(CleaningRules.defaults().withSeenFilter(second));
+        CleaningResult day2 = secondRun.run(Arrays.asList("b@x.com", "c@x.com"));
+
+        assertEquals(Arrays.asList("a@x.com", "b@x.com"), day1.getCleanedEmails());
+        assertEquals(Arrays.asList("c@x.com"), day2.getCleanedEmails());
+        assertEquals(0.001, second.getTargetFalsePositiveRate());
+        assertEquals(3, second.getCount());
+    }
+}
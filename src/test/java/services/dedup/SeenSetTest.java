@@ -0,0 +1,50 @@
+package services.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SeenSet
+ */
+@DisplayName("SeenSet Tests")
+class SeenSetTest {
+
+    @Test
+    @DisplayName("Small inputs stay on the heap")
+    void testAdd_HeapOnly() {
+        SeenSet seen = new SeenSet();
+
+        assertTrue(seen.add("a@x.com"));
+        assertTrue(seen.add("A@x.com"));
+        assertFalse(seen.add("a@x.com"));
+        assertEquals(2, seen.size());
+        assertFalse(seen.isOffHeap());
+    }
+
+    @Test
+    @DisplayName("Switching to hashes and overflowing full tables keeps the answers of a HashSet")
+    void testAdd_OffHeapMatchesHashSet() {
+        // 16 KiB tables hold 768 hashes each, so 20,000 values fill many of them
+        SeenSet seen = new SeenSet(100, 16 * 1024);
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(7);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            values.add("user" + random.nextInt(20_000) + "@example.com");
+        }
+
+        for (String value : values) {
+            assertEquals(expected.add(value), seen.add(value), value);
+        }
+        assertTrue(seen.isOffHeap());
+        assertEquals(expected.size(), seen.size());
+    }
+}
@@ -0,0 +1,132 @@
+package services.dns;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DomainValidator against an in-process stub resolver
+ */
+@DisplayName("DomainValidator Tests")
+class DomainValidatorTest {
+
+    /**
+     * Answers from a fixed set of existing domains after a short delay,
+     * recording how often and how concurrently it was called.
+     */
+    private static class StubResolver implements DomainResolver {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        private final List<String> existing;
+
+        StubResolver(String... existing) {
+            this.existing = Arrays.asList(existing);
+        }
+
+        @Override
+        public CompletableFuture<DomainVerdict> resolve(String domain) {
+            calls.computeIfAbsent(domain, d -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                if (domain.startsWith("broken")) {
+                    throw new IllegalStateException("resolver failure");
+                }
+                return existing.contains(domain) ? DomainVerdict.EXISTS : DomainVerdict.NOT_FOUND;
+            });
+        }
+    }
+
+    @Test
+    @DisplayName("Each unique domain is resolved once and verdicts fan out to emails")
+    void testFilterEmails_DedupesDomains() {
+        StubResolver resolver = new StubResolver("gmail.com", "example.com");
+        DomainValidator validator = new DomainValidator(resolver, 4,
+            new DomainVerdictCache(Duration.ofMinutes(5), Duration.ofMinutes(1)));
+
+        List<String> emails = Arrays.asList(
+            "a@gmail.com", "b@GMAIL.com", "c@nowhere.zzz", "d@example.com",
+            "a@gmail.com", "no-domain@", "@gmail.com", "e@broken.net"
+        );
+
+        List<String> result = validator.filterEmails(emails);
+
+        assertEquals(Arrays.asList("a@gmail.com", "b@GMAIL.com", "d@example.com", "a@gmail.com"), result);
+        resolver.calls.values().forEach(count -> assertEquals(1, count.get()));
+        assertEquals(4, resolver.calls.size());
+        assertEquals(1, validator.getMetrics().getFailures());
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups never exceed the in-flight limit")
+    void testValidateDomains_BoundedConcurrency() {
+        StubResolver resolver = new StubResolver();
+        DomainValidator validator = new DomainValidator(resolver, 3,
+            new DomainVerdictCache(Duration.ofMinutes(5), Duration.ofMinutes(1)));
+
+        List<String> domains = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            domains.add("domain" + i + ".com");
+        }
+        validator.validateDomains(domains);
+
+        assertEquals(60, validator.getMetrics().getLookups());
+        assertTrue(resolver.maxInFlight.get() <= 3, "max in flight was " + resolver.maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("Positive and negative answers are cached until their TTL expires")
+    void testValidateDomains_CacheTtl() {
+        AtomicLong now = new AtomicLong();
+        StubResolver resolver = new StubResolver("gmail.com");
+        DomainVerdictCache cache = new DomainVerdictCache(Duration.ofSeconds(60), Duration.ofSeconds(10), now::get);
+        DomainValidator validator = new DomainValidator(resolver, 2, cache);
+        List<String> domains = Arrays.asList("gmail.com", "missing.org");
+
+        validator.validateDomains(domains);
+        validator.validateDomains(domains);
+        assertEquals(2, validator.getMetrics().getCacheHits());
+        assertEquals(0.5, validator.getMetrics().getCacheHitRatio(), 1e-9);
+
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        Map<String, DomainVerdict> verdicts = validator.validateDomains(domains);
+
+        assertEquals(DomainVerdict.EXISTS, verdicts.get("gmail.com"));
+        assertEquals(DomainVerdict.NOT_FOUND, verdicts.get("missing.org"));
+        assertEquals(1, resolver.calls.get("gmail.com").get());
+        assertEquals(2, resolver.calls.get("missing.org").get());
+    }
+
+    @Test
+    @DisplayName("A store that cannot be written does not fail the run")
+    void testFilterEmails_StoreWriteFailure(@TempDir Path dir) throws Exception {
+        PersistentVerdictStore store = PersistentVerdictStore.open(dir.resolve("verdicts.log"));
+        store.close();
+        DomainValidator validator = new DomainValidator(new StubResolver("gmail.com"), 2,
+            new DomainVerdictCache(Duration.ofMinutes(5), Duration.ofMinutes(5)), store);
+
+        List<String> kept = validator.filterEmails(Arrays.asList("a@gmail.com", "b@missing.org"));
+
+        assertEquals(Arrays.asList("a@gmail.com"), kept);
+        assertEquals(DomainVerdict.EXISTS, validator.getCache().get("gmail.com"));
+    }
+}
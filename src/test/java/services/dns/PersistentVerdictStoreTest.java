@@ -0,0 +1,124 @@
+package services.dns;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PersistentVerdictStore and its use by DomainValidator
+ */
+@DisplayName("PersistentVerdictStore Tests")
+class PersistentVerdictStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private PersistentVerdictStore open(Path file) throws Exception {
+        return PersistentVerdictStore.open(file, Duration.ofHours(1), Duration.ofMinutes(1), now::get);
+    }
+
+    @Test
+    @DisplayName("Verdicts survive reopening, failures are not stored")
+    void testReopen() throws Exception {
+        Path file = tempDir.resolve("verdicts.log");
+        try (PersistentVerdictStore store = open(file)) {
+            store.put("gmail.com", DomainVerdict.EXISTS);
+            store.put("missing.org", DomainVerdict.NOT_FOUND);
+            store.put("flaky.net", DomainVerdict.FAILED);
+        }
+
+        try (PersistentVerdictStore store = open(file)) {
+            assertEquals(2, store.size());
+            assertEquals(DomainVerdict.EXISTS, store.get("gmail.com"));
+            assertEquals(DomainVerdict.NOT_FOUND, store.get("missing.org"));
+            assertNull(store.get("flaky.net"));
+            assertEquals(2.0 / 3, store.getHitRatio(), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Entries expire by verdict-specific TTL")
+    void testExpiry() throws Exception {
+        Path file = tempDir.resolve("verdicts.log");
+        try (PersistentVerdictStore store = open(file)) {
+            store.put("gmail.com", DomainVerdict.EXISTS);
+            store.put("missing.org", DomainVerdict.NOT_FOUND);
+        }
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        try (PersistentVerdictStore store = open(file)) {
+            assertEquals(DomainVerdict.EXISTS, store.get("gmail.com"));
+            assertNull(store.get("missing.org"));
+
+            now.addAndGet(Duration.ofHours(1).toMillis());
+            assertNull(store.get("gmail.com"));
+        }
+    }
+
+    @Test
+    @DisplayName("Torn lines are skipped and the log is compacted when it grows")
+    void testTornLineAndCompaction() throws Exception {
+        Path file = tempDir.resolve("verdicts.log");
+        try (PersistentVerdictStore store = open(file)) {
+            store.put("gmail.com", DomainVerdict.EXISTS);
+        }
+        Files.write(file, "yahoo.com\tEXI".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (PersistentVerdictStore store = open(file)) {
+            assertEquals(1, store.size());
+            store.put("yahoo.com", DomainVerdict.EXISTS);
+            for (int i = 0; i < 3_000; i++) {
+                store.put("host" + (i % 10) + ".com", DomainVerdict.EXISTS);
+            }
+            store.flush();
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(12, lines.size());
+        try (PersistentVerdictStore store = open(file)) {
+            assertEquals(12, store.size());
+            assertEquals(DomainVerdict.EXISTS, store.get("yahoo.com"));
+        }
+    }
+
+    @Test
+    @DisplayName("A validator on a warm store makes no network lookups")
+    void testValidatorUsesStore() throws Exception {
+        Path file = tempDir.resolve("verdicts.log");
+        AtomicInteger calls = new AtomicInteger();
+        DomainResolver resolver = domain -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(
+                domain.equals("gmail.com") ? DomainVerdict.EXISTS : DomainVerdict.NOT_FOUND);
+        };
+        List<String> emails = Arrays.asList("a@gmail.com", "b@missing.org");
+
+        try (PersistentVerdictStore store = open(file)) {
+            new DomainValidator(resolver, store).filterEmails(emails);
+        }
+        assertEquals(2, calls.get());
+
+        try (PersistentVerdictStore store = open(file)) {
+            DomainValidator validator = new DomainValidator(resolver, store);
+            assertEquals(Arrays.asList("a@gmail.com"), validator.filterEmails(emails));
+            assertEquals(2, validator.getMetrics().getStoreHits());
+            assertEquals(1.0, validator.getMetrics().getCacheHitRatio(), 1e-9);
+        }
+        assertEquals(2, calls.get());
+    }
+}
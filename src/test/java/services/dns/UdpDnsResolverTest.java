@@ -0,0 +1,247 @@
+package services.dns;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests UdpDnsResolver against an in-process fake DNS server
+ */
+@DisplayName("UdpDnsResolver Tests")
+class UdpDnsResolverTest {
+
+    private FakeDnsServer server;
+    private UdpDnsResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeDnsServer();
+        server.zone.put("gmail.com/15", "mx");
+        server.zone.put("mxonly.org/15", "mx");
+        server.zone.put("aonly.net/15", "empty");
+        server.zone.put("aonly.net/1", "a");
+        server.zone.put("parked.com/15", "nullmx");
+        server.zone.put("parked.com/1", "a");
+        server.zone.put("nodata.io/15", "empty");
+        server.zone.put("nodata.io/1", "empty");
+        server.zone.put("nodata.io/28", "empty");
+        server.zone.put("v6only.net/15", "empty");
+        server.zone.put("v6only.net/1", "empty");
+        server.zone.put("v6only.net/28", "aaaa");
+        server.zone.put("broken.dev/15", "servfail");
+        server.start();
+        resolver = new UdpDnsResolver(Collections.singletonList(server.address()), 2, Duration.ofMillis(200), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resolver.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("MX records are preferred, A records are the fallback")
+    void testResolve_MxThenA() throws Exception {
+        assertEquals(DomainVerdict.EXISTS, resolve("gmail.com"));
+        assertEquals(DomainVerdict.EXISTS, resolve("MXONLY.org"));
+        assertEquals(DomainVerdict.EXISTS, resolve("aonly.net"));
+        assertEquals(0, server.queries("mxonly.org/1"));
+        assertEquals(1, server.queries("aonly.net/1"));
+        assertEquals(0, server.queries("aonly.net/28"));
+    }
+
+    @Test
+    @DisplayName("Domains with only AAAA records exist through the implicit MX")
+    void testResolve_AaaaOnly() throws Exception {
+        assertEquals(DomainVerdict.EXISTS, resolve("v6only.net"));
+        assertEquals(1, server.queries("v6only.net/1"));
+        assertEquals(1, server.queries("v6only.net/28"));
+        assertEquals(DomainVerdict.NOT_FOUND, resolve("nodata.io"));
+        assertEquals(1, server.queries("nodata.io/28"));
+    }
+
+    @Test
+    @DisplayName("NXDOMAIN, NODATA and null MX domains do not exist for mail")
+    void testResolve_NotFound() throws Exception {
+        assertEquals(DomainVerdict.NOT_FOUND, resolve("unknown.zzz"));
+        assertEquals(DomainVerdict.NOT_FOUND, resolve("nodata.io"));
+        assertEquals(DomainVerdict.NOT_FOUND, resolve("parked.com"));
+        assertEquals(DomainVerdict.NOT_FOUND, resolve("bad..name"));
+        assertEquals(0, server.queries("parked.com/1"));
+    }
+
+    @Test
+    @DisplayName("Lost packets are retried, persistent errors fail")
+    void testResolve_RetriesAndFailures() throws Exception {
+        server.dropFirst.set(1);
+        assertEquals(DomainVerdict.EXISTS, resolve("gmail.com"));
+        assertEquals(2, server.queries("gmail.com/15"));
+
+        assertEquals(DomainVerdict.FAILED, resolve("broken.dev"));
+        assertEquals(3, server.queries("broken.dev/15"));
+    }
+
+    @Test
+    @DisplayName("Many pipelined queries complete through the validator")
+    void testResolve_ManyInFlight() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String domain = "host" + i + ".example";
+            server.zone.put(domain + "/15", i % 2 == 0 ? "mx" : "empty");
+            server.zone.put(domain + "/1", "empty");
+            emails.add("user@" + domain);
+        }
+        DomainValidator validator = new DomainValidator(resolver, 256,
+            new DomainVerdictCache(Duration.ofMinutes(5), Duration.ofMinutes(5)));
+
+        List<String> kept = validator.filterEmails(emails);
+
+        assertEquals(1_000, kept.size());
+        assertEquals(0, validator.getMetrics().getFailures());
+    }
+
+    private DomainVerdict resolve(String domain) throws Exception {
+        CompletableFuture<DomainVerdict> future = resolver.resolve(domain);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Answers queries from a map of "name/type" to an answer kind; unknown names get NXDOMAIN
+     */
+    private static class FakeDnsServer extends Thread {
+        final Map<String, String> zone = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        final AtomicInteger dropFirst = new AtomicInteger();
+        private final DatagramSocket socket;
+
+        FakeDnsServer() throws SocketException {
+            super("fake-dns");
+            setDaemon(true);
+            socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        }
+
+        InetSocketAddress address() {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        int queries(String key) {
+            AtomicInteger count = counts.get(key);
+            return count == null ? 0 : count.get();
+        }
+
+        void close() {
+            socket.close();
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[512];
+            while (!socket.isClosed()) {
+                try {
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    byte[] reply = answer(packet.getData(), packet.getLength());
+                    if (reply != null) {
+                        socket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+                    }
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }
+
+        private byte[] answer(byte[] query, int length) {
+            StringBuilder name = new StringBuilder();
+            int pos = 12;
+            while (query[pos] != 0) {
+                int labelLength = query[pos];
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                name.append(new String(query, pos + 1, labelLength, StandardCharsets.US_ASCII));
+                pos += labelLength + 1;
+            }
+            int questionEnd = pos + 5;
+            int type = ((query[pos + 1] & 0xFF) << 8) | (query[pos + 2] & 0xFF);
+            String key = name.toString().toLowerCase() + "/" + type;
+            counts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            if (dropFirst.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                return null;
+            }
+
+            String kind = zone.get(key);
+            int rcode = kind == null ? 3 : kind.equals("servfail") ? 2 : 0;
+            boolean hasAnswer = "mx".equals(kind) || "nullmx".equals(kind) || "a".equals(kind)
+                || "aaaa".equals(kind);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(query[0]);
+            out.write(query[1]);
+            out.write(0x81);
+            out.write(0x80 | rcode);
+            out.write(0);
+            out.write(1);
+            out.write(0);
+            out.write(hasAnswer ? 1 : 0);
+            out.write(0);
+            out.write(0);
+            out.write(0);
+            out.write(0);
+            out.write(query, 12, questionEnd - 12);
+            if (hasAnswer) {
+                out.write(0xC0);
+                out.write(12);
+                out.write(0);
+                out.write(type);
+                out.write(0);
+                out.write(1);
+                out.write(0);
+                out.write(0);
+                out.write(0x0E);
+                out.write(0x10);
+                if (kind.equals("a")) {
+                    out.write(0);
+                    out.write(4);
+                    out.write(new byte[] {10, 0, 0, 1}, 0, 4);
+                } else if (kind.equals("aaaa")) {
+                    out.write(0);
+                    out.write(16);
+                    byte[] address = new byte[16];
+                    address[0] = 0x20;
+                    address[1] = 0x01;
+                    address[15] = 1;
+                    out.write(address, 0, 16);
+                } else if (kind.equals("nullmx")) {
+                    out.write(0);
+                    out.write(3);
+                    out.write(new byte[] {0, 0, 0}, 0, 3);
+                } else {
+                    out.write(0);
+                    out.write(6);
+                    out.write(new byte[] {0, 10, 2, 'm', 'x', 0}, 0, 6);
+                }
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package services.intelligence.collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import services.intelligence.models.GravatarData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GravatarCache
+ */
+@DisplayName("GravatarCache Tests")
+class GravatarCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private static GravatarData found(String name) {
+        GravatarData data = new GravatarData();
+        data.setProfileExists(true);
+        data.setDisplayName(name);
+        data.setLinkedAccounts(Arrays.asList("github"));
+        return data;
+    }
+
+    @Test
+    @DisplayName("Misses expire before hits and the least recently used entry is evicted")
+    void testTtlAndEviction() {
+        GravatarCache cache = new GravatarCache(2, Duration.ofMinutes(10), Duration.ofMinutes(1), now::get);
+        cache.put("hit", found("Jane"));
+        cache.put("miss", GravatarData.empty());
+
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        assertEquals("Jane", cache.getIfPresent("hit").getDisplayName());
+        assertNull(cache.getIfPresent("miss"));
+
+        cache.put("a", found("A"));
+        cache.put("b", found("B"));
+        assertNull(cache.getIfPresent("hit"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups share one load and failed loads are not cached")
+    void testGet_CoalescesAndSkipsFailures() {
+        GravatarCache cache = new GravatarCache(10, Duration.ofMinutes(10), Duration.ofMinutes(1), now::get);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<GravatarData> pending = new CompletableFuture<>();
+
+        CompletableFuture<GravatarData> first = cache.get("h", hash -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<GravatarData> second = cache.get("h", hash -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        pending.complete(found("Jane"));
+
+        assertEquals("Jane", first.join().getDisplayName());
+        assertSame(first.join(), second.join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getCoalesced());
+        assertSame(first.join(), cache.get("h", hash -> CompletableFuture.failedFuture(new IOException())).join());
+        assertEquals(1, cache.getHits());
+
+        assertTrue(cache.get("f", hash -> CompletableFuture.failedFuture(new IOException("HTTP 503")))
+            .isCompletedExceptionally());
+        assertNull(cache.getIfPresent("f"));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("A shared load is cancelled only after every caller cancelled, and the next caller starts anew")
+    void testGet_CancelsLoadWithLastCaller() {
+        GravatarCache cache = new GravatarCache(10, Duration.ofMinutes(10), Duration.ofMinutes(1), now::get);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<GravatarData> pending = new CompletableFuture<>();
+
+        CompletableFuture<GravatarData> first = cache.get("h", hash -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<GravatarData> second = cache.get("h", hash -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        first.cancel(false);
+        assertFalse(pending.isCancelled());
+        second.cancel(false);
+        assertTrue(pending.isCancelled());
+
+        CompletableFuture<GravatarData> third = cache.get("h", hash -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(found("Jane"));
+        });
+        assertEquals("Jane", third.join().getDisplayName());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Entries survive a reopen through the disk tier and a torn line is dropped")
+    void testDiskTier_Persists() throws IOException {
+        Path file = tempDir.resolve("gravatar-cache.log");
+        try (GravatarCache cache = GravatarCache.open(file, 1, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                now::get)) {
+            cache.put("jane", found("Jane"));
+            cache.put("nobody", GravatarData.empty());
+            assertEquals("Jane", cache.getIfPresent("jane").getDisplayName());
+            assertEquals(1, cache.getDiskHits());
+        }
+        Files.write(file, "torn\t12".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (GravatarCache cache = GravatarCache.open(file, 10, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                now::get)) {
+            GravatarData jane = cache.getIfPresent("jane");
+            assertTrue(jane.isProfileExists());
+            assertEquals(Arrays.asList("github"), jane.getLinkedAccounts());
+            assertFalse(cache.getIfPresent("nobody").isProfileExists());
+            cache.put("john", found("John"));
+        }
+        assertTrue(Files.readString(file).endsWith("\n"));
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        try (GravatarCache cache = GravatarCache.open(file, 10, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                now::get)) {
+            assertEquals("John", cache.getIfPresent("john").getDisplayName());
+            assertNull(cache.getIfPresent("nobody"));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package services.intelligence.collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import com.sun.net.httpserver.HttpServer;
+import services.intelligence.models.GravatarData;
+import services.intelligence.resilience.CircuitBreaker;
+import services.intelligence.resilience.ResilienceOptions;
+import services.intelligence.resilience.ResilientCaller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GravatarCollector against a local HTTP server
+ */
+@DisplayName("GravatarCollector Tests")
+class GravatarCollectorTest {
+
+    private static final String PROFILE = "{\"entry\":[{\"id\":\"1\",\"hash\":\"abc\","
+        + "\"photos\":[{\"value\":\"x\",\"type\":\"thumbnail\"}],"
+        + "\"displayName\":\"Jane\",\"thumbnailUrl\":\"https://img/jane.png\","
+        + "\"name\":{\"givenName\":\"Jane\"},\"aboutMe\":null,"
+        + "\"accounts\":[{\"domain\":\"github.com\",\"shortname\":\"github\"},{\"shortname\":\"twitter\"}]},"
+        + "{\"displayName\":\"Ignored\"}]}";
+
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+    // Set by the flaky-server tests: a status to answer with instead, and a delay before answering
+    private volatile int failStatus;
+    private volatile long delayMillis;
+    private HttpServer server;
+    private String baseUrl;
+    private GravatarCollector collector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failStatus != 0) {
+                exchange.sendResponseHeaders(failStatus, -1);
+                exchange.close();
+                return;
+            }
+            boolean known = exchange.getRequestURI().getPath().equals("/" + md5("jane@example.com") + ".json");
+            byte[] body = (known ? PROFILE : "User not found").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(known ? 200 : 404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        collector = new GravatarCollector(baseUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static String md5(String value) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    @DisplayName("Async lookup reads the first entry's display name, thumbnail and accounts")
+    void testCollectAsync_ParsesProfile() throws Exception {
+        GravatarData data = collector.collectAsync(" Jane@Example.com ").get(5, TimeUnit.SECONDS);
+
+        assertTrue(data.isProfileExists());
+        assertEquals("Jane", data.getDisplayName());
+        assertEquals("https://img/jane.png", data.getProfileImageUrl());
+        assertEquals(Arrays.asList("github", "twitter"), data.getLinkedAccounts());
+        assertEquals(Arrays.asList("/" + md5("jane@example.com") + ".json"), paths);
+    }
+
+    @Test
+    @DisplayName("Cancelling a lookup cancels its HTTP call")
+    void testCollectAsync_CancelStopsCall() throws Exception {
+        delayMillis = 3000;
+        CompletableFuture<GravatarData> lookup = collector.collectAsync("jane@example.com");
+        awaitTrue(() -> paths.size() == 1);
+        assertEquals(1, collector.getRunningCalls());
+
+        lookup.cancel(false);
+        awaitTrue(() -> collector.getRunningCalls() == 0);
+    }
+
+    @Test
+    @DisplayName("Cancelling every lookup sharing a cached load cancels its HTTP call")
+    void testCollectAsync_CancelThroughCache() throws Exception {
+        GravatarCollector cached = new GravatarCollector(baseUrl, new GravatarCache());
+        delayMillis = 3000;
+        CompletableFuture<GravatarData> first = cached.collectAsync("jane@example.com");
+        CompletableFuture<GravatarData> second = cached.collectAsync("jane@example.com");
+        awaitTrue(() -> paths.size() == 1);
+
+        first.cancel(false);
+        Thread.sleep(100);
+        assertEquals(1, cached.getRunningCalls(), "Another caller still waits for the profile");
+        second.cancel(false);
+        awaitTrue(() -> cached.getRunningCalls() == 0);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Missing profiles and unreachable servers give empty data on both paths")
+    void testCollect_MissingProfile() throws Exception {
+        assertFalse(collector.collectAsync("nobody@example.com").get(5, TimeUnit.SECONDS).isProfileExists());
+        assertFalse(collector.collect("nobody@example.com").isProfileExists());
+        assertTrue(collector.collect("jane@example.com").isProfileExists());
+
+        server.stop(0);
+        assertFalse(collector.collectAsync("jane@example.com").get(5, TimeUnit.SECONDS).isProfileExists());
+    }
+
+    @Test
+    @DisplayName("A failing server opens the circuit, and lookups return empty data without calling it")
+    void testCollect_CircuitOpensOnFailures() throws Exception {
+        ResilientCaller resilience = new ResilientCaller(ResilienceOptions.defaults()
+            .withCircuitBreaker(3, Duration.ofMillis(300)));
+        GravatarCollector guarded = new GravatarCollector(baseUrl, null, resilience);
+        failStatus = 503;
+
+        for (int i = 0; i < 6; i++) {
+            assertFalse(guarded.collectAsync("user" + i + "@example.com").get(5, TimeUnit.SECONDS).isProfileExists());
+        }
+        assertEquals(3, paths.size(), "Calls after the circuit opened never reach the server");
+        assertEquals(CircuitBreaker.State.OPEN, resilience.getCircuitBreaker("127.0.0.1").getState());
+        assertEquals(3L, resilience.getStats().get("127.0.0.1").get("rejected"));
+
+        failStatus = 0;
+        Thread.sleep(400);
+        assertTrue(guarded.collect("jane@example.com").isProfileExists());
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.getCircuitBreaker("127.0.0.1").getState());
+    }
+
+    @Test
+    @DisplayName("A server slower than the read timeout gives empty data once the timeout passes")
+    void testCollect_ReadTimeout() throws Exception {
+        ResilientCaller resilience = new ResilientCaller(ResilienceOptions.defaults()
+            .withTimeouts(Duration.ofSeconds(1), Duration.ofMillis(200)));
+        GravatarCollector guarded = new GravatarCollector(baseUrl, null, resilience);
+        delayMillis = 1500;
+
+        long start = System.nanoTime();
+        assertFalse(guarded.collectAsync("jane@example.com").get(5, TimeUnit.SECONDS).isProfileExists());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1200));
+        assertEquals(1L, resilience.getStats().get("127.0.0.1").get("failed"));
+    }
+}
@@ -0,0 +1,65 @@
+package services.intelligence.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AimdLimiter on a manual clock
+ */
+@DisplayName("AimdLimiter Tests")
+class AimdLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("Callers over the limit wait and are admitted as others release")
+    void testAcquire_QueuesOverLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, now::get);
+
+        assertTrue(limiter.acquire().isDone());
+        assertTrue(limiter.acquire().isDone());
+        CompletableFuture<Void> third = limiter.acquire();
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.getWaiting());
+
+        limiter.release(null);
+        assertTrue(third.isDone());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    @Test
+    @DisplayName("Successes grow the limit by about one per round, failures halve it once per interval")
+    void testRelease_AdditiveIncreaseMultiplicativeDecrease() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 10, now::get);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+            limiter.release(true);
+        }
+        assertEquals(4, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(5, limiter.getLimit());
+
+        limiter.acquire();
+        limiter.release(false);
+        assertEquals(2, limiter.getLimit());
+        limiter.acquire();
+        limiter.release(false);
+        assertEquals(2, limiter.getLimit(), "Second failure in the same interval");
+
+        now.addAndGet(AimdLimiter.DECREASE_INTERVAL_NANOS);
+        limiter.acquire();
+        limiter.release(false);
+        limiter.acquire();
+        now.addAndGet(AimdLimiter.DECREASE_INTERVAL_NANOS);
+        limiter.release(false);
+        assertEquals(1, limiter.getLimit(), "Never below the minimum");
+    }
+}
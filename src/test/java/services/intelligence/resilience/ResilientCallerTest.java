@@ -0,0 +1,118 @@
+package services.intelligence.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ResilientCaller
+ */
+@DisplayName("ResilientCaller Tests")
+class ResilientCallerTest {
+
+    @Test
+    @DisplayName("Failures open the circuit, after which calls fail fast without running")
+    void testCall_FailsFastWhenOpen() throws Exception {
+        ResilientCaller caller = new ResilientCaller(ResilienceOptions.defaults()
+            .withCircuitBreaker(2, Duration.ofMinutes(1)));
+        AtomicInteger runs = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> failing = caller.call("a.test", () -> {
+                runs.incrementAndGet();
+                return CompletableFuture.failedFuture(new IOException("HTTP 503"));
+            });
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        CompletableFuture<String> refused = caller.call("a.test", () -> {
+            runs.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> refused.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(2, runs.get());
+
+        assertEquals("ok", caller.call("b.test", () -> CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS));
+        Map<String, Object> stats = caller.getStats().get("a.test");
+        assertEquals(2L, stats.get("failed"));
+        assertEquals(1L, stats.get("rejected"));
+        assertEquals("OPEN", stats.get("circuit"));
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitBreaker("b.test").getState());
+    }
+
+    @Test
+    @DisplayName("Thousands of calls waiting for a slot all fail fast once the circuit opens")
+    void testCall_DrainsWaitersWhenOpen() throws Exception {
+        ResilientCaller caller = new ResilientCaller(ResilienceOptions.defaults()
+            .withRateLimit(1_000_000, 10_000)
+            .withConcurrency(1, 1, 1)
+            .withCircuitBreaker(1, Duration.ofMinutes(1)));
+        CompletableFuture<String> running = new CompletableFuture<>();
+        CompletableFuture<String> first = caller.call("a.test", () -> running);
+        List<CompletableFuture<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            waiters.add(caller.call("a.test", () -> CompletableFuture.completedFuture("ok")));
+        }
+        assertEquals(5_000, caller.getLimiter("a.test").getWaiting());
+
+        running.completeExceptionally(new IOException("HTTP 503"));
+
+        assertTrue(first.isCompletedExceptionally());
+        for (CompletableFuture<String> waiter : waiters) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, caller.getLimiter("a.test").getInFlight());
+        assertEquals(0, caller.getLimiter("a.test").getWaiting());
+        assertEquals(5_000L, caller.getStats().get("a.test").get("rejected"));
+    }
+
+    @Test
+    @DisplayName("Bursts over the rate limit are delayed, and rejected past the maximum wait")
+    void testCall_Throttles() throws Exception {
+        ResilientCaller caller = new ResilientCaller(ResilienceOptions.defaults()
+            .withRateLimit(20, 1)
+            .withMaxThrottleWait(Duration.ofMillis(80)));
+
+        long start = System.nanoTime();
+        CompletableFuture<String> first = caller.call("a.test", () -> CompletableFuture.completedFuture("1"));
+        CompletableFuture<String> second = caller.call("a.test", () -> CompletableFuture.completedFuture("2"));
+        CompletableFuture<String> third = caller.call("a.test", () -> CompletableFuture.completedFuture("3"));
+
+        assertEquals("1", first.getNow(null));
+        assertEquals("2", second.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertTrue(third.isCompletedExceptionally());
+        assertEquals(1, caller.getRateLimiter("a.test").getDelayedCount());
+        assertEquals(1, caller.getRateLimiter("a.test").getRefusedCount());
+    }
+
+    @Test
+    @DisplayName("Cancelling a call cancels the action and counts as neither success nor failure")
+    void testCall_Cancel() {
+        ResilientCaller caller = new ResilientCaller(ResilienceOptions.defaults());
+        CompletableFuture<String> action = new CompletableFuture<>();
+
+        CompletableFuture<String> call = caller.call("a.test", () -> action);
+        assertEquals(1, caller.getLimiter("a.test").getInFlight());
+        call.cancel(false);
+
+        assertTrue(action.isCancelled());
+        assertEquals(0, caller.getLimiter("a.test").getInFlight());
+        assertEquals(0L, caller.getStats().get("a.test").get("failed"));
+        assertEquals(0L, caller.getStats().get("a.test").get("succeeded"));
+    }
+}
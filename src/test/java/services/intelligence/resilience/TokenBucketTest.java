@@ -0,0 +1,46 @@
+package services.intelligence.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TokenBucket on a manual clock
+ */
+@DisplayName("TokenBucket Tests")
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("A full bucket allows a burst, then spaces requests out at the rate")
+    void testReserve_BurstThenRate() {
+        TokenBucket bucket = new TokenBucket(10, 3, now::get);
+
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(SECOND / 10, bucket.reserve(SECOND));
+        assertEquals(2 * SECOND / 10, bucket.reserve(SECOND));
+        assertEquals(2, bucket.getDelayedCount());
+
+        now.addAndGet(10 * SECOND);
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    @DisplayName("A reservation over the maximum wait is refused without taking a token")
+    void testReserve_RefusesLongWaits() {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(SECOND / 2));
+        assertEquals(1, bucket.getRefusedCount());
+        assertEquals(SECOND, bucket.reserve(SECOND));
+    }
+}